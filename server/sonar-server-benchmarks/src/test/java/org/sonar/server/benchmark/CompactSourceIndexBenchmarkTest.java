@@ -0,0 +1,96 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.List;
+import java.util.Timer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.source.index.SourceLineDoc;
+import org.sonar.server.source.index.SourceLineIndex;
+import org.sonar.server.source.index.SourceLineIndexDefinition;
+import org.sonar.server.source.index.SourceLineIndexer;
+import org.sonar.server.tester.ServerTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Same as {@link SourceIndexBenchmarkTest} when lines are indexed by blocks
+ * (see {@link SourceLineIndexDefinition#COMPACT_LAYOUT_PROPERTY})
+ */
+public class CompactSourceIndexBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkSourceIndexing");
+  private static final long FILES = 1000L;
+  private static final int LINES_PER_FILE = 3220;
+
+  @Rule
+  public ServerTester tester = new ServerTester().withEsIndexes().setProperty(SourceLineIndexDefinition.COMPACT_LAYOUT_PROPERTY, "true");
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  @Test
+  public void benchmark() throws Exception {
+    benchmarkIndexing();
+    benchmarkQueries();
+  }
+
+  private void benchmarkIndexing() {
+    LOGGER.info("Indexing blocks of source lines");
+
+    SourceIndexBenchmarkTest.SourceIterator files = new SourceIndexBenchmarkTest.SourceIterator(FILES, LINES_PER_FILE, true);
+    ProgressTask progressTask = new ProgressTask(LOGGER, "files of " + LINES_PER_FILE + " lines", files.count());
+    Timer timer = new Timer("SourceIndexer");
+    timer.schedule(progressTask, ProgressTask.PERIOD_MS, ProgressTask.PERIOD_MS);
+
+    long start = System.currentTimeMillis();
+    tester.get(SourceLineIndexer.class).index(files);
+    long end = System.currentTimeMillis();
+
+    timer.cancel();
+    long period = end - start;
+    long nbLines = files.count().get() * LINES_PER_FILE;
+    long throughputPerSecond = 1000L * nbLines / period;
+    LOGGER.info(String.format("%d lines indexed in %d ms (%d lines/second)", nbLines, period, throughputPerSecond));
+
+    // be sure that physical files do not evolve during estimation of size
+    tester.get(EsClient.class).prepareOptimize(SourceLineIndexDefinition.INDEX).setWaitForMerge(true).get();
+    long dirSize = FileUtils.sizeOfDirectory(tester.getEsServerHolder().getHomeDir());
+    LOGGER.info(String.format("ES dir: " + FileUtils.byteCountToDisplaySize(dirSize)));
+    // at least 5 times smaller than the layout "one document per line"
+    benchmark.expectBetween("ES dir size (b)", dirSize, 0L, 36L * FileUtils.ONE_MB);
+  }
+
+  private void benchmarkQueries() {
+    SourceLineIndex index = tester.get(SourceLineIndex.class);
+    for (int i = 1; i <= 100; i++) {
+      long start = System.currentTimeMillis();
+      List<SourceLineDoc> result = index.getLines("FILE" + i, 20, 150);
+      long end = System.currentTimeMillis();
+      assertThat(result).hasSize(131);
+      LOGGER.info("Request: {} docs in {} ms", result.size(), end - start);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.io.File;
+import java.util.Date;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.server.computation.issue.IssueCache;
+import org.sonar.server.util.CloseableIterator;
+import org.sonar.server.util.cache.DiskCache;
+import org.sonar.server.util.cache.JavaSerializationCodec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of the write and traversal of the issues of a large analysis in {@link IssueCache},
+ * compared to Java serialization of the same issues.
+ */
+public class IssueCacheBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkIssueCache");
+
+  private static final int ISSUES = 1_000_000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  @Test
+  public void benchmark() throws Exception {
+    File issueCacheFile = temp.newFile();
+    Result issueCache = benchmark("Issue cache", new IssueCache(issueCacheFile, System2.INSTANCE), issueCacheFile);
+
+    File serializationFile = temp.newFile();
+    Result serialization = benchmark("Java serialization", new DiskCache<>(serializationFile, new JavaSerializationCodec<DefaultIssue>(), false, System2.INSTANCE),
+      serializationFile);
+
+    benchmark.expectBetween("Size of issue cache compared to Java serialization (%)", 100L * issueCache.fileSize / serialization.fileSize, 0L, 40L);
+    benchmark.expectBetween("Write throughput of issue cache compared to Java serialization (%)",
+      100L * issueCache.writeThroughput / serialization.writeThroughput, 300L, Long.MAX_VALUE);
+    benchmark.expectBetween("Read throughput of issue cache compared to Java serialization (%)",
+      100L * issueCache.readThroughput / serialization.readThroughput, 300L, Long.MAX_VALUE);
+  }
+
+  private Result benchmark(String label, DiskCache<DefaultIssue> cache, File file) {
+    Result result = new Result();
+    long start = System.currentTimeMillis();
+    DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender();
+    for (int i = 0; i < ISSUES; i++) {
+      appender.append(newIssue(i));
+    }
+    appender.close();
+    long period = System.currentTimeMillis() - start;
+    result.writeThroughput = throughputPerSecond(period);
+    result.fileSize = file.length();
+    LOGGER.info(String.format("%s: %d issues written in %d ms (%d issues/second), file size is %s", label, ISSUES, period, result.writeThroughput,
+      FileUtils.byteCountToDisplaySize(result.fileSize)));
+
+    start = System.currentTimeMillis();
+    int count = 0;
+    try (CloseableIterator<DefaultIssue> issues = cache.traverse()) {
+      while (issues.hasNext()) {
+        issues.next();
+        count++;
+      }
+    }
+    period = System.currentTimeMillis() - start;
+    assertThat(count).isEqualTo(ISSUES);
+    result.readThroughput = throughputPerSecond(period);
+    LOGGER.info(String.format("%s: %d issues traversed in %d ms (%d issues/second)", label, ISSUES, period, result.readThroughput));
+    return result;
+  }
+
+  private static long throughputPerSecond(long periodMs) {
+    return 1000L * ISSUES / Math.max(1L, periodMs);
+  }
+
+  private static DefaultIssue newIssue(int index) {
+    Date date = new Date(1_400_000_000_000L + index);
+    return new DefaultIssue()
+      .setKey("AU-Tpxb--iU5OvuD2FLy" + index)
+      .setComponentUuid("AU-TpxcA-iU5OvuD2FL" + (index % 1_000))
+      .setComponentKey("org.codehaus.sonar:sonar-server:src/main/java/File" + (index % 1_000) + ".java")
+      .setModuleUuid("AU-TpxcA-iU5OvuD2FL0")
+      .setModuleUuidPath(".AU-TpxcA-iU5OvuD2FL0.")
+      .setProjectUuid("AU-TpxcA-iU5OvuD2FL0")
+      .setProjectKey("org.codehaus.sonar:sonar")
+      .setRuleKey(RuleKey.of("squid", "S" + (index % 300)))
+      .setLanguage("java")
+      .setSeverity(Severity.MAJOR)
+      .setMessage("Remove this unused private field " + index)
+      .setLine(1 + index % 500)
+      .setDebt(Duration.create(10L))
+      .setStatus(Issue.STATUS_OPEN)
+      .setChecksum("a227e508d6646b55a086ee11d63b21e9")
+      .setAuthorLogin("author" + (index % 50))
+      .setCreationDate(date)
+      .setUpdateDate(date);
+  }
+
+  private static class Result {
+    private long writeThroughput;
+    private long readThroughput;
+    private long fileSize;
+  }
+}
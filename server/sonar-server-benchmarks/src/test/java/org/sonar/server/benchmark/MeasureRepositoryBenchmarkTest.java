@@ -0,0 +1,164 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import com.google.common.base.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.server.computation.batch.BatchReportReaderRule;
+import org.sonar.server.computation.batch.TreeRootHolderRule;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.DumbComponent;
+import org.sonar.server.computation.measure.Measure;
+import org.sonar.server.computation.measure.MeasureKey;
+import org.sonar.server.computation.measure.MeasureRepositoryImpl;
+import org.sonar.server.computation.measure.MeasureVariations;
+import org.sonar.server.computation.metric.Metric;
+import org.sonar.server.computation.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap footprint and the lookup latency of the raw measures stored by {@link MeasureRepositoryImpl}
+ * with the previous storage, which was a map of {@link Measure} objects per component.
+ */
+public class MeasureRepositoryBenchmarkTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkMeasureRepository");
+
+  private static final int COMPONENTS = 20_000;
+  private static final int METRICS = 80;
+  private static final int LOOKUP_ROUNDS = 5;
+
+  @Rule
+  public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private final List<Component> components = new ArrayList<>();
+  private final List<Metric> metrics = new ArrayList<>();
+
+  @Test
+  public void benchmark() {
+    for (int ref = 1; ref <= COMPONENTS; ref++) {
+      components.add(DumbComponent.builder(Component.Type.FILE, ref).setKey("FILE" + ref).build());
+    }
+    for (int id = 1; id <= METRICS; id++) {
+      metrics.add(new MetricImpl(id, "metric" + id, "Metric " + id, id % 2 == 0 ? Metric.MetricType.INT : Metric.MetricType.FLOAT));
+    }
+
+    long mapFootprint = benchmarkMapStorage();
+    long repositoryFootprint = benchmarkRepository();
+    benchmark.expectBetween("Footprint of raw measures of repository compared to maps (%)", 100L * repositoryFootprint / mapFootprint, 0L, 50L);
+  }
+
+  private long benchmarkMapStorage() {
+    long before = usedMemory();
+    Map<Integer, Map<MeasureKey, Measure>> measures = new HashMap<>();
+    for (Component component : components) {
+      Map<MeasureKey, Measure> measuresOfComponent = new HashMap<>();
+      for (Metric metric : metrics) {
+        measuresOfComponent.put(new MeasureKey(metric.getKey(), null, null), newMeasure(component, metric));
+      }
+      measures.put(component.getRef(), measuresOfComponent);
+    }
+    long footprint = usedMemory() - before;
+    LOGGER.info(String.format("Maps of measures: %s in heap", FileUtils.byteCountToDisplaySize(footprint)));
+
+    long start = System.nanoTime();
+    double sum = 0d;
+    for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+      for (Component component : components) {
+        Map<MeasureKey, Measure> measuresOfComponent = measures.get(component.getRef());
+        for (Metric metric : metrics) {
+          sum += value(measuresOfComponent.get(new MeasureKey(metric.getKey(), null, null)));
+        }
+      }
+    }
+    logLookups("Maps of measures", System.nanoTime() - start);
+    assertThat(sum).isPositive();
+    return footprint;
+  }
+
+  private long benchmarkRepository() {
+    long before = usedMemory();
+    MeasureRepositoryImpl repository = new MeasureRepositoryImpl(null, reportReader, treeRootHolder, null, null);
+    for (Component component : components) {
+      for (Metric metric : metrics) {
+        repository.add(component, metric, newMeasure(component, metric));
+      }
+    }
+    long footprint = usedMemory() - before;
+    LOGGER.info(String.format("Measure repository: %s in heap", FileUtils.byteCountToDisplaySize(footprint)));
+
+    long start = System.nanoTime();
+    double sum = 0d;
+    for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+      for (Component component : components) {
+        for (Metric metric : metrics) {
+          sum += value(repository.getRawMeasure(component, metric));
+        }
+      }
+    }
+    logLookups("Measure repository", System.nanoTime() - start);
+    assertThat(sum).isPositive();
+    return footprint;
+  }
+
+  private static Measure newMeasure(Component component, Metric metric) {
+    Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder().setVariations(new MeasureVariations(1d, null, 3d));
+    if (metric.getType() == Metric.MetricType.INT) {
+      return builder.create(component.getRef() + metric.getId());
+    }
+    return builder.create(component.getRef() / (double) metric.getId());
+  }
+
+  private static double value(Optional<Measure> measure) {
+    return value(measure.get());
+  }
+
+  private static double value(Measure measure) {
+    return measure.getValueType() == Measure.ValueType.INT ? measure.getIntValue() : measure.getDoubleValue();
+  }
+
+  private static void logLookups(String label, long durationNs) {
+    long lookups = (long) LOOKUP_ROUNDS * COMPONENTS * METRICS;
+    LOGGER.info(String.format("%s: %d lookups in %d ms (%d ns/lookup)", label, lookups, durationNs / 1_000_000L, durationNs / lookups));
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -29,6 +29,7 @@ import org.sonar.api.utils.internal.Uuids;
 import org.sonar.core.persistence.DbTester;
 import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.db.IdRange;
 import org.sonar.server.source.db.FileSourceDao;
 import org.sonar.server.source.db.FileSourceDb;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
@@ -37,8 +38,14 @@ import org.sonar.server.source.index.SourceLineResultSetIterator;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +57,7 @@ public class SourceDbBenchmarkTest {
   public static final int NUMBER_OF_FILES = 1000;
   public static final int NUMBER_OF_LINES = 3220;
   public static final String PROJECT_UUID = Uuids.create();
+  public static final int PARTITIONS = 4;
 
   @Rule
   public DbTester dbTester = new DbTester();
@@ -61,6 +69,7 @@ public class SourceDbBenchmarkTest {
   public void benchmark() throws Exception {
     prepareTable();
     scrollRows();
+    scrollRowsInPartitions();
   }
 
   private void scrollRows() throws SQLException {
@@ -74,7 +83,7 @@ public class SourceDbBenchmarkTest {
 
     try {
       long start = System.currentTimeMillis();
-      SourceLineResultSetIterator it = SourceLineResultSetIterator.create(dbClient, connection, 0L, null);
+      SourceLineResultSetIterator it = SourceLineResultSetIterator.create(dbClient, connection, 0L, null, false);
       while (it.hasNext()) {
         FileSourcesUpdaterHelper.Row row = it.next();
         assertThat(row.getUpdateRequests().size()).isEqualTo(NUMBER_OF_LINES);
@@ -93,6 +102,56 @@ public class SourceDbBenchmarkTest {
     }
   }
 
+  /**
+   * Same as {@link #scrollRows()}, but table is split into ranges of ids read concurrently, as done
+   * by the full indexing of source lines.
+   */
+  private void scrollRowsInPartitions() throws Exception {
+    LOGGER.info("Scroll table FILE_SOURCES in {} partitions", PARTITIONS);
+    final DbClient dbClient = new DbClient(dbTester.database(), dbTester.myBatis());
+    final AtomicLong counter = new AtomicLong();
+    ProgressTask progress = new ProgressTask(LOGGER, "source file", counter);
+    Timer timer = new Timer("SourceDbPartitionedScroll");
+    timer.schedule(progress, ProgressTask.PERIOD_MS, ProgressTask.PERIOD_MS);
+    ExecutorService executor = Executors.newFixedThreadPool(PARTITIONS);
+
+    try {
+      long start = System.currentTimeMillis();
+      List<Future<?>> futures = new ArrayList<>();
+      for (final IdRange range : IdRange.split(dbClient, "file_sources", FileSourcesUpdaterHelper.dataTypeCondition(FileSourceDto.Type.SOURCE), PARTITIONS)) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            Connection connection = dbTester.openConnection();
+            try {
+              SourceLineResultSetIterator it = SourceLineResultSetIterator.create(dbClient, connection, range, false);
+              while (it.hasNext()) {
+                FileSourcesUpdaterHelper.Row row = it.next();
+                assertThat(row.getUpdateRequests().size()).isEqualTo(NUMBER_OF_LINES);
+                counter.incrementAndGet();
+              }
+              return null;
+            } finally {
+              DbUtils.closeQuietly(connection);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      long period = System.currentTimeMillis() - start;
+      assertThat(counter.get()).isEqualTo(NUMBER_OF_FILES);
+      long throughputPerSecond = 1000L * counter.get() / period;
+      LOGGER.info(String.format("%d FILE_SOURCES rows scrolled in %d partitions in %d ms (%d rows/second)", counter.get(), PARTITIONS, period, throughputPerSecond));
+      benchmark.expectBetween("Throughput to scroll FILE_SOURCES in partitions", throughputPerSecond, 27, 39);
+
+    } finally {
+      executor.shutdown();
+      timer.cancel();
+    }
+  }
+
   private void prepareTable() throws IOException {
     LOGGER.info("Populate table FILE_SOURCES");
     FileSourceDao dao = new FileSourceDao(dbTester.myBatis());
@@ -67,7 +67,7 @@ public class SourceIndexBenchmarkTest {
   private void benchmarkIndexing() {
     LOGGER.info("Indexing source lines");
 
-    SourceIterator files = new SourceIterator(FILES, LINES_PER_FILE);
+    SourceIterator files = new SourceIterator(FILES, LINES_PER_FILE, false);
     ProgressTask progressTask = new ProgressTask(LOGGER, "files of " + LINES_PER_FILE + " lines", files.count());
     Timer timer = new Timer("SourceIndexer");
     timer.schedule(progressTask, ProgressTask.PERIOD_MS, ProgressTask.PERIOD_MS);
@@ -102,17 +102,19 @@ public class SourceIndexBenchmarkTest {
     // TODO assertions
   }
 
-  private static class SourceIterator implements Iterator<FileSourcesUpdaterHelper.Row> {
+  static class SourceIterator implements Iterator<FileSourcesUpdaterHelper.Row> {
     private final long nbFiles;
     private final int nbLinesPerFile;
+    private final boolean compact;
     private int currentProject = 0;
     private AtomicLong count = new AtomicLong(0L);
     private final FileSourceDb.Data.Builder dataBuilder = FileSourceDb.Data.newBuilder();
     private final FileSourceDb.Line.Builder lineBuilder = FileSourceDb.Line.newBuilder();
 
-    SourceIterator(long nbFiles, int nbLinesPerFile) {
+    SourceIterator(long nbFiles, int nbLinesPerFile, boolean compact) {
       this.nbFiles = nbFiles;
       this.nbLinesPerFile = nbLinesPerFile;
+      this.compact = compact;
     }
 
     public AtomicLong count() {
@@ -155,6 +157,9 @@ public class SourceIndexBenchmarkTest {
       if (count.get() % 500 == 0) {
         currentProject++;
       }
+      if (compact) {
+        return SourceLineResultSetIterator.toBlockRow(projectUuid, fileUuid, new Date(), dataBuilder.build());
+      }
       return SourceLineResultSetIterator.toRow(projectUuid, fileUuid, new Date(), dataBuilder.build());
     }
 
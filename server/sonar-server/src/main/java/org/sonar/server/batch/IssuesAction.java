@@ -37,15 +37,19 @@ import org.sonar.server.user.UserSession;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.collect.Maps.newHashMap;
 
 public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
+  private static final String PARAM_KEYS = "keys";
 
   private final DbClient dbClient;
   private final IssueIndex issueIndex;
@@ -67,24 +71,38 @@ public class IssuesAction implements BatchWsAction {
 
     action
       .createParam(PARAM_KEY)
-      .setRequired(true)
-      .setDescription("Project, module or file key")
+      .setDescription("Project, module or file key. Required if parameter '" + PARAM_KEYS + "' is not set.")
       .setExampleValue("org.codehaus.sonar:sonar");
+
+    action
+      .createParam(PARAM_KEYS)
+      .setDescription("Comma-separated list of file keys. Issues of all the files are returned in the same stream. Unknown files are ignored.")
+      .setExampleValue("org.codehaus.sonar:sonar-core:src/main/java/Foo.java,org.codehaus.sonar:sonar-core:src/main/java/Bar.java")
+      .setSince("5.2");
   }
 
   @Override
   public void handle(Request request, Response response) throws Exception {
     userSession.checkGlobalPermission(GlobalPermissions.PREVIEW_EXECUTION);
-    final String moduleKey = request.mandatoryParam(PARAM_KEY);
+    List<String> fileKeys = request.paramAsStrings(PARAM_KEYS);
 
     response.stream().setMediaType(MimeTypes.PROTOBUF);
     DbSession session = dbClient.openSession(false);
     try {
-      ComponentDto component = dbClient.componentDao().selectByKey(session, moduleKey);
-      Map<String, String> keysByUUid = keysByUUid(session, component);
+      Map<String, String> keysByUUid;
+      Iterator<IssueDoc> issueDocIterator;
+      if (fileKeys == null) {
+        ComponentDto component = dbClient.componentDao().selectByKey(session, request.mandatoryParam(PARAM_KEY));
+        keysByUUid = keysByUUid(session, component);
+        issueDocIterator = issueIndex.selectIssuesForBatch(component);
+      } else {
+        List<ComponentDto> files = dbClient.componentDao().selectByKeys(session, fileKeys);
+        keysByUUid = moduleKeysByUuid(session, files);
+        issueDocIterator = issueIndex.selectIssuesForBatch(fileUuids(files));
+      }
 
       BatchInput.ServerIssue.Builder issueBuilder = BatchInput.ServerIssue.newBuilder();
-      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
+      while (issueDocIterator.hasNext()) {
         handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
       }
     } finally {
@@ -92,6 +110,33 @@ public class IssuesAction implements BatchWsAction {
     }
   }
 
+  private static List<String> fileUuids(List<ComponentDto> files) {
+    List<String> uuids = new ArrayList<>();
+    for (ComponentDto file : files) {
+      if (!Scopes.FILE.equals(file.scope())) {
+        throw new IllegalArgumentException(String.format("The component '%s' is not a file", file.key()));
+      }
+      uuids.add(file.uuid());
+    }
+    return uuids;
+  }
+
+  private Map<String, String> moduleKeysByUuid(DbSession session, List<ComponentDto> files) {
+    Set<String> moduleUuids = new HashSet<>();
+    for (ComponentDto file : files) {
+      String moduleUuid = file.moduleUuid();
+      if (moduleUuid == null) {
+        throw new IllegalArgumentException(String.format("The component '%s' has no module uuid", file.uuid()));
+      }
+      moduleUuids.add(moduleUuid);
+    }
+    Map<String, String> keysByUUid = newHashMap();
+    for (ComponentDto module : dbClient.componentDao().selectByUuids(session, moduleUuids)) {
+      keysByUUid.put(module.uuid(), module.key());
+    }
+    return keysByUUid;
+  }
+
   private void handleIssue(IssueDoc issue, BatchInput.ServerIssue.Builder issueBuilder, Map<String, String> keysByUUid, OutputStream out) {
     issueBuilder.setKey(issue.key());
     issueBuilder.setModuleKey(keysByUUid.get(issue.moduleUuid()));
@@ -138,8 +138,13 @@ public class ComponentDao implements DaoComponent {
     return mapper(session).selectComponentsFromProjectKeyAndScope(projectKey, Scopes.PROJECT);
   }
 
-  public List<ComponentDto> selectByKeys(DbSession session, Collection<String> keys) {
-    return mapper(session).selectByKeys(keys);
+  public List<ComponentDto> selectByKeys(final DbSession session, Collection<String> keys) {
+    return DaoUtils.executeLargeInputs(keys, new Function<List<String>, List<ComponentDto>>() {
+      @Override
+      public List<ComponentDto> apply(List<String> partition) {
+        return mapper(session).selectByKeys(partition);
+      }
+    });
   }
 
   public ComponentDto selectByKey(DbSession session, String key) {
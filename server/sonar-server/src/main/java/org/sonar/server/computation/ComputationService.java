@@ -20,12 +20,16 @@
 package org.sonar.server.computation;
 
 import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.List;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.computation.activity.ActivityManager;
+import org.sonar.server.computation.activity.StepProfiler;
+import org.sonar.server.computation.activity.StepStatistics;
 import org.sonar.server.computation.step.ComputationStep;
 import org.sonar.server.computation.step.ComputationSteps;
 
@@ -55,10 +59,16 @@ public class ComputationService {
       String.format("Analysis of project %s (report %d)", projectKey, item.dto.getId())
       );
 
+    List<StepStatistics> statistics = new ArrayList<>();
     try {
       for (ComputationStep step : steps.instances()) {
         Profiler stepProfiler = Profiler.createIfDebug(LOG).startDebug(step.getDescription());
-        step.execute();
+        StepProfiler stepStatistics = StepProfiler.start(step.getClass().getSimpleName());
+        try {
+          step.execute();
+        } finally {
+          statistics.add(stepStatistics.stop());
+        }
         stepProfiler.stopDebug();
       }
       item.dto.setStatus(SUCCESS);
@@ -67,7 +77,7 @@ public class ComputationService {
       throw Throwables.propagate(e);
     } finally {
       item.dto.setFinishedAt(system.now());
-      activityManager.saveActivity(item.dto);
+      activityManager.saveActivity(item.dto, statistics);
       profiler.stopInfo();
     }
   }
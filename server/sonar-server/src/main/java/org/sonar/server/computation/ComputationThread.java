@@ -45,6 +45,13 @@ public class ComputationThread implements Runnable {
 
   @Override
   public void run() {
+    processNextReport();
+  }
+
+  /**
+   * @return false if the queue does not contain any report available for processing
+   */
+  public boolean processNextReport() {
     ReportQueue.Item item = null;
     try {
       item = queue.pop();
@@ -52,7 +59,7 @@ public class ComputationThread implements Runnable {
       LOG.error("Failed to pop the queue of analysis reports", e);
     }
     if (item == null) {
-      return;
+      return false;
     }
 
     ComputeEngineContainer computeEngineContainer = containerFactory.create(sqContainer, item);
@@ -66,6 +73,7 @@ public class ComputationThread implements Runnable {
 
       removeSilentlyFromQueue(item);
     }
+    return true;
   }
 
   private void removeSilentlyFromQueue(ReportQueue.Item item) {
@@ -24,32 +24,50 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.picocontainer.Startable;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.platform.ServerStartHandler;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.server.computation.container.ContainerFactory;
 import org.sonar.server.computation.container.ContainerFactoryImpl;
 
-public class ComputationThreadLauncher implements Startable, ServerStartHandler {
+/**
+ * Starts the workers processing the queue of analysis reports. Idle workers are woken up
+ * as soon as a report is added to the queue. They also look at the queue periodically, for example
+ * to process the reports submitted before a restart of server.
+ */
+public class ComputationThreadLauncher implements Startable, ServerStartHandler, ReportQueue.Listener {
 
   public static final String THREAD_NAME_PREFIX = "computation-";
 
+  /**
+   * Number of reports which can be processed concurrently. Reports of the same project
+   * are always processed one after the other.
+   */
+  public static final String WORKER_COUNT_PROPERTY = "sonar.computationEngine.workerCount";
+  static final int DEFAULT_WORKER_COUNT = 1;
+
   private final ReportQueue queue;
   private final ComponentContainer sqContainer;
   private final ScheduledExecutorService executorService;
   private final ContainerFactory containerFactory;
+  private final int workerCount;
+  private final Semaphore wakeUps = new Semaphore(0);
+  private volatile boolean stopped = false;
 
   private final long delayBetweenTasks;
   private final long delayForFirstStart;
   private final TimeUnit timeUnit;
 
-  public ComputationThreadLauncher(ReportQueue queue, ComponentContainer sqContainer) {
+  public ComputationThreadLauncher(ReportQueue queue, ComponentContainer sqContainer, Settings settings) {
     this.queue = queue;
     this.sqContainer = sqContainer;
-    this.executorService = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
+    this.workerCount = workerCount(settings);
+    this.executorService = Executors.newScheduledThreadPool(workerCount, newThreadFactory());
     this.containerFactory = new ContainerFactoryImpl();
 
     this.delayBetweenTasks = 10;
@@ -58,12 +76,13 @@ public class ComputationThreadLauncher implements Startable, ServerStartHandler
   }
 
   @VisibleForTesting
-  ComputationThreadLauncher(ReportQueue queue, ComponentContainer sqContainer, ContainerFactory containerFactory,
+  ComputationThreadLauncher(ReportQueue queue, ComponentContainer sqContainer, ContainerFactory containerFactory, int workerCount,
     long delayForFirstStart, long delayBetweenTasks, TimeUnit timeUnit) {
     this.queue = queue;
     this.sqContainer = sqContainer;
     this.containerFactory = containerFactory;
-    this.executorService = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
+    this.workerCount = workerCount;
+    this.executorService = Executors.newScheduledThreadPool(workerCount, newThreadFactory());
 
     this.delayBetweenTasks = delayBetweenTasks;
     this.delayForFirstStart = delayForFirstStart;
@@ -72,21 +91,81 @@ public class ComputationThreadLauncher implements Startable, ServerStartHandler
 
   @Override
   public void start() {
-    // do nothing because we want to wait for the server to finish startup
+    // workers are started when server startup is finished
+    queue.addListener(this);
   }
 
   @Override
   public void stop() {
+    stopped = true;
+    wakeUps.release(workerCount);
     executorService.shutdown();
   }
 
+  @Override
+  public void onReportAdded(ReportQueue.Item item) {
+    startAnalysisTaskNow();
+  }
+
+  /**
+   * Wakes up an idle worker, if any
+   */
   public void startAnalysisTaskNow() {
-    executorService.execute(new ComputationThread(queue, sqContainer, containerFactory));
+    // no need to accumulate more wake-ups than workers
+    if (wakeUps.availablePermits() < workerCount) {
+      wakeUps.release();
+    }
   }
 
   @Override
   public void onServerStart(Server server) {
-    executorService.scheduleAtFixedRate(new ComputationThread(queue, sqContainer, containerFactory), delayForFirstStart, delayBetweenTasks, timeUnit);
+    for (int i = 0; i < workerCount; i++) {
+      executorService.schedule(new Worker(new ComputationThread(queue, sqContainer, containerFactory)), delayForFirstStart, timeUnit);
+    }
+  }
+
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  private static int workerCount(Settings settings) {
+    if (!settings.hasKey(WORKER_COUNT_PROPERTY)) {
+      return DEFAULT_WORKER_COUNT;
+    }
+    int count = settings.getInt(WORKER_COUNT_PROPERTY);
+    if (count < 1) {
+      throw new IllegalArgumentException(String.format("Bad value of %s: %d", WORKER_COUNT_PROPERTY, count));
+    }
+    return count;
+  }
+
+  private class Worker implements Runnable {
+    private final ComputationThread computationThread;
+
+    private Worker(ComputationThread computationThread) {
+      this.computationThread = computationThread;
+    }
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        processQueue();
+        try {
+          // wait for a new report, or look at the queue anyway when delay is reached
+          wakeUps.tryAcquire(delayBetweenTasks, timeUnit);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+
+    private void processQueue() {
+      while (!stopped && computationThread.processNextReport()) {
+        // the queue may contain reports of other projects, which can be processed by another worker
+        startAnalysisTaskNow();
+      }
+    }
   }
 
   private static ThreadFactory newThreadFactory() {
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.config.Settings;
@@ -43,6 +44,7 @@ import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
 public class ReportQueue {
   private final DbClient dbClient;
   private final Settings settings;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
   public ReportQueue(DbClient dbClient, Settings settings) {
     this.dbClient = dbClient;
@@ -53,18 +55,37 @@ public class ReportQueue {
     String uuid = Uuids.create();
     File file = reportFileForUuid(uuid);
 
+    Item item;
     DbSession session = dbClient.openSession(false);
     try {
       saveReportOnDisk(reportData, file);
       AnalysisReportDto dto = saveReportMetadataInDatabase(projectKey, projectName, uuid, session);
-
-      return new Item(dto, file);
+      item = new Item(dto, file);
     } catch (Exception e) {
       FileUtils.deleteQuietly(file);
       throw new IllegalStateException("Fail to store analysis report of project " + projectKey, e);
     } finally {
       MyBatis.closeQuietly(session);
     }
+    notifyListeners(item);
+    return item;
+  }
+
+  /**
+   * Registers a listener notified when a report is added to the queue
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  private void notifyListeners(Item item) {
+    for (Listener listener : listeners) {
+      try {
+        listener.onReportAdded(item);
+      } catch (Exception e) {
+        Loggers.get(getClass()).error("Failed to notify that analysis report " + item.dto.getId() + " is added to queue", e);
+      }
+    }
   }
 
   private AnalysisReportDto saveReportMetadataInDatabase(String projectKey, String projectName, String uuid, DbSession session) {
@@ -171,6 +192,13 @@ public class ReportQueue {
     return new File(reportsDir(), String.format("%s.zip", uuid));
   }
 
+  public interface Listener {
+    /**
+     * Called once the report is stored, so it can be popped from the queue
+     */
+    void onReportAdded(Item item);
+  }
+
   public static class Item {
     public final AnalysisReportDto dto;
     public final File zipFile;
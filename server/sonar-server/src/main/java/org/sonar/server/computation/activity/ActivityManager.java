@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.activity;
 
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.computation.db.AnalysisReportDto;
@@ -41,6 +43,13 @@ public class ActivityManager {
   }
 
   public void saveActivity(AnalysisReportDto report) {
+    saveActivity(report, Collections.<StepStatistics>emptyList());
+  }
+
+  /**
+   * @param steps resources consumed by each executed step, stored in the data "steps" (see {@link StepStatistics#format(List)})
+   */
+  public void saveActivity(AnalysisReportDto report, List<StepStatistics> steps) {
     ComponentDto project = loadProject(report.getProjectKey());
     Activity activity = new Activity();
     activity.setType(Activity.Type.ANALYSIS_REPORT);
@@ -52,6 +61,15 @@ public class ActivityManager {
         .setData("submittedAt", formatDateTimeNullSafe(longToDate(report.getCreatedAt())))
         .setData("startedAt", formatDateTimeNullSafe(longToDate(report.getStartedAt())))
         .setData("finishedAt", formatDateTimeNullSafe(longToDate(report.getFinishedAt())));
+    if (report.getCreatedAt() != null && report.getStartedAt() != null) {
+      activity.setData("waitingTime", String.valueOf(report.getStartedAt() - report.getCreatedAt()));
+      if (report.getFinishedAt() != null) {
+        activity.setData("executionTime", String.valueOf(report.getFinishedAt() - report.getStartedAt()));
+      }
+    }
+    if (!steps.isEmpty()) {
+      activity.setData("steps", StepStatistics.format(steps));
+    }
     if (project != null) {
       activity
           .setData("projectName", project.name())
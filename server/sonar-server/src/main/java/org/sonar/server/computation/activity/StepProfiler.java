@@ -0,0 +1,88 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.activity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.sonar.core.persistence.profiling.StatementStatisticsInterceptor;
+import org.sonar.core.util.CallStatistics;
+import org.sonar.server.es.EsClient;
+
+/**
+ * Measures the resources consumed by the current thread during the execution of a step: wall time,
+ * CPU time, allocated bytes, SQL statements and Elasticsearch requests.
+ * <p/>
+ * Work delegated to other threads is not included, except the responses of asynchronous Elasticsearch bulk requests.
+ */
+public class StepProfiler {
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final String name;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startAllocatedBytes;
+  private final CallStatistics.Counter sqlCounter;
+  private final CallStatistics.Counter esCounter;
+
+  private StepProfiler(String name) {
+    this.name = name;
+    this.sqlCounter = StatementStatisticsInterceptor.STATISTICS.startCollecting();
+    this.esCounter = EsClient.STATISTICS.startCollecting();
+    this.startCpuNanos = currentThreadCpuNanos();
+    this.startAllocatedBytes = currentThreadAllocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  public static StepProfiler start(String name) {
+    return new StepProfiler(name);
+  }
+
+  public StepStatistics stop() {
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    long cpuNanos = currentThreadCpuNanos();
+    long allocatedBytes = currentThreadAllocatedBytes();
+    StatementStatisticsInterceptor.STATISTICS.stopCollecting();
+    EsClient.STATISTICS.stopCollecting();
+    return new StepStatistics(name, durationMs,
+      cpuNanos < 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(cpuNanos - startCpuNanos),
+      allocatedBytes < 0L ? -1L : (allocatedBytes - startAllocatedBytes),
+      sqlCounter.getCount(), sqlCounter.getDurationMs(), esCounter.getCount(), esCounter.getDurationMs());
+  }
+
+  private static long currentThreadCpuNanos() {
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return -1L;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    // allocated bytes are provided only by the HotSpot implementation of ThreadMXBean
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (hotspotBean.isThreadAllocatedMemorySupported() && hotspotBean.isThreadAllocatedMemoryEnabled()) {
+        return hotspotBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1L;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.activity;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Resources consumed by the execution of a {@link org.sonar.server.computation.step.ComputationStep}.
+ * CPU time and allocated bytes are -1 when not supported by the JVM.
+ */
+public class StepStatistics {
+
+  private static final char STEP_SEPARATOR = '|';
+  private static final char FIELD_SEPARATOR = ':';
+
+  private final String name;
+  private final long durationMs;
+  private final long cpuTimeMs;
+  private final long allocatedBytes;
+  private final long sqlCount;
+  private final long sqlTimeMs;
+  private final long esCount;
+  private final long esTimeMs;
+
+  public StepStatistics(String name, long durationMs, long cpuTimeMs, long allocatedBytes, long sqlCount, long sqlTimeMs, long esCount, long esTimeMs) {
+    this.name = name;
+    this.durationMs = durationMs;
+    this.cpuTimeMs = cpuTimeMs;
+    this.allocatedBytes = allocatedBytes;
+    this.sqlCount = sqlCount;
+    this.sqlTimeMs = sqlTimeMs;
+    this.esCount = esCount;
+    this.esTimeMs = esTimeMs;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  public long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getSqlCount() {
+    return sqlCount;
+  }
+
+  public long getSqlTimeMs() {
+    return sqlTimeMs;
+  }
+
+  public long getEsCount() {
+    return esCount;
+  }
+
+  public long getEsTimeMs() {
+    return esTimeMs;
+  }
+
+  /**
+   * Compact text format, compatible with the data of activities (see {@link org.sonar.api.utils.KeyValueFormat}).
+   * Names of steps must not contain the characters '|', ':', ';' and '='.
+   */
+  public static String format(List<StepStatistics> statistics) {
+    List<String> steps = new ArrayList<>(statistics.size());
+    for (StepStatistics step : statistics) {
+      steps.add(Joiner.on(FIELD_SEPARATOR).join(step.name, step.durationMs, step.cpuTimeMs, step.allocatedBytes,
+        step.sqlCount, step.sqlTimeMs, step.esCount, step.esTimeMs));
+    }
+    return Joiner.on(STEP_SEPARATOR).join(steps);
+  }
+
+  public static List<StepStatistics> parse(@Nullable String s) {
+    List<StepStatistics> statistics = new ArrayList<>();
+    if (s != null) {
+      for (String step : Splitter.on(STEP_SEPARATOR).omitEmptyStrings().split(s)) {
+        List<String> fields = Splitter.on(FIELD_SEPARATOR).splitToList(step);
+        statistics.add(new StepStatistics(fields.get(0), Long.parseLong(fields.get(1)), Long.parseLong(fields.get(2)), Long.parseLong(fields.get(3)),
+          Long.parseLong(fields.get(4)), Long.parseLong(fields.get(5)), Long.parseLong(fields.get(6)), Long.parseLong(fields.get(7))));
+      }
+    }
+    return statistics;
+  }
+}
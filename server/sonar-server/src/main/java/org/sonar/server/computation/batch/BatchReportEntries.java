@@ -19,16 +19,22 @@
  */
 package org.sonar.server.computation.batch;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.CheckForNull;
+import org.sonar.batch.protocol.output.FileStructure;
+
+/**
+ * Files of a batch report, named as defined by {@link FileStructure}.
+ */
+public interface BatchReportEntries {
 
-public interface MutableBatchReportDirectoryHolder extends BatchReportDirectoryHolder {
   /**
-   * Sets the File of the directory in the BatchReportDirectoryHolder. Settings a File more than once is allowed but it
-   * can never be set to {@code null}.
+   * Opens the specified file of report. The returned stream must be closed by caller.
    *
-   * @param newDirectory a {@link File}, can not be {@code null}
-   *
-   * @throws NullPointerException if {@code newDirectory} is {@code null}
+   * @return null if the report does not contain this file
    */
-  void setDirectory(File newDirectory);
+  @CheckForNull
+  InputStream open(String name) throws IOException;
+
 }
@@ -19,15 +19,14 @@
  */
 package org.sonar.server.computation.batch;
 
-import java.io.File;
 import org.sonar.server.computation.ReportQueue;
 
-public interface BatchReportDirectoryHolder {
+public interface BatchReportHolder {
   /**
-   * The File of the directory where the Batch report files for the current {@link ReportQueue.Item} are stored.
+   * The files of the Batch report of the current {@link ReportQueue.Item}.
    *
-   * @throws IllegalStateException if the holder is empty (ie. there is no directory yet)
+   * @throws IllegalStateException if the holder is empty (ie. the report is not opened yet)
    */
-  File getDirectory();
+  BatchReportEntries getReport();
 
 }
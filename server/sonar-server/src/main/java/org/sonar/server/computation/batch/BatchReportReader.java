@@ -19,9 +19,11 @@
  */
 package org.sonar.server.computation.batch;
 
+import java.io.InputStream;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.FileStructure;
 import org.sonar.server.util.CloseableIterator;
 
 public interface BatchReportReader {
@@ -54,4 +56,13 @@ public interface BatchReportReader {
   CloseableIterator<BatchReport.Test> readTests(int testFileRef);
 
   CloseableIterator<BatchReport.CoverageDetail> readCoverageDetails(int testFileRef);
+
+  /**
+   * Raw content of a file of report, for example to compute its checksum without parsing it. The stream
+   * must be closed by caller.
+   *
+   * @return null if the report does not contain the file
+   */
+  @CheckForNull
+  InputStream readRawFile(FileStructure.Domain domain, int componentRef);
 }
@@ -21,118 +21,133 @@ package org.sonar.server.computation.batch;
 
 import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.FileStructure;
 import org.sonar.server.util.CloseableIterator;
 
+import static org.sonar.batch.protocol.output.FileStructure.fileNameFor;
+
+/**
+ * Reads the files of report directly from {@link BatchReportHolder}, for example from zip entries, so that
+ * the report does not need to be extracted.
+ */
 public class BatchReportReaderImpl implements BatchReportReader {
-  private final org.sonar.batch.protocol.output.BatchReportReader delegate;
+  private final BatchReportHolder batchReportHolder;
   // caching of metadata which are read often
   private BatchReport.Metadata metadata;
 
-  public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
-    this.delegate = new org.sonar.batch.protocol.output.BatchReportReader(batchReportDirectoryHolder.getDirectory());
+  public BatchReportReaderImpl(BatchReportHolder batchReportHolder) {
+    this.batchReportHolder = batchReportHolder;
   }
 
   @Override
   public BatchReport.Metadata readMetadata() {
     if (this.metadata == null) {
-      this.metadata = delegate.readMetadata();
+      BatchReport.Metadata res = readMessage(FileStructure.METADATA_FILE_NAME, BatchReport.Metadata.PARSER);
+      if (res == null) {
+        throw new IllegalStateException("Metadata file is missing in analysis report: " + batchReportHolder.getReport());
+      }
+      this.metadata = res;
     }
     return this.metadata;
   }
 
   @Override
   public List<BatchReport.Measure> readComponentMeasures(int componentRef) {
-    return delegate.readComponentMeasures(componentRef);
+    // all the measures are loaded in memory
+    BatchReport.Measures measures = readMessage(fileNameFor(FileStructure.Domain.MEASURES, componentRef), BatchReport.Measures.PARSER);
+    if (measures == null) {
+      return Collections.emptyList();
+    }
+    return measures.getMeasureList();
   }
 
   @Override
   @CheckForNull
   public BatchReport.Changesets readChangesets(int componentRef) {
-    return delegate.readChangesets(componentRef);
+    return readMessage(fileNameFor(FileStructure.Domain.CHANGESETS, componentRef), BatchReport.Changesets.PARSER);
   }
 
   @Override
   public BatchReport.Component readComponent(int componentRef) {
-    return delegate.readComponent(componentRef);
+    String name = fileNameFor(FileStructure.Domain.COMPONENT, componentRef);
+    BatchReport.Component component = readMessage(name, BatchReport.Component.PARSER);
+    if (component == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + name);
+    }
+    return component;
   }
 
   @Override
   public List<BatchReport.Issue> readComponentIssues(int componentRef) {
-    return delegate.readComponentIssues(componentRef);
+    // all the issues are loaded in memory
+    BatchReport.Issues issues = readMessage(fileNameFor(FileStructure.Domain.ISSUES, componentRef), BatchReport.Issues.PARSER);
+    if (issues == null) {
+      return Collections.emptyList();
+    }
+    return issues.getIssueList();
   }
 
   @Override
   public BatchReport.Issues readDeletedComponentIssues(int deletedComponentRef) {
-    return delegate.readDeletedComponentIssues(deletedComponentRef);
+    // all the issues are loaded in memory
+    BatchReport.Issues issues = readMessage(fileNameFor(FileStructure.Domain.ISSUES_ON_DELETED, deletedComponentRef), BatchReport.Issues.PARSER);
+    if (issues == null) {
+      throw new IllegalStateException("Unable to find report for deleted component #" + deletedComponentRef);
+    }
+    return issues;
   }
 
   @Override
   public List<BatchReport.Duplication> readComponentDuplications(int componentRef) {
-    return delegate.readComponentDuplications(componentRef);
+    // all the duplications are loaded in memory
+    BatchReport.Duplications duplications = readMessage(fileNameFor(FileStructure.Domain.DUPLICATIONS, componentRef), BatchReport.Duplications.PARSER);
+    if (duplications == null) {
+      return Collections.emptyList();
+    }
+    return duplications.getDuplicationList();
   }
 
   @Override
   public List<BatchReport.Symbols.Symbol> readComponentSymbols(int componentRef) {
-    return delegate.readComponentSymbols(componentRef);
+    // all the symbols are loaded in memory
+    BatchReport.Symbols symbols = readMessage(fileNameFor(FileStructure.Domain.SYMBOLS, componentRef), BatchReport.Symbols.PARSER);
+    if (symbols == null) {
+      return Collections.emptyList();
+    }
+    return symbols.getSymbolList();
   }
 
   @Override
-  @CheckForNull
   public CloseableIterator<BatchReport.SyntaxHighlighting> readComponentSyntaxHighlighting(int fileRef) {
-    File file = delegate.readComponentSyntaxHighlighting(fileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(BatchReport.SyntaxHighlighting.PARSER, FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readMessages(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef), BatchReport.SyntaxHighlighting.PARSER);
   }
 
   @Override
   public CloseableIterator<BatchReport.Coverage> readComponentCoverage(int fileRef) {
-    File file = delegate.readComponentCoverage(fileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(BatchReport.Coverage.PARSER, FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readMessages(fileNameFor(FileStructure.Domain.COVERAGES, fileRef), BatchReport.Coverage.PARSER);
   }
 
   @Override
   public CloseableIterator<String> readFileSource(int fileRef) {
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
-      throw new IllegalStateException("Unable to find source for file #" + fileRef);
-    }
-
-    try {
-      return new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8));
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    String name = fileNameFor(FileStructure.Domain.SOURCE, fileRef);
+    InputStream input = open(name);
+    if (input == null) {
+      throw new IllegalStateException("Unable to find source for file #" + fileRef + ". File does not exist: " + name);
     }
+    return new CloseableLineIterator(IOUtils.lineIterator(input, StandardCharsets.UTF_8));
   }
 
   private static class CloseableLineIterator extends CloseableIterator<String> {
@@ -166,49 +181,66 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   @Override
   public CloseableIterator<BatchReport.Test> readTests(int testFileRef) {
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readMessages(fileNameFor(FileStructure.Domain.TESTS, testFileRef), BatchReport.Test.PARSER);
+  }
+
+  @Override
+  public CloseableIterator<BatchReport.CoverageDetail> readCoverageDetails(int testFileRef) {
+    return readMessages(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef), BatchReport.CoverageDetail.PARSER);
+  }
+
+  @Override
+  @CheckForNull
+  public InputStream readRawFile(FileStructure.Domain domain, int componentRef) {
+    return open(fileNameFor(domain, componentRef));
+  }
 
+  @CheckForNull
+  private InputStream open(String name) {
     try {
-      return new ParserCloseableIterator<>(BatchReport.Test.PARSER, FileUtils.openInputStream(file));
+      InputStream input = batchReportHolder.getReport().open(name);
+      return input == null ? null : new BufferedInputStream(input);
     } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
+      throw new IllegalStateException("Fail to open file " + name + " of analysis report", e);
     }
   }
 
-  @Override
-  public CloseableIterator<BatchReport.CoverageDetail> readCoverageDetails(int testFileRef) {
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
+  @CheckForNull
+  private <T extends Message> T readMessage(String name, Parser<T> parser) {
+    InputStream input = open(name);
+    if (input == null) {
+      return null;
     }
-
     try {
-      return new ParserCloseableIterator<>(BatchReport.CoverageDetail.PARSER, FileUtils.openInputStream(file));
+      return parser.parseFrom(input);
     } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+      throw new IllegalStateException("Failed to read file " + name + " of analysis report", e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private <T> CloseableIterator<T> readMessages(String name, Parser<T> parser) {
+    InputStream input = open(name);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(parser, input);
   }
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -218,7 +250,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
     }
   }
 }
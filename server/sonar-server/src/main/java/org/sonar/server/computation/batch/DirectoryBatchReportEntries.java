@@ -20,23 +20,35 @@
 package org.sonar.server.computation.batch;
 
 import java.io.File;
-import org.junit.Test;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.CheckForNull;
 
-import static org.assertj.core.api.Assertions.assertThat;
+import static java.util.Objects.requireNonNull;
 
-public class BatchReportDirectoryHolderImplTest {
+/**
+ * Files of a batch report extracted to a directory
+ */
+public class DirectoryBatchReportEntries implements BatchReportEntries {
+  private final File directory;
 
-  @Test(expected = IllegalStateException.class)
-  public void getDirectory_throws_ISE_if_holder_is_empty() {
-    new BatchReportDirectoryHolderImpl().getDirectory();
+  public DirectoryBatchReportEntries(File directory) {
+    this.directory = requireNonNull(directory);
   }
 
-  @Test
-  public void getDirectory_returns_File_set_with_setDirectory() {
-    File file = new File("");
-    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
-    holder.setDirectory(file);
+  @Override
+  @CheckForNull
+  public InputStream open(String name) throws IOException {
+    File file = new File(directory, name);
+    if (file.exists() && file.isFile()) {
+      return new FileInputStream(file);
+    }
+    return null;
+  }
 
-    assertThat(holder.getDirectory()).isSameAs(file);
+  @Override
+  public String toString() {
+    return directory.getAbsolutePath();
   }
 }
@@ -19,18 +19,13 @@
  */
 package org.sonar.server.computation.batch;
 
-import java.io.File;
-import java.util.Objects;
+public interface MutableBatchReportHolder extends BatchReportHolder {
 
-public class ImmutableBatchReportDirectoryHolder implements BatchReportDirectoryHolder {
-  private final File directory;
-
-  public ImmutableBatchReportDirectoryHolder(File directory) {
-    this.directory = Objects.requireNonNull(directory);
-  }
-
-  @Override
-  public File getDirectory() {
-    return directory;
-  }
+  /**
+   * Sets the files of the Batch report. If the instance is {@link java.io.Closeable}, it is closed
+   * when the holder is stopped.
+   *
+   * @throws NullPointerException if {@code report} is {@code null}
+   */
+  void setReport(BatchReportEntries report);
 }
@@ -0,0 +1,129 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation.component;
+
+import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.sonar.api.config.Settings;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of {@link DepthTraversalTypeAwareVisitor} which visits the components of type {@link Component.Type#FILE}
+ * concurrently in a {@link ForkJoinPool}. The other components are visited in the calling thread, in the same
+ * order as {@link DepthTraversalTypeAwareVisitor}:
+ * <ul>
+ *   <li>in pre-order, a project, module or directory is visited before its files are submitted</li>
+ *   <li>in post-order, a project, module or directory is visited once all the files of its sub-tree are visited</li>
+ * </ul>
+ * <p>
+ * {@link #visitAny(Component)} and {@link #visitFile(Component)} must be thread-safe when called on files. For example
+ * files must not share the same {@link org.sonar.core.persistence.DbSession}.
+ * </p>
+ */
+public abstract class ParallelDepthTraversalTypeAwareVisitor extends DepthTraversalTypeAwareVisitor {
+
+  /**
+   * Maximum number of files visited concurrently by a step. Default is the number of available processors.
+   */
+  public static final String PARALLELISM_PROPERTY = "sonar.computationEngine.fileParallelism";
+
+  private final Order order;
+  private final int parallelism;
+  private final List<Future<?>> pendingFiles = new ArrayList<>();
+  private ForkJoinPool pool;
+
+  protected ParallelDepthTraversalTypeAwareVisitor(Component.Type maxDepth, Order order, int parallelism) {
+    super(maxDepth, order);
+    checkArgument(parallelism > 0, "Parallelism must be strictly positive");
+    this.order = requireNonNull(order);
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void visit(Component component) {
+    if (pool != null) {
+      // visit of a child
+      super.visit(component);
+      return;
+    }
+
+    pool = new ForkJoinPool(parallelism);
+    try {
+      super.visit(component);
+      awaitFiles();
+    } finally {
+      pool.shutdownNow();
+      pool = null;
+      pendingFiles.clear();
+    }
+  }
+
+  @Override
+  protected void visitNode(final Component component) {
+    if (component.getType() == Component.Type.FILE) {
+      pendingFiles.add(pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          visitFileNode(component);
+        }
+      }));
+    } else {
+      if (order == Order.POST_ORDER) {
+        awaitFiles();
+      }
+      super.visitNode(component);
+    }
+  }
+
+  public static int parallelism(Settings settings) {
+    if (settings.hasKey(PARALLELISM_PROPERTY)) {
+      int parallelism = settings.getInt(PARALLELISM_PROPERTY);
+      checkArgument(parallelism > 0, "Bad value of %s: %s", PARALLELISM_PROPERTY, parallelism);
+      return parallelism;
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  private void visitFileNode(Component file) {
+    super.visitNode(file);
+  }
+
+  private void awaitFiles() {
+    try {
+      for (Future<?> pendingFile : pendingFiles) {
+        pendingFile.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while visiting files", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      pendingFiles.clear();
+    }
+  }
+}
@@ -36,6 +36,8 @@ import static org.sonar.core.computation.db.AnalysisReportDto.Status.WORKING;
 
 public class AnalysisReportDao implements DaoComponent {
 
+  private static final int MAX_POP_ATTEMPTS = 5;
+
   private System2 system2;
 
   public AnalysisReportDao(System2 system2) {
@@ -62,15 +64,26 @@ public class AnalysisReportDao implements DaoComponent {
     return mapper(session).selectById(id);
   }
 
+  /**
+   * Books the oldest pending report of a project which has no report being processed.
+   * As several workers can compete for the same report, the available reports are looked up
+   * again when booking fails, so that the other reports of the project just booked by
+   * another worker are excluded and the order of reports of a project is kept.
+   */
   @CheckForNull
   public AnalysisReportDto pop(DbSession session) {
-    List<Long> reportIds = mapper(session).selectAvailables(PENDING, WORKING);
-    if (reportIds.isEmpty()) {
-      return null;
+    for (int attempt = 0; attempt < MAX_POP_ATTEMPTS; attempt++) {
+      List<Long> reportIds = mapper(session).selectAvailables(PENDING, WORKING);
+      if (reportIds.isEmpty()) {
+        return null;
+      }
+
+      AnalysisReportDto report = tryToPop(session, reportIds.get(0));
+      if (report != null) {
+        return report;
+      }
     }
-
-    long reportId = reportIds.get(0);
-    return tryToPop(session, reportId);
+    return null;
   }
 
   @VisibleForTesting
@@ -30,16 +30,18 @@ import java.io.IOException;
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
- *
+ * <p/>
+ * Issues are encoded with {@link DefaultIssueCodec}. Data is not compressed, as the file is
+ * short-lived and written/read once per analysis.
  */
 public class IssueCache extends DiskCache<DefaultIssue> {
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) throws IOException {
-    super(tempFolder.newFile("issues", ".dat"), system2);
+    this(tempFolder.newFile("issues", ".dat"), system2);
   }
 
   public IssueCache(File file, System2 system2) {
-    super(file, system2);
+    super(file, new DefaultIssueCodec(), false, system2);
   }
 }
@@ -0,0 +1,107 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.core.measure.db.MeasureDto;
+
+/**
+ * Measures of the previous analysis, stored by component ref and metric id. The measures of a component are
+ * kept in two arrays sorted by metric id, so that no object is created per measure besides the {@link MeasureDto}.
+ * <p>
+ * Measures must all be added before the first call to {@link #get(int, int)}.
+ * </p>
+ */
+final class BaseMeasureDtos {
+  private final Map<Integer, ComponentMeasureDtos> byComponentRef = new HashMap<>();
+  private boolean sorted = false;
+
+  void add(int componentRef, MeasureDto measureDto) {
+    ComponentMeasureDtos measureDtos = byComponentRef.get(componentRef);
+    if (measureDtos == null) {
+      measureDtos = new ComponentMeasureDtos();
+      byComponentRef.put(componentRef, measureDtos);
+    }
+    measureDtos.add(measureDto.getMetricId(), measureDto);
+    sorted = false;
+  }
+
+  @CheckForNull
+  MeasureDto get(int componentRef, int metricId) {
+    if (!sorted) {
+      for (ComponentMeasureDtos measureDtos : byComponentRef.values()) {
+        measureDtos.sort();
+      }
+      sorted = true;
+    }
+    ComponentMeasureDtos measureDtos = byComponentRef.get(componentRef);
+    return measureDtos == null ? null : measureDtos.get(metricId);
+  }
+
+  int size() {
+    int size = 0;
+    for (ComponentMeasureDtos measureDtos : byComponentRef.values()) {
+      size += measureDtos.size;
+    }
+    return size;
+  }
+
+  private static final class ComponentMeasureDtos {
+    private int size = 0;
+    private int[] metricIds = new int[8];
+    private MeasureDto[] measureDtos = new MeasureDto[8];
+
+    void add(int metricId, MeasureDto measureDto) {
+      if (size == metricIds.length) {
+        metricIds = Arrays.copyOf(metricIds, size * 2);
+        measureDtos = Arrays.copyOf(measureDtos, size * 2);
+      }
+      metricIds[size] = metricId;
+      measureDtos[size] = measureDto;
+      size++;
+    }
+
+    void sort() {
+      // sort metric ids and positions together, then trim arrays
+      long[] metricIdAndPositions = new long[size];
+      for (int i = 0; i < size; i++) {
+        metricIdAndPositions[i] = ((long) metricIds[i] << 32) | i;
+      }
+      Arrays.sort(metricIdAndPositions);
+      int[] sortedMetricIds = new int[size];
+      MeasureDto[] sortedMeasureDtos = new MeasureDto[size];
+      for (int i = 0; i < size; i++) {
+        sortedMetricIds[i] = (int) (metricIdAndPositions[i] >>> 32);
+        sortedMeasureDtos[i] = measureDtos[(int) metricIdAndPositions[i]];
+      }
+      this.metricIds = sortedMetricIds;
+      this.measureDtos = sortedMeasureDtos;
+    }
+
+    @CheckForNull
+    MeasureDto get(int metricId) {
+      int index = Arrays.binarySearch(metricIds, 0, size, metricId);
+      return index < 0 ? null : measureDtos[index];
+    }
+  }
+}
@@ -20,21 +20,22 @@
 package org.sonar.server.computation.measure;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.Immutable;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.measure.db.MeasureDto;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.rule.RuleDto;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.DepthTraversalTypeAwareVisitor;
+import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.debt.Characteristic;
 import org.sonar.server.computation.issue.RuleCache;
 import org.sonar.server.computation.metric.Metric;
@@ -44,20 +45,25 @@ import org.sonar.server.db.DbClient;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.component.DepthTraversalTypeAwareVisitor.Order.PRE_ORDER;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
+  private final TreeRootHolder treeRootHolder;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
   private final MeasureDtoToMeasure measureDtoToMeasure = new MeasureDtoToMeasure();
-  private final Set<Integer> loadedComponents = new HashSet<>();
-  private final Map<Integer, Map<MeasureKey, Measure>> measures = new HashMap<>();
+  private final BitSet loadedComponents = new BitSet();
+  private final RawMeasureStore measures = new RawMeasureStore();
+  @CheckForNull
+  private BaseMeasureDtos baseMeasureDtos;
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader,
+  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, TreeRootHolder treeRootHolder,
     final MetricRepository metricRepository, final RuleCache ruleCache) {
     this.dbClient = dbClient;
     this.reportReader = reportReader;
+    this.treeRootHolder = treeRootHolder;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure(ruleCache);
     this.metricRepository = metricRepository;
   }
@@ -68,10 +74,58 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     requireNonNull(metric);
 
+    if (component.getType() == Component.Type.FILE) {
+      return measureDtoToMeasure.toMeasure(loadMeasureDto(component, metric), metric);
+    }
+
+    if (baseMeasureDtos == null) {
+      baseMeasureDtos = loadBaseMeasureDtos();
+    }
+    MeasureDto measureDto = baseMeasureDtos.get(component.getRef(), metric.getId());
+    if (measureDto != null && measureDto.getData() == null && metric.getType().getValueType() == Measure.ValueType.STRING) {
+      // data too large for column text_value is not bulk loaded
+      measureDto = loadMeasureDto(component, metric);
+    }
+    return measureDtoToMeasure.toMeasure(measureDto, metric);
+  }
+
+  @CheckForNull
+  private MeasureDto loadMeasureDto(Component component, Metric metric) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.measureDao().findByComponentKeyAndMetricKey(dbSession, component.getKey(), metric.getKey());
+    }
+  }
+
+  /**
+   * Base measures of the project, modules and directories of the tree are loaded at once, with a single streamed query,
+   * instead of one query per component and metric. Measures of files, which are much more numerous, are
+   * loaded on demand.
+   */
+  private BaseMeasureDtos loadBaseMeasureDtos() {
+    Component root = treeRootHolder.getRoot();
+    final Map<String, Integer> refsByKey = new HashMap<>();
+    new DepthTraversalTypeAwareVisitor(Component.Type.DIRECTORY, PRE_ORDER) {
+      @Override
+      public void visitAny(Component component) {
+        refsByKey.put(component.getKey(), component.getRef());
+      }
+    }.visit(root);
+
+    final BaseMeasureDtos res = new BaseMeasureDtos();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      MeasureDto measureDto = dbClient.measureDao().findByComponentKeyAndMetricKey(dbSession, component.getKey(), metric.getKey());
-      return measureDtoToMeasure.toMeasure(measureDto, metric);
+      dbClient.measureDao().selectLastMeasuresByProjectUuid(dbSession, root.getUuid(), new ResultHandler() {
+        @Override
+        public void handleResult(ResultContext context) {
+          MeasureDto measureDto = (MeasureDto) context.getResultObject();
+          Integer ref = refsByKey.get(measureDto.getComponentKey());
+          // components which are not in the report anymore are ignored
+          if (ref != null) {
+            res.add(ref, measureDto);
+          }
+        }
+      });
     }
+    return res;
   }
 
   @Override
@@ -115,8 +169,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     checkValueTypeConsistency(metric, measure);
 
-    Optional<Measure> existingMeasure = findLocal(component, metric, measure);
-    if (existingMeasure.isPresent()) {
+    if (measures.contains(component.getRef(), metric.getKey(), measure)) {
       throw new UnsupportedOperationException(
         format(
           "a measure can be set only once for a specific Component (ref=%s), Metric (key=%s)%s. Use update method",
@@ -133,8 +186,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     checkValueTypeConsistency(metric, measure);
 
-    Optional<Measure> existingMeasure = findLocal(component, metric, measure);
-    if (!existingMeasure.isPresent()) {
+    if (!measures.contains(component.getRef(), metric.getKey(), measure)) {
       throw new UnsupportedOperationException(
         format(
           "a measure can be updated only if one already exists for a specific Component (ref=%s), Metric (key=%s)%s. Use add method",
@@ -167,20 +219,11 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   @Override
   public SetMultimap<String, Measure> getRawMeasures(Component component) {
     loadBatchMeasuresForComponent(component);
-    Map<MeasureKey, Measure> rawMeasures = measures.get(component.getRef());
-    if (rawMeasures == null) {
-      return ImmutableSetMultimap.of();
-    }
-
-    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
-    for (Map.Entry<MeasureKey, Measure> entry : rawMeasures.entrySet()) {
-      builder.put(entry.getKey().metricKey, entry.getValue());
-    }
-    return builder.build();
+    return measures.getAll(component.getRef());
   }
 
   private void loadBatchMeasuresForComponent(Component component) {
-    if (loadedComponents.contains(component.getRef())) {
+    if (loadedComponents.get(component.getRef())) {
       return;
     }
 
@@ -188,90 +231,22 @@ public class MeasureRepositoryImpl implements MeasureRepository {
       Metric metric = metricRepository.getByKey(batchMeasure.getMetricKey());
       addLocal(component, metric, batchMeasureToMeasure.toMeasure(batchMeasure, metric).get(), OverridePolicy.DO_NOT_OVERRIDE);
     }
-    loadedComponents.add(component.getRef());
+    loadedComponents.set(component.getRef());
   }
 
   private Optional<Measure> findLocal(Component component, Metric metric,
     @Nullable RuleDto rule, @Nullable Characteristic characteristic) {
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(component.getRef());
-    if (measuresPerMetric == null) {
-      return Optional.absent();
-    }
-    return Optional.fromNullable(measuresPerMetric.get(new MeasureKey(metric.getKey(), rule, characteristic)));
-  }
-
-  private Optional<Measure> findLocal(Component component, Metric metric, Measure measure) {
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(component.getRef());
-    if (measuresPerMetric == null) {
-      return Optional.absent();
-    }
-    return Optional.fromNullable(measuresPerMetric.get(new MeasureKey(metric.getKey(), measure.getRuleId(), measure.getCharacteristicId())));
+    return Optional.fromNullable(measures.get(component.getRef(), metric.getKey(),
+      rule == null ? null : rule.getId(), characteristic == null ? null : characteristic.getId()));
   }
 
   private void addLocal(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(component.getRef());
-    if (measuresPerMetric == null) {
-      measuresPerMetric = new HashMap<>();
-      measures.put(component.getRef(), measuresPerMetric);
-    }
-    MeasureKey key = new MeasureKey(metric.getKey(), measure.getRuleId(), measure.getCharacteristicId());
-    if (!measuresPerMetric.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
-      measuresPerMetric.put(key, measure);
+    if (overridePolicy == OverridePolicy.OVERRIDE || !measures.contains(component.getRef(), metric.getKey(), measure)) {
+      measures.put(component.getRef(), metric.getKey(), measure);
     }
   }
 
   private enum OverridePolicy {
     OVERRIDE, DO_NOT_OVERRIDE
   }
-
-  @Immutable
-  private static final class MeasureKey {
-    private static final int DEFAULT_INT_VALUE = -6253;
-
-    private final String metricKey;
-    private final int ruleId;
-    private final int characteristicId;
-
-    public MeasureKey(String metricKey, @Nullable Integer ruleId, @Nullable Integer characteristicId) {
-      // defensive code in case we badly chose the default value, we want to know it right away!
-      checkArgument(ruleId == null || ruleId != DEFAULT_INT_VALUE, "Unsupported rule id");
-      checkArgument(characteristicId == null || characteristicId != DEFAULT_INT_VALUE, "Unsupported characteristic id");
-
-      this.metricKey = requireNonNull(metricKey, "MetricKey can not be null");
-      this.ruleId = ruleId == null ? DEFAULT_INT_VALUE : ruleId;
-      this.characteristicId = characteristicId == null ? DEFAULT_INT_VALUE : characteristicId;
-    }
-
-    public MeasureKey(String key, @Nullable RuleDto rule, @Nullable Characteristic characteristic) {
-      this(key, rule == null ? null : rule.getId(), characteristic == null ? null : characteristic.getId());
-    }
-
-    @Override
-    public boolean equals(@Nullable Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      MeasureKey that = (MeasureKey) o;
-      return metricKey.equals(that.metricKey)
-        && ruleId == that.ruleId
-        && characteristicId == that.characteristicId;
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(metricKey, ruleId, characteristicId);
-    }
-
-    @Override
-    public String toString() {
-      return com.google.common.base.Objects.toStringHelper(this)
-        .add("metricKey", metricKey)
-        .add("ruleId", ruleId)
-        .add("characteristicId", characteristicId)
-        .toString();
-    }
-  }
 }
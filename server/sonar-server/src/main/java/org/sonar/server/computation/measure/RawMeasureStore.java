@@ -0,0 +1,251 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Storage of the raw measures of {@link MeasureRepositoryImpl}, designed to limit the number of objects kept in memory.
+ * <p>
+ * Measures are stored by metric, in columns indexed by component ref. Numeric measures (and measures without value)
+ * which have no data, description nor quality gate status, are stored as primitives, including their variations, and
+ * are rebuilt on read. Other measures, and measures associated to a rule or a characteristic, are stored as
+ * {@link Measure} objects in side tables.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class RawMeasureStore {
+  private static final int VARIATION_COUNT = 5;
+
+  private final Map<String, MetricColumn> columnsByMetricKey = new HashMap<>();
+  private final Map<Integer, Map<MeasureKey, Measure>> scopedMeasuresByComponentRef = new HashMap<>();
+
+  @CheckForNull
+  Measure get(int componentRef, String metricKey, @Nullable Integer ruleId, @Nullable Integer characteristicId) {
+    if (ruleId != null || characteristicId != null) {
+      Map<MeasureKey, Measure> scopedMeasures = scopedMeasuresByComponentRef.get(componentRef);
+      return scopedMeasures == null ? null : scopedMeasures.get(new MeasureKey(metricKey, ruleId, characteristicId));
+    }
+    MetricColumn column = columnsByMetricKey.get(metricKey);
+    return column == null ? null : column.get(componentRef);
+  }
+
+  boolean contains(int componentRef, String metricKey, Measure measure) {
+    if (measure.getRuleId() != null || measure.getCharacteristicId() != null) {
+      return get(componentRef, metricKey, measure.getRuleId(), measure.getCharacteristicId()) != null;
+    }
+    MetricColumn column = columnsByMetricKey.get(metricKey);
+    return column != null && column.contains(componentRef);
+  }
+
+  void put(int componentRef, String metricKey, Measure measure) {
+    if (measure.getRuleId() != null || measure.getCharacteristicId() != null) {
+      Map<MeasureKey, Measure> scopedMeasures = scopedMeasuresByComponentRef.get(componentRef);
+      if (scopedMeasures == null) {
+        scopedMeasures = new HashMap<>();
+        scopedMeasuresByComponentRef.put(componentRef, scopedMeasures);
+      }
+      scopedMeasures.put(new MeasureKey(metricKey, measure.getRuleId(), measure.getCharacteristicId()), measure);
+      return;
+    }
+    MetricColumn column = columnsByMetricKey.get(metricKey);
+    if (column == null) {
+      column = new MetricColumn();
+      columnsByMetricKey.put(metricKey, column);
+    }
+    column.put(componentRef, measure);
+  }
+
+  SetMultimap<String, Measure> getAll(int componentRef) {
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (Map.Entry<String, MetricColumn> entry : columnsByMetricKey.entrySet()) {
+      Measure measure = entry.getValue().get(componentRef);
+      if (measure != null) {
+        builder.put(entry.getKey(), measure);
+      }
+    }
+    Map<MeasureKey, Measure> scopedMeasures = scopedMeasuresByComponentRef.get(componentRef);
+    if (scopedMeasures != null) {
+      for (Map.Entry<MeasureKey, Measure> entry : scopedMeasures.entrySet()) {
+        builder.put(entry.getKey().getMetricKey(), entry.getValue());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Measures of a metric which are not associated to a rule nor a characteristic
+   */
+  private static final class MetricColumn {
+    // 0 means that there is no primitive measure, otherwise 1 + ordinal of Measure.ValueType
+    private byte[] valueTypes = new byte[0];
+    private double[] values = new double[0];
+    // allocated only when at least one measure has variations. Double.NaN means no variation.
+    @CheckForNull
+    private double[][] variations;
+    private final Map<Integer, Measure> otherMeasures = new HashMap<>();
+
+    boolean contains(int ref) {
+      return (ref < valueTypes.length && valueTypes[ref] != 0) || otherMeasures.containsKey(ref);
+    }
+
+    @CheckForNull
+    Measure get(int ref) {
+      if (ref >= valueTypes.length || valueTypes[ref] == 0) {
+        return otherMeasures.get(ref);
+      }
+      Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder();
+      MeasureVariations measureVariations = getVariations(ref);
+      if (measureVariations != null) {
+        builder.setVariations(measureVariations);
+      }
+      double value = values[ref];
+      Measure.ValueType valueType = Measure.ValueType.values()[valueTypes[ref] - 1];
+      switch (valueType) {
+        case INT:
+          return builder.create((int) value);
+        case LONG:
+          return builder.create((long) value);
+        case DOUBLE:
+          return builder.create(value);
+        case BOOLEAN:
+          return builder.create(value == 1.0d);
+        case NO_VALUE:
+          return builder.createNoValue();
+        default:
+          throw new IllegalStateException("Unsupported primitive Measure.ValueType " + valueType);
+      }
+    }
+
+    void put(int ref, Measure measure) {
+      if (isPrimitive(measure)) {
+        ensureCapacity(ref);
+        otherMeasures.remove(ref);
+        valueTypes[ref] = (byte) (measure.getValueType().ordinal() + 1);
+        values[ref] = primitiveValue(measure);
+        putVariations(ref, measure);
+      } else {
+        if (ref < valueTypes.length) {
+          valueTypes[ref] = 0;
+        }
+        otherMeasures.put(ref, measure);
+      }
+    }
+
+    private static boolean isPrimitive(Measure measure) {
+      if (measure.getData() != null || measure.getDescription() != null || measure.hasQualityGateStatus()) {
+        return false;
+      }
+      switch (measure.getValueType()) {
+        case INT:
+        case LONG:
+        case DOUBLE:
+        case BOOLEAN:
+        case NO_VALUE:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private static double primitiveValue(Measure measure) {
+      switch (measure.getValueType()) {
+        case INT:
+          return measure.getIntValue();
+        case LONG:
+          return measure.getLongValue();
+        case DOUBLE:
+          return measure.getDoubleValue();
+        case BOOLEAN:
+          return measure.getBooleanValue() ? 1.0d : 0.0d;
+        default:
+          return 0.0d;
+      }
+    }
+
+    private void putVariations(int ref, Measure measure) {
+      if (!measure.hasVariations()) {
+        if (variations != null) {
+          for (double[] variation : variations) {
+            variation[ref] = Double.NaN;
+          }
+        }
+        return;
+      }
+      if (variations == null) {
+        variations = new double[VARIATION_COUNT][];
+        for (int i = 0; i < VARIATION_COUNT; i++) {
+          variations[i] = newNaNArray(valueTypes.length);
+        }
+      }
+      MeasureVariations measureVariations = measure.getVariations();
+      for (int i = 0; i < VARIATION_COUNT; i++) {
+        variations[i][ref] = measureVariations.hasVariation(i + 1) ? measureVariations.getVariation(i + 1) : Double.NaN;
+      }
+    }
+
+    @CheckForNull
+    private MeasureVariations getVariations(int ref) {
+      if (variations == null) {
+        return null;
+      }
+      Double[] res = new Double[VARIATION_COUNT];
+      boolean hasVariation = false;
+      for (int i = 0; i < VARIATION_COUNT; i++) {
+        double variation = variations[i][ref];
+        if (!Double.isNaN(variation)) {
+          res[i] = variation;
+          hasVariation = true;
+        }
+      }
+      return hasVariation ? new MeasureVariations(res) : null;
+    }
+
+    private void ensureCapacity(int ref) {
+      if (ref < valueTypes.length) {
+        return;
+      }
+      int newLength = Math.max(ref + 1, valueTypes.length + (valueTypes.length >> 1));
+      valueTypes = Arrays.copyOf(valueTypes, newLength);
+      values = Arrays.copyOf(values, newLength);
+      if (variations != null) {
+        for (int i = 0; i < VARIATION_COUNT; i++) {
+          int oldLength = variations[i].length;
+          variations[i] = Arrays.copyOf(variations[i], newLength);
+          Arrays.fill(variations[i], oldLength, newLength, Double.NaN);
+        }
+      }
+    }
+
+    private static double[] newNaNArray(int length) {
+      double[] res = new double[length];
+      Arrays.fill(res, Double.NaN);
+      return res;
+    }
+  }
+}
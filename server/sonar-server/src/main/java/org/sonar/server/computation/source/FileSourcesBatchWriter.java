@@ -0,0 +1,116 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.source;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.core.persistence.DbSession;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.source.db.FileSourceDto;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.util.ProgressLogger;
+
+/**
+ * Writes rows of table FILE_SOURCES through JDBC batches. As the binary data of a file can be big, the batch
+ * is flushed as soon as the accumulated data reaches a size threshold, rather than a number of rows, so that
+ * memory stays bounded.
+ * <p/>
+ * This class is thread-safe, so that the files processed concurrently can share the same writer. It must be
+ * closed in order to flush the remaining rows.
+ */
+public class FileSourcesBatchWriter implements AutoCloseable {
+
+  public static final long DEFAULT_MAX_BATCH_BYTES = 16L * 1024 * 1024;
+
+  private final DbClient dbClient;
+  private final DbSession session;
+  private final long maxBatchBytes;
+  private final AtomicLong flushedRows = new AtomicLong(0L);
+  private final ProgressLogger progress;
+
+  private long batchBytes = 0L;
+  private int batchRows = 0;
+
+  public FileSourcesBatchWriter(DbClient dbClient) {
+    this(dbClient, DEFAULT_MAX_BATCH_BYTES);
+  }
+
+  public FileSourcesBatchWriter(DbClient dbClient, long maxBatchBytes) {
+    this.dbClient = dbClient;
+    this.maxBatchBytes = maxBatchBytes;
+    this.session = dbClient.openSession(true);
+    this.progress = ProgressLogger.create(FileSourcesBatchWriter.class, flushedRows).setPluralLabel("file sources");
+    this.progress.start();
+  }
+
+  public synchronized void insert(FileSourceDto dto) {
+    dbClient.fileSourceDao().insert(session, dto);
+    add(dto);
+  }
+
+  public synchronized void update(FileSourceDto dto) {
+    dbClient.fileSourceDao().update(session, dto);
+    add(dto);
+  }
+
+  private void add(FileSourceDto dto) {
+    batchRows++;
+    batchBytes += sizeOf(dto);
+    if (batchBytes >= maxBatchBytes) {
+      flush();
+    }
+  }
+
+  public synchronized void flush() {
+    if (batchRows > 0) {
+      session.commit();
+      flushedRows.addAndGet(batchRows);
+      batchRows = 0;
+      batchBytes = 0L;
+    }
+  }
+
+  public long getFlushedRows() {
+    return flushedRows.get();
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      flush();
+    } finally {
+      progress.stop();
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  private static long sizeOf(FileSourceDto dto) {
+    long size = 0L;
+    byte[] binaryData = dto.getBinaryData();
+    if (binaryData != null) {
+      size += binaryData.length;
+    }
+    String lineHashes = dto.getLineHashes();
+    if (lineHashes != null) {
+      // approximation of the size of UTF-16 chars
+      size += 2L * lineHashes.length();
+    }
+    return size;
+  }
+}
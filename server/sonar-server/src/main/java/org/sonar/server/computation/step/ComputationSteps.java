@@ -36,8 +36,8 @@ public class ComputationSteps {
    */
   public List<Class<? extends ComputationStep>> orderedStepClasses() {
     return Arrays.asList(
-      // extract report to a temp directory
-      ReportExtractionStep.class,
+      // open zipped report, which is not extracted
+      OpenReportStep.class,
 
       // Builds Component tree
       BuildComponentTreeStep.class,
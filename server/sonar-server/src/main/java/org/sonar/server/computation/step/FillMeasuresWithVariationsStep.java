@@ -23,7 +23,9 @@ package org.sonar.server.computation.step;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +33,8 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.core.measure.db.PastMeasureDto;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.computation.component.Component;
@@ -96,6 +100,8 @@ public class FillMeasuresWithVariationsStep implements ComputationStep {
     private final DbSession session;
     private final Set<Integer> metricIds;
     private final Map<String, Metric> metricByKeys;
+    // past measures of all the components of the project, by period index then by component uuid
+    private final Map<Integer, Map<String, List<PastMeasureDto>>> pastMeasuresByPeriod = new HashMap<>();
 
     public VariationMeasuresVisitor(DbSession session, Iterable<Metric> metrics) {
       // measures on files are currently purged, so past measures are not available on files
@@ -105,6 +111,29 @@ public class FillMeasuresWithVariationsStep implements ComputationStep {
       this.metricByKeys = FluentIterable.from(metrics).uniqueIndex(MetricToKey.INSTANCE);
     }
 
+    /**
+     * Past measures of the whole project are loaded in a single streamed query, instead of one query per component.
+     */
+    private Map<String, List<PastMeasureDto>> loadPastMeasures(Period period) {
+      final Map<String, List<PastMeasureDto>> pastMeasuresByComponentUuid = new HashMap<>();
+      dbClient.measureDao().selectByProjectSnapshotId(session, period.getSnapshotId(), new ResultHandler() {
+        @Override
+        public void handleResult(ResultContext context) {
+          PastMeasureDto pastMeasure = (PastMeasureDto) context.getResultObject();
+          if (!metricIds.contains(pastMeasure.getMetricId())) {
+            return;
+          }
+          List<PastMeasureDto> pastMeasures = pastMeasuresByComponentUuid.get(pastMeasure.getComponentUuid());
+          if (pastMeasures == null) {
+            pastMeasures = new ArrayList<>();
+            pastMeasuresByComponentUuid.put(pastMeasure.getComponentUuid(), pastMeasures);
+          }
+          pastMeasures.add(pastMeasure);
+        }
+      });
+      return pastMeasuresByComponentUuid;
+    }
+
     @Override
     public void visitAny(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = computeMeasuresWithVariations(component);
@@ -114,13 +143,22 @@ public class FillMeasuresWithVariationsStep implements ComputationStep {
     private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
       for (Period period : periodsHolder.getPeriods()) {
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao().selectByComponentUuidAndProjectSnapshotIdAndMetricIds(session, component.getUuid(), period.getSnapshotId(),
-          metricIds);
+        List<PastMeasureDto> pastMeasures = getPastMeasures(period, component);
         setVariationMeasures(component, pastMeasures, period.getIndex(), measuresWithVariationRepository);
       }
       return measuresWithVariationRepository;
     }
 
+    private List<PastMeasureDto> getPastMeasures(Period period, Component component) {
+      Map<String, List<PastMeasureDto>> pastMeasuresByComponentUuid = pastMeasuresByPeriod.get(period.getIndex());
+      if (pastMeasuresByComponentUuid == null) {
+        pastMeasuresByComponentUuid = loadPastMeasures(period);
+        pastMeasuresByPeriod.put(period.getIndex(), pastMeasuresByComponentUuid);
+      }
+      List<PastMeasureDto> pastMeasures = pastMeasuresByComponentUuid.get(component.getUuid());
+      return pastMeasures == null ? Collections.<PastMeasureDto>emptyList() : pastMeasures;
+    }
+
     private void processMeasuresWithVariation(Component component, MeasuresWithVariationRepository measuresWithVariationRepository) {
       for (MeasureWithVariations measureWithVariations : measuresWithVariationRepository.measures()) {
         Metric metric = measureWithVariations.getMetric();
@@ -19,54 +19,48 @@
  */
 package org.sonar.server.computation.step;
 
-import java.io.File;
 import java.io.IOException;
 import org.apache.commons.io.FileUtils;
-import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.computation.ReportQueue;
-import org.sonar.server.computation.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.batch.MutableBatchReportHolder;
+import org.sonar.server.computation.batch.ZipBatchReportEntries;
 
 /**
- * Extracts the content zip file of the {@link ReportQueue.Item} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * Opens the zip file of the {@link ReportQueue.Item} and adds it to the {@link MutableBatchReportHolder}.
+ * The report is not extracted: its files are decompressed on demand when they are read.
  */
-public class ReportExtractionStep implements ComputationStep {
-  private static final Logger LOG = Loggers.get(ReportExtractionStep.class);
+public class OpenReportStep implements ComputationStep {
+  private static final Logger LOG = Loggers.get(OpenReportStep.class);
 
   private final ReportQueue.Item item;
-  private final TempFolder tempFolder;
-  private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final MutableBatchReportHolder reportHolder;
 
-  public ReportExtractionStep(ReportQueue.Item item, TempFolder tempFolder, MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+  public OpenReportStep(ReportQueue.Item item, MutableBatchReportHolder reportHolder) {
     this.item = item;
-    this.tempFolder = tempFolder;
-    this.reportDirectoryHolder = reportDirectoryHolder;
+    this.reportHolder = reportHolder;
   }
 
   @Override
   public void execute() {
-    File dir = tempFolder.newDir();
     try {
       Profiler profiler = Profiler.createIfDebug(LOG).start();
-      ZipUtils.unzip(item.zipFile, dir);
+      reportHolder.setReport(new ZipBatchReportEntries(item.zipFile));
       if (profiler.isDebugEnabled()) {
-        String message = String.format("Report extracted | size=%s | project=%s",
-            FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(dir)), item.dto.getProjectKey());
+        String message = String.format("Report opened | size=%s | project=%s",
+            FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(item.zipFile)), item.dto.getProjectKey());
         profiler.stopDebug(message);
       }
-      reportDirectoryHolder.setDirectory(dir);
     } catch (IOException e) {
-      throw new IllegalStateException(String.format("Fail to unzip %s into %s", item.zipFile, dir), e);
+      throw new IllegalStateException(String.format("Fail to open zip file %s", item.zipFile), e);
     }
   }
 
   @Override
   public String getDescription() {
-    return "Extracting batch report to temp directory";
+    return "Open batch report";
   }
 
 }
@@ -21,26 +21,35 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.FileStructure;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
 import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.core.source.db.FileSourceDto.Type;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.component.Component;
-import org.sonar.server.computation.component.DepthTraversalTypeAwareVisitor;
+import org.sonar.server.computation.component.ParallelDepthTraversalTypeAwareVisitor;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.source.ComputeFileSourceData;
 import org.sonar.server.computation.source.CoverageLineReader;
 import org.sonar.server.computation.source.DuplicationLineReader;
+import org.sonar.server.computation.source.FileSourcesBatchWriter;
 import org.sonar.server.computation.source.HighlightingLineReader;
 import org.sonar.server.computation.source.LineReader;
 import org.sonar.server.computation.source.ScmLineReader;
@@ -53,44 +62,70 @@ import static org.sonar.server.computation.component.DepthTraversalTypeAwareVisi
 
 public class PersistFileSourcesStep implements ComputationStep {
 
+  /**
+   * Files of report which are used to compute the binary data of a file source
+   */
+  private static final FileStructure.Domain[] SOURCE_DATA_DOMAINS = {FileStructure.Domain.SOURCE, FileStructure.Domain.COVERAGES,
+    FileStructure.Domain.CHANGESETS, FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, FileStructure.Domain.SYMBOLS, FileStructure.Domain.DUPLICATIONS};
+
+  /**
+   * Must be incremented when the way binary data are computed from the report changes, so that
+   * the sources of unchanged files are computed again.
+   */
+  private static final int REPORT_HASH_VERSION = 1;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
+  private final int parallelism;
 
-  public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader) {
+  public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, Settings settings) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
+    this.parallelism = ParallelDepthTraversalTypeAwareVisitor.parallelism(settings);
   }
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
+    FileSourcesBatchWriter writer = new FileSourcesBatchWriter(dbClient);
     try {
-      new FileSourceVisitor(session).visit(treeRootHolder.getRoot());
+      new FileSourceVisitor(writer).visit(treeRootHolder.getRoot());
     } finally {
-      MyBatis.closeQuietly(session);
+      writer.close();
     }
   }
 
-  private class FileSourceVisitor extends DepthTraversalTypeAwareVisitor {
+  /**
+   * Files are processed concurrently. They share the same writer, which flushes rows in batches.
+   */
+  private class FileSourceVisitor extends ParallelDepthTraversalTypeAwareVisitor {
 
-    private final DbSession session;
+    private final FileSourcesBatchWriter writer;
 
+    // loaded before files are visited, then read-only
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
 
-    private FileSourceVisitor(DbSession session) {
-      super(Component.Type.FILE, PRE_ORDER);
-      this.session = session;
+    private FileSourceVisitor(FileSourcesBatchWriter writer) {
+      super(Component.Type.FILE, PRE_ORDER, parallelism);
+      this.writer = writer;
     }
 
     @Override
     public void visitProject(Component project) {
       this.projectUuid = project.getUuid();
+      DbSession session = dbClient.openSession(false);
+      try {
+        loadPreviousFileSources(session);
+      } finally {
+        MyBatis.closeQuietly(session);
+      }
+    }
+
+    private void loadPreviousFileSources(DbSession session) {
       session.select("org.sonar.core.source.db.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", Type.SOURCE),
         new ResultHandler() {
           @Override
@@ -105,12 +140,19 @@ public class PersistFileSourcesStep implements ComputationStep {
     public void visitFile(Component file) {
       int fileRef = file.getRef();
       BatchReport.Component component = reportReader.readComponent(fileRef);
+      String reportHash = computeReportHash(component);
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      if (previousDto != null && reportHash.equals(previousDto.getReportHash())) {
+        // the files of report are the same as the ones used by previous analysis, so are the sources
+        return;
+      }
+
       CloseableIterator<String> linesIterator = reportReader.readFileSource(fileRef);
       LineReaders lineReaders = new LineReaders(reportReader, fileRef);
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid());
+        persistSource(fileSourceData, file.getUuid(), reportHash);
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       } finally {
@@ -119,13 +161,36 @@ public class PersistFileSourcesStep implements ComputationStep {
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid) {
+    /**
+     * MD5 of the raw files of report from which binary data are computed. Files are not parsed.
+     */
+    private String computeReportHash(BatchReport.Component component) {
+      MessageDigest digest = DigestUtils.getMd5Digest();
+      digest.update(String.format("%d|%d", REPORT_HASH_VERSION, component.getLines()).getBytes(StandardCharsets.UTF_8));
+      for (FileStructure.Domain domain : SOURCE_DATA_DOMAINS) {
+        digest.update(domain.name().getBytes(StandardCharsets.UTF_8));
+        InputStream input = reportReader.readRawFile(domain, component.getRef());
+        if (input != null) {
+          try {
+            digest.update(DigestUtils.md5(input));
+          } catch (IOException e) {
+            throw new IllegalStateException(String.format("Fail to read file %s of report", FileStructure.fileNameFor(domain, component.getRef())), e);
+          } finally {
+            IOUtils.closeQuietly(input);
+          }
+        }
+      }
+      return Hex.encodeHexString(digest.digest());
+    }
+
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, String reportHash) {
       FileSourceDb.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
       String dataHash = DigestUtils.md5Hex(data);
       String srcHash = fileSourceData.getSrcHash();
       String lineHashes = fileSourceData.getLineHashes();
+      int lineCount = fileData.getLinesCount();
       FileSourceDto previousDto = previousFileSourcesByUuid.get(componentUuid);
 
       if (previousDto == null) {
@@ -136,27 +201,35 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setBinaryData(data)
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
+          .setReportHash(reportHash)
           .setLineHashes(lineHashes)
+          .setLineCount(lineCount)
+          .setPreviousLineCount(0)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now());
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+        writer.insert(dto);
       } else {
-        // Update only if data_hash has changed or if src_hash is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash or report_hash are missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        if (binaryDataUpdated || srcHashUpdated) {
+        boolean reportHashUpdated = !reportHash.equals(previousDto.getReportHash());
+        if (binaryDataUpdated || srcHashUpdated || reportHashUpdated) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
+            .setReportHash(reportHash)
             .setLineHashes(lineHashes);
           // Optimization only change updated at when updating binary data to avoid unnecessary indexation by E/S
           if (binaryDataUpdated) {
-            previousDto.setUpdatedAt(system2.now());
+            // number of lines known by the index, so that obsolete lines can be deleted by id.
+            // It's null on rows persisted before line counts were introduced.
+            previousDto
+              .setPreviousLineCount(previousDto.getLineCount())
+              .setUpdatedAt(system2.now());
           }
-          dbClient.fileSourceDao().update(previousDto);
-          session.commit();
+          previousDto.setLineCount(lineCount);
+          writer.update(previousDto);
         }
       }
     }
@@ -29,16 +29,20 @@ import org.sonar.server.activity.Activity;
 import org.sonar.server.activity.index.ActivityDoc;
 import org.sonar.server.activity.index.ActivityIndex;
 import org.sonar.server.activity.index.ActivityQuery;
+import org.sonar.server.computation.activity.StepStatistics;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.ws.IssuesWs;
 import org.sonar.server.user.UserSession;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 // FIXME replace by api/activities/search
 public class HistoryAction implements ComputationWsAction {
+  private static final String STEPS_DETAIL = "steps";
+
   private final ActivityIndex activityIndex;
   private final UserSession userSession;
 
@@ -51,7 +55,8 @@ public class HistoryAction implements ComputationWsAction {
   public void define(WebService.NewController controller) {
     WebService.NewAction action = controller
       .createAction("history")
-      .setDescription("Past integrations of analysis reports")
+      .setDescription("Past integrations of analysis reports, with the resources consumed by each step of their processing " +
+        "(duration, CPU time, allocated bytes, number and duration of SQL and Elasticsearch requests)")
       .setSince("5.0")
       .setInternal(true)
       .setHandler(this);
@@ -81,10 +86,31 @@ public class HistoryAction implements ComputationWsAction {
     for (ActivityDoc doc : result.getDocs()) {
       json.beginObject();
       for (Map.Entry<String, String> detail : doc.getDetails().entrySet()) {
-        json.prop(detail.getKey(), detail.getValue());
+        if (STEPS_DETAIL.equals(detail.getKey())) {
+          writeSteps(StepStatistics.parse(detail.getValue()), json);
+        } else {
+          json.prop(detail.getKey(), detail.getValue());
+        }
       }
       json.endObject();
     }
     json.endArray();
   }
+
+  private static void writeSteps(List<StepStatistics> steps, JsonWriter json) {
+    json.name(STEPS_DETAIL).beginArray();
+    for (StepStatistics step : steps) {
+      json.beginObject()
+        .prop("name", step.getName())
+        .prop("durationMs", step.getDurationMs())
+        .prop("cpuTimeMs", step.getCpuTimeMs())
+        .prop("allocatedBytes", step.getAllocatedBytes())
+        .prop("sqlCount", step.getSqlCount())
+        .prop("sqlTimeMs", step.getSqlTimeMs())
+        .prop("esCount", step.getEsCount())
+        .prop("esTimeMs", step.getEsTimeMs())
+        .endObject();
+    }
+    json.endArray();
+  }
 }
@@ -23,6 +23,7 @@ package org.sonar.server.computation.ws;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.server.computation.ReportQueue;
@@ -30,15 +31,19 @@ import org.sonar.server.computation.ReportQueue;
 import java.util.List;
 
 import static org.sonar.api.utils.DateUtils.longToDate;
+import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
+import static org.sonar.core.computation.db.AnalysisReportDto.Status.WORKING;
 
 /**
  * @since 5.0
  */
 public class QueueAction implements ComputationWsAction {
   private final ReportQueue queue;
+  private final System2 system;
 
-  public QueueAction(ReportQueue queue) {
+  public QueueAction(ReportQueue queue, System2 system) {
     this.queue = queue;
+    this.system = system;
   }
 
   @Override
@@ -56,11 +61,33 @@ public class QueueAction implements ComputationWsAction {
     List<AnalysisReportDto> reports = queue.all();
 
     JsonWriter json = response.newJsonWriter().beginObject();
+    writeQueueDepth(reports, json);
     writeReports(reports, json);
     json.endObject();
     json.close();
   }
 
+  private void writeQueueDepth(List<AnalysisReportDto> reports, JsonWriter json) {
+    int pending = 0;
+    int working = 0;
+    Long oldestPendingAt = null;
+    for (AnalysisReportDto report : reports) {
+      if (report.getStatus() == PENDING) {
+        pending++;
+        if (oldestPendingAt == null || report.getCreatedAt() < oldestPendingAt) {
+          oldestPendingAt = report.getCreatedAt();
+        }
+      } else if (report.getStatus() == WORKING) {
+        working++;
+      }
+    }
+    json.prop("pendingCount", pending);
+    json.prop("workingCount", working);
+    if (oldestPendingAt != null) {
+      json.prop("maxWaitingTime", system.now() - oldestPendingAt);
+    }
+  }
+
   private static void writeReports(List<AnalysisReportDto> reports, JsonWriter json) {
     json.name("reports").beginArray();
     for (AnalysisReportDto report : reports) {
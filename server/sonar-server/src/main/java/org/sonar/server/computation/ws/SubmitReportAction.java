@@ -25,7 +25,6 @@ import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.core.permission.GlobalPermissions;
-import org.sonar.server.computation.ComputationThreadLauncher;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.user.UserSession;
 
@@ -39,12 +38,10 @@ public class SubmitReportAction implements ComputationWsAction {
   public static final String PARAM_REPORT_DATA = "report";
 
   private final ReportQueue queue;
-  private final ComputationThreadLauncher workerLauncher;
   private final UserSession userSession;
 
-  public SubmitReportAction(ReportQueue queue, ComputationThreadLauncher workerLauncher, UserSession userSession) {
+  public SubmitReportAction(ReportQueue queue, UserSession userSession) {
     this.queue = queue;
-    this.workerLauncher = workerLauncher;
     this.userSession = userSession;
   }
 
@@ -81,8 +78,8 @@ public class SubmitReportAction implements ComputationWsAction {
     String projectName = request.mandatoryParam(PARAM_PROJECT_NAME);
     InputStream reportData = request.paramAsInputStream(PARAM_REPORT_DATA);
     try {
+      // workers are notified by the queue
       ReportQueue.Item item = queue.add(projectKey, projectName, reportData);
-      workerLauncher.startAnalysisTaskNow();
       response.newJsonWriter()
         .beginObject()
         // do not write integer for forward-compatibility, for example
@@ -0,0 +1,95 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.dbutils.DbUtils;
+import org.sonar.core.persistence.DbSession;
+
+/**
+ * Range of values of the column ID of a table, from {@link #getFrom()} inclusive to {@link #getTo()} exclusive.
+ * Used to split the scroll of a large table into several requests that can be executed concurrently.
+ */
+public class IdRange {
+
+  private final long from;
+  private final long to;
+
+  public IdRange(long from, long to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  public long getFrom() {
+    return from;
+  }
+
+  public long getTo() {
+    return to;
+  }
+
+  /**
+   * Splits the ids of the rows of the table into contiguous ranges of the same size. Ranges may contain
+   * different number of rows if ids are not uniformly distributed.
+   *
+   * @param condition optional SQL condition on the rows, for example "data_type='SOURCE'"
+   * @return the ranges, in ascending order. Empty if table has no rows.
+   */
+  public static List<IdRange> split(DbClient dbClient, String table, @Nullable String condition, int partitions) {
+    String sql = "select min(id), max(id) from " + table + (condition == null ? "" : (" where " + condition));
+    DbSession dbSession = dbClient.openSession(false);
+    Connection connection = dbSession.getConnection();
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try {
+      stmt = connection.prepareStatement(sql);
+      rs = stmt.executeQuery();
+      List<IdRange> ranges = new ArrayList<>();
+      if (rs.next()) {
+        long min = rs.getLong(1);
+        if (!rs.wasNull()) {
+          long max = rs.getLong(2);
+          long size = Math.max(1L, (max - min + 1L + partitions - 1L) / partitions);
+          for (long from = min; from <= max; from += size) {
+            ranges.add(new IdRange(from, Math.min(from + size, max + 1L)));
+          }
+        }
+      }
+      return ranges;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to execute " + sql, e);
+    } finally {
+      DbUtils.closeQuietly(rs);
+      DbUtils.closeQuietly(stmt);
+      dbSession.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "[" + from + ", " + to + ")";
+  }
+}
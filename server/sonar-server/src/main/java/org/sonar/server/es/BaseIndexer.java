@@ -20,12 +20,20 @@
 package org.sonar.server.es;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.picocontainer.Startable;
 import org.sonar.api.server.ServerSide;
+import org.sonar.server.db.IdRange;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -33,10 +41,18 @@ import java.util.concurrent.TimeUnit;
 @ServerSide
 public abstract class BaseIndexer implements Startable {
 
+  /**
+   * Number of concurrent readers of database when indexing a table from scratch
+   */
+  protected static final int FULL_INDEXING_PARTITIONS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
   private final ThreadPoolExecutor executor;
   private final String indexName, typeName, dateFieldName;
   protected final EsClient esClient;
+  private final MetadataIndex metadataIndex;
   private volatile long lastUpdatedAt = -1L;
+  private final Object passLock = new Object();
+  private CatchUpPass pendingPass = null;
 
   /**
    * Indexers are disabled during server startup, to avoid too many consecutive refreshes of the same index
@@ -55,6 +71,7 @@ public abstract class BaseIndexer implements Startable {
     this.typeName = typeName;
     this.dateFieldName = dateFieldName;
     this.esClient = client;
+    this.metadataIndex = new MetadataIndex(client);
     this.executor = new ThreadPoolExecutor(0, 1,
       threadKeepAliveSeconds, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
   }
@@ -65,35 +82,91 @@ public abstract class BaseIndexer implements Startable {
       Future submit = executor.submit(new Runnable() {
         @Override
         public void run() {
-          if (lastUpdatedAt == -1L) {
-            lastUpdatedAt = esClient.getMaxFieldValue(indexName, typeName, dateFieldName);
-          }
-          if (requestedAt > lastUpdatedAt) {
-            long l = task.index(lastUpdatedAt);
-            // l can be 0 if no documents were indexed
-            lastUpdatedAt = Math.max(l, lastUpdatedAt);
-          }
+          catchUp(requestedAt, task);
         }
       });
-      try {
-        Uninterruptibles.getUninterruptibly(submit);
-      } catch (ExecutionException e) {
-        Throwables.propagate(e);
-      }
+      await(submit);
     }
   }
 
+  /**
+   * Indexes the rows updated since the last call. Concurrent calls are merged: a caller
+   * joins the pass that is waiting to be executed, if any, instead of queueing a new one.
+   */
   public void index() {
-    index(new IndexerTask() {
-      @Override
-      public long index(long lastUpdatedAt) {
-        return doIndex(lastUpdatedAt);
+    if (enabled) {
+      CatchUpPass pass;
+      synchronized (passLock) {
+        if (pendingPass == null) {
+          pendingPass = new CatchUpPass();
+          executor.execute(pendingPass);
+        }
+        pass = pendingPass;
+        pass.requestedAt = System.currentTimeMillis();
       }
-    });
+      await(pass.future);
+    }
+  }
+
+  private void catchUp(long requestedAt, IndexerTask task) {
+    if (lastUpdatedAt == -1L) {
+      Long persisted = metadataIndex.getLastUpdatedAt(indexName, typeName);
+      lastUpdatedAt = persisted != null ? persisted : esClient.getMaxFieldValue(indexName, typeName, dateFieldName);
+    }
+    if (requestedAt > lastUpdatedAt) {
+      long l = task.index(lastUpdatedAt);
+      // l can be 0 if no documents were indexed
+      if (l > lastUpdatedAt) {
+        lastUpdatedAt = l;
+        metadataIndex.setLastUpdatedAt(indexName, typeName, l);
+      }
+    }
+  }
+
+  private static void await(Future future) {
+    try {
+      Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      Throwables.propagate(e);
+    }
   }
 
   protected abstract long doIndex(long lastUpdatedAt);
 
+  /**
+   * Indexes the ranges of ids concurrently, one thread per range. Tasks generally share the same
+   * {@link BulkIndexer}.
+   *
+   * @return the max of the values returned by tasks, generally the max date of indexed documents
+   */
+  protected long indexPartitions(List<IdRange> ranges, final PartitionTask task) {
+    if (ranges.isEmpty()) {
+      return 0L;
+    }
+    ExecutorService partitionExecutor = Executors.newFixedThreadPool(ranges.size(),
+      new ThreadFactoryBuilder().setNameFormat(indexName + "-partition-%d").build());
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (final IdRange range : ranges) {
+        futures.add(partitionExecutor.submit(new Callable<Long>() {
+          @Override
+          public Long call() {
+            return task.index(range);
+          }
+        }));
+      }
+      long max = 0L;
+      for (Future<Long> future : futures) {
+        max = Math.max(max, Uninterruptibles.getUninterruptibly(future));
+      }
+      return max;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      partitionExecutor.shutdownNow();
+    }
+  }
+
   public BaseIndexer setEnabled(boolean b) {
     this.enabled = b;
     return this;
@@ -109,8 +182,41 @@ public abstract class BaseIndexer implements Startable {
     executor.shutdown();
   }
 
+  /**
+   * Pass of {@link #doIndex(long)} that callers of {@link #index()} can join as long as it is not started.
+   */
+  private class CatchUpPass implements Runnable {
+    private volatile long requestedAt;
+    private final FutureTask<Void> future = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        catchUp(requestedAt, new IndexerTask() {
+          @Override
+          public long index(long lastUpdatedAt) {
+            return doIndex(lastUpdatedAt);
+          }
+        });
+      }
+    }, null);
+
+    @Override
+    public void run() {
+      synchronized (passLock) {
+        // from now on, new callers wait for the next pass
+        if (pendingPass == this) {
+          pendingPass = null;
+        }
+      }
+      future.run();
+    }
+  }
+
   public interface IndexerTask {
     long index(long lastUpdatedAt);
   }
 
+  public interface PartitionTask {
+    long index(IdRange range);
+  }
+
 }
@@ -21,6 +21,8 @@ package org.sonar.server.es;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -35,24 +37,39 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.CallStatistics;
 import org.sonar.server.util.ProgressLogger;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than 1Mb. This size and the number of
+ *   concurrent requests are adapted to the latency and rejections of Elasticsearch (see {@link BulkThrottle})</li>
+ *   <li>requests rejected by Elasticsearch are sent again with an exponential back-off</li>
+ *   <li>deletions by query are executed in background</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
  * </ul>
+ * Throughput, rejections and retries are available in {@link #STATISTICS}.
  */
 public class BulkIndexer implements Startable {
 
@@ -60,6 +77,18 @@ public class BulkIndexer implements Startable {
   private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
+  private static final int MAX_RETRIES = 5;
+  private static final long INITIAL_BACKOFF_MS = 100L;
+  private static final int DELETION_THREADS = 2;
+
+  public static final BulkIndexerStatistics STATISTICS = new BulkIndexerStatistics();
+
+  /**
+   * Rejected requests are re-sent asynchronously. Scheduled tasks do not block, so
+   * a single thread is shared by all the indexers.
+   */
+  private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+    new ThreadFactoryBuilder().setNameFormat("BulkIndexer-retry").setDaemon(true).build());
 
   private final EsClient client;
   private final String indexName;
@@ -69,8 +98,14 @@ public class BulkIndexer implements Startable {
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
+  private final AtomicLong sentBytes = new AtomicLong(0L);
   private final int concurrentRequests;
-  private final Semaphore semaphore;
+  private BulkThrottle throttle = null;
+  private long startedAt;
+  // guarded by this
+  private ExecutorService deletionExecutor = null;
+  private final List<Future<?>> pendingDeletions = new ArrayList<>();
+  private volatile boolean deletionsCancelled = false;
   private final ProgressLogger progress;
 
   public BulkIndexer(EsClient client, String indexName) {
@@ -80,7 +115,6 @@ public class BulkIndexer implements Startable {
       .setPluralLabel("requests");
 
     this.concurrentRequests = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-    this.semaphore = new Semaphore(concurrentRequests);
   }
 
   /**
@@ -93,7 +127,11 @@ public class BulkIndexer implements Startable {
     return this;
   }
 
+  /**
+   * Initial size of bulk requests. It is then adapted to the load of Elasticsearch.
+   */
   public BulkIndexer setFlushByteSize(long flushByteSize) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
     this.flushByteSize = flushByteSize;
     return this;
   }
@@ -130,18 +168,31 @@ public class BulkIndexer implements Startable {
       updateSettings(bulkSettings);
     }
     bulkRequest = client.prepareBulk().setRefresh(false);
+    throttle = new BulkThrottle(concurrentRequests, flushByteSize);
+    deletionsCancelled = false;
     counter.set(0L);
+    sentBytes.set(0L);
+    startedAt = System.currentTimeMillis();
     progress.start();
   }
 
-  public void add(ActionRequest request) {
+  /**
+   * Thread-safe, so that several producers can share the same bulk.
+   */
+  public synchronized void add(ActionRequest request) {
+    Preconditions.checkState(bulkRequest != null, "Bulk indexing is not started");
     bulkRequest.request().add(request);
-    if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
+    if (bulkRequest.request().estimatedSizeInBytes() >= throttle.flushByteSize()) {
       executeBulk();
     }
   }
 
-  public void addDeletion(SearchRequestBuilder searchRequest) {
+  /**
+   * Deletes asynchronously the documents matching the given search request. Documents are
+   * scrolled by a background thread while the bulk delete requests of previous pages
+   * are being executed. Method {@link #stop()} waits for the deletions to be completed.
+   */
+  public void addDeletion(final SearchRequestBuilder searchRequest) {
     searchRequest
       .setScroll(TimeValue.timeValueMinutes(5))
       .setSearchType(SearchType.SCAN)
@@ -149,24 +200,77 @@ public class BulkIndexer implements Startable {
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
+    synchronized (this) {
+      Preconditions.checkState(bulkRequest != null, "Bulk indexing is not started");
+      if (deletionExecutor == null) {
+        deletionExecutor = Executors.newFixedThreadPool(DELETION_THREADS,
+          new ThreadFactoryBuilder().setNameFormat("BulkIndexer-deletion-%d").setDaemon(true).build());
+      }
+      pendingDeletions.add(deletionExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          scrollAndDelete(searchRequest);
+        }
+      }));
+    }
+  }
+
+  private void scrollAndDelete(SearchRequestBuilder searchRequest) {
     SearchResponse searchResponse = searchRequest.get();
+    try {
+      while (true) {
+        searchResponse = client.prepareSearchScroll(searchResponse.getScrollId())
+          .setScroll(TimeValue.timeValueMinutes(5))
+          .get();
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        // calls to Elasticsearch do not respond to interruptions, so cancellation is checked on each page
+        if (hits.length == 0 || deletionsCancelled || Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        for (SearchHit hit : hits) {
+          add(client.prepareDelete(hit.index(), hit.type(), hit.getId()).request());
+        }
+      }
+    } finally {
+      client.prepareClearScroll(searchResponse.getScrollId()).get();
+    }
+  }
 
-    while (true) {
-      searchResponse = client.prepareSearchScroll(searchResponse.getScrollId())
-        .setScroll(TimeValue.timeValueMinutes(5))
-        .get();
-      SearchHit[] hits = searchResponse.getHits().getHits();
-      for (SearchHit hit : hits) {
-        add(client.prepareDelete(hit.index(), hit.type(), hit.getId()).request());
+  /**
+   * Waits for the deletions requested by {@link #addDeletion(SearchRequestBuilder)}. There is no timeout,
+   * as the remaining deletions would be lost. If the current thread is interrupted, the deletions stop
+   * at the end of their current page.
+   * @return the first failure, if any
+   */
+  @CheckForNull
+  private Throwable awaitDeletions() {
+    List<Future<?>> futures;
+    ExecutorService executor;
+    synchronized (this) {
+      futures = new ArrayList<>(pendingDeletions);
+      pendingDeletions.clear();
+      executor = deletionExecutor;
+      deletionExecutor = null;
+    }
+    Throwable failure = null;
+    try {
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          failure = failure == null ? e.getCause() : failure;
+        }
       }
-      if (hits.length == 0) {
-        break;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      deletionsCancelled = true;
+      failure = e;
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
       }
     }
+    return failure;
   }
 
   /**
@@ -182,17 +286,23 @@ public class BulkIndexer implements Startable {
 
   @Override
   public void stop() {
-    if (bulkRequest.numberOfActions() > 0) {
-      executeBulk();
+    // deletions must be completed before flushing the last requests
+    Throwable deletionFailure = awaitDeletions();
+    synchronized (this) {
+      if (bulkRequest.numberOfActions() > 0) {
+        executeBulk();
+      }
     }
     try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
+      if (!throttle.awaitCompletion(10, TimeUnit.MINUTES)) {
+        LOGGER.error("Elasticsearch bulk requests still being executed after 10 minutes");
       }
     } catch (InterruptedException e) {
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for completion of Elasticsearch bulk requests", e);
     }
     progress.stop();
+    STATISTICS.recordThroughput(counter.get(), sentBytes.get(), System.currentTimeMillis() - startedAt);
 
     if (!disableRefresh) {
       client.prepareRefresh(indexName).get();
@@ -206,6 +316,9 @@ public class BulkIndexer implements Startable {
       updateSettings(largeInitialSettings);
     }
     bulkRequest = null;
+    if (deletionFailure != null) {
+      throw new IllegalStateException("Fail to delete documents from index " + indexName, deletionFailure);
+    }
   }
 
   private void updateSettings(Map<String, Object> settings) {
@@ -217,37 +330,116 @@ public class BulkIndexer implements Startable {
   private void executeBulk() {
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
-    semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    throttle.acquire();
+    execute(req, 0);
+  }
+
+  /**
+   * The caller must own a permit of {@link #throttle}. It is released when the request
+   * is completed, including its retries.
+   */
+  private void execute(BulkRequestBuilder req, int attempt) {
+    long bytes = req.request().estimatedSizeInBytes();
+    sentBytes.addAndGet(bytes);
+    req.execute(new BulkResponseActionListener(req, attempt, bytes, EsClient.STATISTICS.currentCounter()));
+  }
+
+  private void retry(final List<ActionRequest> requests, final int attempt) {
+    if (attempt >= MAX_RETRIES) {
+      LOGGER.error(String.format("%d requests rejected by Elasticsearch after %d retries", requests.size(), MAX_RETRIES));
+      STATISTICS.addFailures(requests.size());
+      counter.addAndGet(requests.size());
+      throttle.release();
+      return;
+    }
+    STATISTICS.addRetry();
+    final BulkRequestBuilder req = client.prepareBulk().setRefresh(false);
+    for (ActionRequest request : requests) {
+      req.request().add(request);
+    }
+    long backoffMs = INITIAL_BACKOFF_MS << attempt;
+    RETRY_SCHEDULER.schedule(new Runnable() {
+      @Override
+      public void run() {
+        execute(req, attempt + 1);
+      }
+    }, backoffMs, TimeUnit.MILLISECONDS);
+  }
+
+  private static boolean isRejection(Throwable e) {
+    return ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException;
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
     private final BulkRequestBuilder req;
+    private final int attempt;
+    private final long bytes;
+    @Nullable
+    private final CallStatistics.Counter statistics;
+    private final long startNanos = System.nanoTime();
 
-    public BulkResponseActionListener(BulkRequestBuilder req) {
+    public BulkResponseActionListener(BulkRequestBuilder req, int attempt, long bytes, @Nullable CallStatistics.Counter statistics) {
       this.req = req;
+      this.attempt = attempt;
+      this.bytes = bytes;
+      this.statistics = statistics;
     }
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
-
+      long latencyNanos = recordStatistics();
+      List<ActionRequest> rejected = new ArrayList<>();
+      int failures = 0;
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
-          StringBuilder sb = new StringBuilder();
-          String msg = sb
-            .append("index [").append(item.getIndex()).append("], type [").append(item.getType()).append("], id [").append(item.getId())
-            .append("], message [").append(item.getFailureMessage()).append("]").toString();
-          LOGGER.error(msg);
+          if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+            rejected.add(req.request().requests().get(item.getItemId()));
+          } else {
+            failures++;
+            StringBuilder sb = new StringBuilder();
+            String msg = sb
+              .append("index [").append(item.getIndex()).append("], type [").append(item.getType()).append("], id [").append(item.getId())
+              .append("], message [").append(item.getFailureMessage()).append("]").toString();
+            LOGGER.error(msg);
+          }
         }
       }
+      int processed = response.getItems().length - rejected.size();
+      counter.addAndGet(processed);
+      STATISTICS.addBulk(processed - failures, bytes);
+      STATISTICS.addFailures(failures);
+
+      if (rejected.isEmpty()) {
+        throttle.onSuccess(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        throttle.release();
+      } else {
+        STATISTICS.addRejections(rejected.size());
+        throttle.onRejection();
+        retry(rejected, attempt);
+      }
     }
 
     @Override
     public void onFailure(Throwable e) {
-      semaphore.release();
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+      recordStatistics();
+      if (isRejection(e)) {
+        STATISTICS.addRejections(req.numberOfActions());
+        throttle.onRejection();
+        retry(req.request().requests(), attempt);
+      } else {
+        LOGGER.error("Fail to execute bulk index request: " + req, e);
+        STATISTICS.addFailures(req.numberOfActions());
+        throttle.release();
+      }
+    }
+
+    private long recordStatistics() {
+      long latencyNanos = System.nanoTime() - startNanos;
+      // response is received by an Elasticsearch thread, not by the thread that submitted the request
+      if (statistics != null) {
+        statistics.add(latencyNanos);
+      }
+      return latencyNanos;
     }
   }
 }
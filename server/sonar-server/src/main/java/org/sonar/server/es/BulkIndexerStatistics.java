@@ -0,0 +1,103 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of all the {@link BulkIndexer} executed since server startup.
+ * Thread-safe.
+ */
+public class BulkIndexerStatistics {
+
+  private final AtomicLong docs = new AtomicLong(0L);
+  private final AtomicLong bytes = new AtomicLong(0L);
+  private final AtomicLong rejections = new AtomicLong(0L);
+  private final AtomicLong retries = new AtomicLong(0L);
+  private final AtomicLong failures = new AtomicLong(0L);
+  private volatile long lastDocsPerSecond = 0L;
+  private volatile long lastBytesPerSecond = 0L;
+
+  void addBulk(int docsCount, long bytesCount) {
+    docs.addAndGet(docsCount);
+    bytes.addAndGet(bytesCount);
+  }
+
+  void addRejections(int count) {
+    rejections.addAndGet(count);
+  }
+
+  void addRetry() {
+    retries.incrementAndGet();
+  }
+
+  void addFailures(int count) {
+    failures.addAndGet(count);
+  }
+
+  /**
+   * Throughput of the last completed {@link BulkIndexer}, from {@link BulkIndexer#start()} to {@link BulkIndexer#stop()}
+   */
+  void recordThroughput(long docsCount, long bytesCount, long durationMs) {
+    long duration = Math.max(1L, durationMs);
+    lastDocsPerSecond = 1000L * docsCount / duration;
+    lastBytesPerSecond = 1000L * bytesCount / duration;
+  }
+
+  /**
+   * Number of requests (index, update or delete) sent to Elasticsearch
+   */
+  public long getDocs() {
+    return docs.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Number of requests rejected by Elasticsearch because its queues are full
+   */
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  /**
+   * Number of bulk requests sent again after rejection
+   */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /**
+   * Number of requests that are definitively not executed
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  public long getLastDocsPerSecond() {
+    return lastDocsPerSecond;
+  }
+
+  public long getLastBytesPerSecond() {
+    return lastBytesPerSecond;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the number of concurrent bulk requests and the size of each bulk request
+ * to the load of Elasticsearch, as observed by {@link BulkIndexer}:
+ * <ul>
+ *   <li>when requests are rejected, both limits are divided by two</li>
+ *   <li>when requests are fast, an additional concurrent request is allowed and size is increased by 25%</li>
+ *   <li>when requests are slow, size is decreased by 25%</li>
+ * </ul>
+ * Size stays between a quarter and four times the initial size. Concurrency
+ * can not exceed its initial value.
+ * <p/>
+ * Thread-safe.
+ */
+class BulkThrottle {
+
+  static final long TARGET_LATENCY_MS = 2000L;
+
+  private final int maxConcurrentRequests;
+  private final long minFlushByteSize;
+  private final long maxFlushByteSize;
+
+  private int concurrentRequests;
+  private int inFlightRequests = 0;
+  private long flushByteSize;
+
+  BulkThrottle(int maxConcurrentRequests, long initialFlushByteSize) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.concurrentRequests = maxConcurrentRequests;
+    this.flushByteSize = initialFlushByteSize;
+    this.minFlushByteSize = Math.max(1L, initialFlushByteSize / 4);
+    this.maxFlushByteSize = initialFlushByteSize * 4;
+  }
+
+  /**
+   * Blocks until a new request can be sent
+   */
+  synchronized void acquire() {
+    boolean interrupted = false;
+    while (inFlightRequests >= concurrentRequests) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    inFlightRequests++;
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  synchronized void release() {
+    inFlightRequests--;
+    notifyAll();
+  }
+
+  /**
+   * @return true if all the requests are completed before timeout
+   */
+  synchronized boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (inFlightRequests > 0) {
+      long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remainingMs <= 0L) {
+        return false;
+      }
+      wait(remainingMs);
+    }
+    return true;
+  }
+
+  synchronized void onSuccess(long latencyMs) {
+    if (latencyMs < TARGET_LATENCY_MS / 2) {
+      concurrentRequests = Math.min(maxConcurrentRequests, concurrentRequests + 1);
+      flushByteSize = Math.min(maxFlushByteSize, flushByteSize + flushByteSize / 4);
+    } else if (latencyMs > TARGET_LATENCY_MS) {
+      flushByteSize = Math.max(minFlushByteSize, flushByteSize - flushByteSize / 4);
+    }
+  }
+
+  synchronized void onRejection() {
+    concurrentRequests = Math.max(1, concurrentRequests / 2);
+    flushByteSize = Math.max(minFlushByteSize, flushByteSize / 2);
+  }
+
+  synchronized int concurrentRequests() {
+    return concurrentRequests;
+  }
+
+  synchronized long flushByteSize() {
+    return flushByteSize;
+  }
+}
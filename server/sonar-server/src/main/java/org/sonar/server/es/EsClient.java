@@ -39,6 +39,7 @@ import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.MultiGetRequestBuilder;
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.client.Client;
@@ -49,6 +50,7 @@ import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.CallStatistics;
 import org.sonar.server.es.request.ProxyBulkRequestBuilder;
 import org.sonar.server.es.request.ProxyClearCacheRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterHealthRequestBuilder;
@@ -78,6 +80,12 @@ import org.sonar.server.search.SearchClient;
 public class EsClient implements Startable {
 
   public static final Logger LOGGER = Loggers.get("es");
+
+  /**
+   * Number and duration of the requests executed through this client
+   */
+  public static final CallStatistics STATISTICS = new CallStatistics();
+
   private final Client client;
 
   public EsClient(SearchClient deprecatedClient) {
@@ -140,6 +148,11 @@ public class EsClient implements Startable {
     return new ProxySearchScrollRequestBuilder(scrollId, client);
   }
 
+  public ClearScrollRequestBuilder prepareClearScroll(String scrollId) {
+    // TODO add proxy for profiling
+    return new ClearScrollRequestBuilder(client).addScrollId(scrollId);
+  }
+
   public GetRequestBuilder prepareGet() {
     return new ProxyGetRequestBuilder(client);
   }
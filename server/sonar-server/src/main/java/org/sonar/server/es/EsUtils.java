@@ -51,7 +51,7 @@ public class EsUtils {
     // only static methods
   }
 
-  public static <D extends BaseDoc> List<D> convertToDocs(SearchHits hits, Function<Map<String, Object>, D> converter) {
+  public static <D> List<D> convertToDocs(SearchHits hits, Function<Map<String, Object>, D> converter) {
     List<D> docs = new ArrayList<>();
     for (SearchHit hit : hits.getHits()) {
       docs.add(converter.apply(hit.getSource()));
@@ -38,6 +38,10 @@ public class Facets {
 
   private final Map<String, LinkedHashMap<String, Long>> facetsByName = new LinkedHashMap<>();
 
+  private Facets() {
+    // see copy()
+  }
+
   public Facets(SearchResponse response) {
     if (response.getAggregations() != null) {
       for (Aggregation facet : response.getAggregations()) {
@@ -137,6 +141,17 @@ public class Facets {
     return facetsByName.keySet();
   }
 
+  /**
+   * Deep copy, so that buckets of the copy can be modified without impacting this instance
+   */
+  public Facets copy() {
+    Facets copy = new Facets();
+    for (Map.Entry<String, LinkedHashMap<String, Long>> facet : facetsByName.entrySet()) {
+      copy.facetsByName.put(facet.getKey(), new LinkedHashMap<>(facet.getValue()));
+    }
+    return copy;
+  }
+
   @Override
   public String toString() {
     return ReflectionToStringBuilder.toString(this, ToStringStyle.SIMPLE_STYLE);
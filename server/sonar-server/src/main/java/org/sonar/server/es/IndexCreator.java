@@ -29,6 +29,8 @@ import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,6 +58,7 @@ public class IndexCreator implements Startable {
   @Override
   public void start() {
     // create indices that do not exist or that have a new definition (different mapping, cluster enabled, ...)
+    List<String> createdIndices = new ArrayList<>();
     for (IndexDefinitions.Index index : definitions.getIndices().values()) {
       boolean exists = client.prepareIndicesExist(index.getName()).get().isExists();
       if (exists && needsToDeleteIndex(index)) {
@@ -65,6 +68,17 @@ public class IndexCreator implements Startable {
       }
       if (!exists) {
         createIndex(index);
+        createdIndices.add(index.getName());
+      }
+    }
+
+    // data stored about the indices that have just been (re-)created is obsolete
+    if (definitions.getIndices().containsKey(MetadataIndexDefinition.INDEX)) {
+      MetadataIndex metadataIndex = new MetadataIndex(client);
+      for (String createdIndex : createdIndices) {
+        if (!MetadataIndexDefinition.INDEX.equals(createdIndex)) {
+          metadataIndex.deleteIndex(createdIndex);
+        }
       }
     }
   }
@@ -107,6 +107,7 @@ public class IndexDefinitions implements Startable {
       for (IndexDefinition definition : defs) {
         definition.define(context);
       }
+      new MetadataIndexDefinition(settings).define(context);
 
       for (Map.Entry<String, NewIndex> entry : context.getIndices().entrySet()) {
         byKey.put(entry.getKey(), new Index(entry.getValue()));
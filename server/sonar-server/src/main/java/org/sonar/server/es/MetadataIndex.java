@@ -0,0 +1,79 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Reads and writes the internal data stored in index {@link MetadataIndexDefinition#INDEX}.
+ */
+public class MetadataIndex {
+
+  private final EsClient esClient;
+
+  public MetadataIndex(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  /**
+   * Date of the most recent database row indexed in the given type, or {@code null}
+   * if it has never been recorded.
+   */
+  @CheckForNull
+  public Long getLastUpdatedAt(String index, String type) {
+    GetResponse response = esClient.prepareGet(MetadataIndexDefinition.INDEX, MetadataIndexDefinition.TYPE_METADATA, lastUpdatedAtId(index, type))
+      .setRealtime(true)
+      .get();
+    if (response.isExists()) {
+      Object value = response.getSource().get(MetadataIndexDefinition.FIELD_VALUE);
+      if (value != null) {
+        return Long.parseLong(value.toString());
+      }
+    }
+    return null;
+  }
+
+  public void setLastUpdatedAt(String index, String type, long lastUpdatedAt) {
+    esClient.prepareIndex(MetadataIndexDefinition.INDEX, MetadataIndexDefinition.TYPE_METADATA)
+      .setId(lastUpdatedAtId(index, type))
+      .setSource(ImmutableMap.of(
+        MetadataIndexDefinition.FIELD_INDEX, index,
+        MetadataIndexDefinition.FIELD_VALUE, String.valueOf(lastUpdatedAt)))
+      .get();
+  }
+
+  /**
+   * Removes all the data related to the given index, for example when it is re-created or truncated.
+   */
+  public void deleteIndex(String index) {
+    esClient.prepareDeleteByQuery(MetadataIndexDefinition.INDEX)
+      .setTypes(MetadataIndexDefinition.TYPE_METADATA)
+      .setQuery(QueryBuilders.termQuery(MetadataIndexDefinition.FIELD_INDEX, index))
+      .get();
+  }
+
+  private static String lastUpdatedAtId(String index, String type) {
+    return String.format("lastUpdatedAt_%s_%s", index, type);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.sonar.api.config.Settings;
+
+/**
+ * Definition of ES index "metadatas", which stores internal data about the other indices,
+ * for example the date of the last document indexed in each type.
+ */
+public class MetadataIndexDefinition implements IndexDefinition {
+
+  public static final String INDEX = "metadatas";
+
+  public static final String TYPE_METADATA = "metadata";
+
+  public static final String FIELD_INDEX = "index";
+  public static final String FIELD_VALUE = "value";
+
+  private final Settings settings;
+
+  public MetadataIndexDefinition(Settings settings) {
+    this.settings = settings;
+  }
+
+  @Override
+  public void define(IndexDefinitionContext context) {
+    NewIndex index = context.create(INDEX);
+
+    index.setShards(settings);
+
+    // type "metadata"
+    NewIndex.NewIndexType mapping = index.createType(TYPE_METADATA);
+    mapping.stringFieldBuilder(FIELD_INDEX).build();
+    mapping.stringFieldBuilder(FIELD_VALUE).disableSearch().build();
+  }
+}
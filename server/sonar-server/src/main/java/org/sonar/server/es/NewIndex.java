@@ -93,6 +93,14 @@ public class NewIndex {
       return new NestedObjectBuilder(this, nestedMapping, fieldName);
     }
 
+    /**
+     * Binary values are base64-encoded strings. They are neither indexed nor searchable,
+     * but are returned by _source.
+     */
+    public NewIndexType createBinaryField(String fieldName) {
+      return setProperty(fieldName, ImmutableMap.of("type", "binary"));
+    }
+
     public NewIndexType createBooleanField(String fieldName) {
       return setProperty(fieldName, ImmutableMap.of("type", "boolean"));
     }
@@ -22,23 +22,35 @@ package org.sonar.server.es;
 import com.google.common.base.Function;
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.sonar.server.search.BaseDoc;
 
 import java.util.List;
 import java.util.Map;
 
-public class SearchResult<DOC extends BaseDoc> {
+public class SearchResult<DOC> {
 
   private final List<DOC> docs;
   private final Facets facets;
   private final long total;
 
   public SearchResult(SearchResponse response, Function<Map<String, Object>, DOC> converter) {
-    this.facets = new Facets(response);
+    this(response, converter, new Facets(response));
+  }
+
+  /**
+   * Facets are not read from response, for example when they have been loaded from a cache
+   */
+  public SearchResult(SearchResponse response, Function<Map<String, Object>, DOC> converter, Facets facets) {
+    this.facets = facets;
     this.total = response.getHits().totalHits();
     this.docs = EsUtils.convertToDocs(response.getHits(), converter);
   }
 
+  public SearchResult(List<DOC> docs, long total, Facets facets) {
+    this.docs = docs;
+    this.total = total;
+    this.facets = facets;
+  }
+
   public List<DOC> getDocs() {
     return docs;
   }
@@ -24,7 +24,6 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -50,7 +49,6 @@ import org.sonar.core.persistence.MyBatis;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.exceptions.BadRequestException;
-import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.notification.IssueChangeNotification;
 import org.sonar.server.rule.DefaultRuleFinder;
 import org.sonar.server.user.UserSession;
@@ -126,21 +124,14 @@ public class IssueBulkChangeService {
   }
 
   private Collection<Issue> getByKeysForUpdate(List<String> issueKeys) {
-    // Load from index to check permission
+    // Load from index to check permission. Only keys are loaded, issues are read from database.
     SearchOptions options = new SearchOptions().setLimit(SearchOptions.MAX_LIMIT);
-    // TODO restrict fields to issue key, in order to not load all other fields;
-    List<IssueDoc> authorizedIssues = issueService.search(IssueQuery.builder(userSession).issueKeys(issueKeys).build(), options).getDocs();
-    Collection<String> authorizedKeys = Collections2.transform(authorizedIssues, new Function<IssueDoc, String>() {
-      @Override
-      public String apply(IssueDoc input) {
-        return input.key();
-      }
-    });
+    List<String> authorizedKeys = issueService.searchKeys(IssueQuery.builder(userSession).issueKeys(issueKeys).build(), options);
 
     if (!authorizedKeys.isEmpty()) {
       DbSession session = dbClient.openSession(false);
       try {
-        List<IssueDto> dtos = dbClient.issueDao().selectByKeys(session, Lists.newArrayList(authorizedKeys));
+        List<IssueDto> dtos = dbClient.issueDao().selectByKeys(session, authorizedKeys);
         return Collections2.transform(dtos, new Function<IssueDto, Issue>() {
           @Override
           public Issue apply(@Nullable IssueDto input) {
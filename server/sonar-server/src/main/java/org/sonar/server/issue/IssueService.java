@@ -319,6 +319,20 @@ public class IssueService {
     return issueIndex.search(query, options);
   }
 
+  /**
+   * Keys of the issues matching the query, when issues are then loaded from database
+   */
+  public List<String> searchKeys(IssueQuery query, SearchOptions options) {
+    return issueIndex.searchKeys(query, options);
+  }
+
+  /**
+   * Keys of the issues matching the query, given page by page to the handler, when issues are then loaded from database
+   */
+  public SearchResult<String> searchKeys(IssueQuery query, SearchOptions options, IssueIndex.KeysHandler handler) {
+    return issueIndex.searchKeys(query, options, handler);
+  }
+
   private void verifyLoggedIn() {
     userSession.checkLoggedIn();
   }
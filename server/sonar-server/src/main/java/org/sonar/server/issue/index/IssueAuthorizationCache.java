@@ -0,0 +1,196 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.OrFilterBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsUtils;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the projects that users are allowed to browse. Filtering issues on the project UUIDs
+ * is much cheaper than joining them with the documents of type {@link IssueIndexDefinition#TYPE_AUTHORIZATION},
+ * especially for users who belong to many groups.
+ * <p/>
+ * Entries are dropped when permissions change, see {@link IssueAuthorizationIndexer} and
+ * {@link org.sonar.server.permission.InternalPermissionService}.
+ */
+@ServerSide
+public class IssueAuthorizationCache {
+
+  static final long TTL_MINUTES = 5L;
+
+  /**
+   * Max number of project UUIDs kept in memory, all users included
+   */
+  static final long MAX_PROJECT_UUIDS = 1000000L;
+
+  private static final int SCROLL_SIZE = 1000;
+
+  private final EsClient esClient;
+  private final Cache<String, AuthorizedProjects> cache = CacheBuilder.newBuilder()
+    .expireAfterWrite(TTL_MINUTES, TimeUnit.MINUTES)
+    .maximumWeight(MAX_PROJECT_UUIDS)
+    .weigher(new Weigher<String, AuthorizedProjects>() {
+      @Override
+      public int weigh(String key, AuthorizedProjects value) {
+        return Math.max(1, value.uuids.length);
+      }
+    })
+    .recordStats()
+    .build();
+
+  /**
+   * Incremented each time permissions change
+   */
+  private long version = 0L;
+
+  public IssueAuthorizationCache(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  /**
+   * Filter on the issues of the projects that the user, or one of its groups, is allowed to browse
+   */
+  public FilterBuilder createFilter(@Nullable String userLogin, Set<String> userGroups) {
+    AuthorizedProjects projects = get(userLogin, userGroups);
+    return FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projects.uuids)
+      .cache(true)
+      .cacheKey(projects.filterCacheKey);
+  }
+
+  /**
+   * Sorted UUIDs of the projects that the user, or one of its groups, is allowed to browse
+   */
+  public List<String> getProjectUuids(@Nullable String userLogin, Set<String> userGroups) {
+    return Collections.unmodifiableList(Arrays.asList(get(userLogin, userGroups).uuids));
+  }
+
+  public synchronized void invalidate() {
+    version++;
+    cache.invalidateAll();
+  }
+
+  public long getHits() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMisses() {
+    return cache.stats().missCount();
+  }
+
+  private AuthorizedProjects get(@Nullable String userLogin, Set<String> userGroups) {
+    String key = key(userLogin, userGroups);
+    AuthorizedProjects projects = cache.getIfPresent(key);
+    if (projects == null) {
+      long loadedAtVersion = version();
+      projects = load(key, userLogin, userGroups);
+      put(key, loadedAtVersion, projects);
+    }
+    return projects;
+  }
+
+  private synchronized long version() {
+    return version;
+  }
+
+  private synchronized void put(String key, long loadedAtVersion, AuthorizedProjects projects) {
+    // permissions changed while loading
+    if (loadedAtVersion == version) {
+      cache.put(key, projects);
+    }
+  }
+
+  private AuthorizedProjects load(String key, @Nullable String userLogin, Set<String> userGroups) {
+    OrFilterBuilder groupsAndUser = FilterBuilders.orFilter();
+    if (userLogin != null) {
+      groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, userLogin));
+    }
+    for (String group : userGroups) {
+      groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS, group));
+    }
+    SearchResponse response = esClient.prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_AUTHORIZATION)
+      .setSearchType(SearchType.SCAN)
+      .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+      .setSize(SCROLL_SIZE)
+      .setFetchSource(false)
+      .setQuery(QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), groupsAndUser))
+      .get();
+
+    // ids of authorization documents are project UUIDs
+    Set<String> uuids = new TreeSet<>();
+    while (true) {
+      response = esClient.prepareSearchScroll(response.getScrollId())
+        .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+        .get();
+      SearchHit[] hits = response.getHits().getHits();
+      if (hits.length == 0) {
+        break;
+      }
+      for (SearchHit hit : hits) {
+        uuids.add(hit.getId());
+      }
+    }
+    return new AuthorizedProjects(key, uuids);
+  }
+
+  private static String key(@Nullable String userLogin, Set<String> userGroups) {
+    List<String> values = new ArrayList<>(new TreeSet<>(userGroups));
+    values.add(0, userLogin == null ? "" : userLogin);
+    return values.toString();
+  }
+
+  private static class AuthorizedProjects {
+    private final String[] uuids;
+
+    /**
+     * Identifies the filter in the Elasticsearch filter cache. It changes as soon as the list
+     * of UUIDs changes.
+     */
+    private final String filterCacheKey;
+
+    private AuthorizedProjects(String key, Set<String> uuids) {
+      this.uuids = uuids.toArray(new String[uuids.size()]);
+      this.filterCacheKey = "issueAuthorization_" + DigestUtils.md5Hex(key + uuids.toString());
+    }
+  }
+}
@@ -45,10 +45,14 @@ import java.util.Map;
 public class IssueAuthorizationIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final IssueFacetCache facetCache;
+  private final IssueAuthorizationCache authorizationCache;
 
-  public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient) {
+  public IssueAuthorizationIndexer(DbClient dbClient, EsClient esClient, IssueFacetCache facetCache, IssueAuthorizationCache authorizationCache) {
     super(esClient, 0L, IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
     this.dbClient = dbClient;
+    this.facetCache = facetCache;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -84,6 +88,8 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       maxDate = Math.max(maxDate, authorization.getUpdatedAt());
     }
     bulk.stop();
+    facetCache.invalidate();
+    authorizationCache.invalidate();
     return maxDate;
   }
 
@@ -92,6 +98,8 @@ public class IssueAuthorizationIndexer extends BaseIndexer {
       .prepareDelete(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, uuid)
       .setRefresh(refresh)
       .get();
+    facetCache.invalidate();
+    authorizationCache.invalidate();
   }
 
   private ActionRequest newUpdateRequest(IssueAuthorizationDao.Dto dto) {
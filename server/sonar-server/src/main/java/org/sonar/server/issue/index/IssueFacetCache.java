@@ -0,0 +1,158 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Ordering;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.issue.IssueQuery;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of the facets computed by {@link IssueIndex#search(IssueQuery, SearchOptions)}. Pages
+ * like dashboards and issues search request the same facets many times, whereas aggregations are the
+ * most expensive part of the search requests.
+ * <p/>
+ * Entries are dropped when {@link IssueIndexer} or {@link IssueAuthorizationIndexer} change the index,
+ * or at the latest {@link #TTL_SECONDS} after being computed.
+ */
+@ServerSide
+public class IssueFacetCache {
+
+  static final long TTL_SECONDS = 30L;
+  static final long MAX_ENTRIES = 1000L;
+
+  private final Cache<String, Facets> cache = CacheBuilder.newBuilder()
+    .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+    .maximumSize(MAX_ENTRIES)
+    .recordStats()
+    .build();
+
+  /**
+   * Incremented each time the index is changed
+   */
+  private long version = 0L;
+
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Copy of the facets cached for the given key, so that callers can modify it. Null if the
+   * facets are not cached.
+   */
+  @CheckForNull
+  public Facets get(String key) {
+    Facets facets = cache.getIfPresent(key);
+    return facets == null ? null : facets.copy();
+  }
+
+  /**
+   * Caches facets computed while index was at the given version. Facets are ignored if index
+   * changed in the meantime.
+   */
+  public synchronized void put(String key, long computedAtVersion, Facets facets) {
+    if (computedAtVersion == version) {
+      cache.put(key, facets.copy());
+    }
+  }
+
+  public synchronized void invalidate() {
+    version++;
+    cache.invalidateAll();
+  }
+
+  public long getHits() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMisses() {
+    return cache.stats().missCount();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Key of the facets requested by the search. It includes all the criteria that impact
+   * the facets, but not sorting and paging. The login of the current user is required by
+   * the facet "assigned to me".
+   */
+  public static String key(IssueQuery query, SearchOptions options, @Nullable String sessionLogin) {
+    List<Object> values = new ArrayList<>();
+    values.add(options.getFacets());
+    values.add(query.checkAuthorization());
+    values.add(query.userLogin());
+    values.add(sessionLogin);
+    values.add(sorted(query.userGroups()));
+    values.add(sorted(query.issueKeys()));
+    values.add(sorted(query.severities()));
+    values.add(sorted(query.statuses()));
+    values.add(sorted(query.resolutions()));
+    values.add(sorted(query.componentUuids()));
+    values.add(sorted(query.moduleUuids()));
+    values.add(sorted(query.moduleRootUuids()));
+    values.add(sorted(query.projectUuids()));
+    values.add(sorted(query.directories()));
+    values.add(sorted(query.fileUuids()));
+    values.add(sorted(query.viewUuids()));
+    values.add(sorted(query.rules()));
+    values.add(sorted(query.actionPlans()));
+    values.add(sorted(query.reporters()));
+    values.add(sorted(query.assignees()));
+    values.add(sorted(query.authors()));
+    values.add(sorted(query.languages()));
+    values.add(sorted(query.tags()));
+    values.add(query.onComponentOnly());
+    values.add(query.assigned());
+    values.add(query.planned());
+    values.add(query.resolved());
+    values.add(time(query.createdAt()));
+    values.add(time(query.createdAfter()));
+    values.add(time(query.createdBefore()));
+    return Joiner.on('|').useForNull("").join(values);
+  }
+
+  private static List<String> sorted(Collection<?> values) {
+    List<String> result = new ArrayList<>();
+    for (Object value : values) {
+      result.add(value.toString());
+    }
+    return Ordering.natural().sortedCopy(result);
+  }
+
+  @CheckForNull
+  private static Long time(@Nullable Date date) {
+    return date == null ? null : date.getTime();
+  }
+}
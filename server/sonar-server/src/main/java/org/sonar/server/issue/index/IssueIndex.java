@@ -26,8 +26,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -50,6 +52,7 @@ import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.OrFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
@@ -68,8 +71,10 @@ import org.sonar.api.utils.System2;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.util.NonNullInputFunction;
 import org.sonar.server.es.BaseIndex;
+import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
@@ -135,12 +140,17 @@ public class IssueIndex extends BaseIndex {
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  private final IssueFacetCache facetCache;
+  private final IssueAuthorizationCache authorizationCache;
 
-  public IssueIndex(EsClient client, System2 system, UserSession userSession) {
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, IssueFacetCache facetCache,
+    IssueAuthorizationCache authorizationCache) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.facetCache = facetCache;
+    this.authorizationCache = authorizationCache;
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -185,16 +195,79 @@ public class IssueIndex extends BaseIndex {
   }
 
   public SearchResult<IssueDoc> search(IssueQuery query, SearchOptions options) {
+    QueryBuilder esQuery = QueryBuilders.matchAllQuery();
+    Map<String, FilterBuilder> filters = createFilters(query);
+    SearchRequestBuilder requestBuilder = prepareSearch(query, filters, esQuery);
+    configurePagination(options, requestBuilder);
+
+    FacetsRequest facetsRequest = new FacetsRequest(query, options, filters, esQuery, requestBuilder);
+    SearchResponse response = requestBuilder.get();
+    return new SearchResult<>(response, DOC_CONVERTER, facetsRequest.read(response));
+  }
+
+  /**
+   * Handler of the keys returned by {@link #searchKeys(IssueQuery, SearchOptions, KeysHandler)}
+   */
+  public interface KeysHandler {
+    /**
+     * Keys of a page of results, sorted as requested
+     */
+    void handle(List<String> keys);
+  }
+
+  /**
+   * Searches the keys of the issues matching the query, sorted as requested. The _source of documents is not fetched,
+   * so this is the method to be used when issues are then loaded from database.
+   * <p/>
+   * Keys are given to the handler page by page. When the limit of options is disabled, all the pages are read
+   * through a scroll, instead of requesting a huge page to Elasticsearch.
+   *
+   * @return total and facets of the search. Keys are not kept in the result, its docs are empty.
+   */
+  public SearchResult<String> searchKeys(IssueQuery query, SearchOptions options, KeysHandler handler) {
+    QueryBuilder esQuery = QueryBuilders.matchAllQuery();
+    Map<String, FilterBuilder> filters = createFilters(query);
+    SearchRequestBuilder requestBuilder = prepareSearch(query, filters, esQuery).setFetchSource(false);
+    boolean scroll = options.getLimit() > SearchOptions.MAX_LIMIT;
+    if (scroll) {
+      requestBuilder.setSize(SearchOptions.MAX_LIMIT).setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES));
+    } else {
+      configurePagination(options, requestBuilder);
+    }
+
+    FacetsRequest facetsRequest = new FacetsRequest(query, options, filters, esQuery, requestBuilder);
+    SearchResponse response = requestBuilder.get();
+    Facets facets = facetsRequest.read(response);
+    if (scroll) {
+      scrollKeys(response, options.getOffset(), handler);
+    } else {
+      handler.handle(keys(response.getHits().getHits(), 0));
+    }
+    return new SearchResult<>(Collections.<String>emptyList(), response.getHits().getTotalHits(), facets);
+  }
+
+  /**
+   * Keys of the issues matching the query, sorted as requested. See {@link #searchKeys(IssueQuery, SearchOptions, KeysHandler)}.
+   */
+  public List<String> searchKeys(IssueQuery query, SearchOptions options) {
+    final List<String> keys = new ArrayList<>();
+    searchKeys(query, options, new KeysHandler() {
+      @Override
+      public void handle(List<String> pageKeys) {
+        keys.addAll(pageKeys);
+      }
+    });
+    return keys;
+  }
+
+  private SearchRequestBuilder prepareSearch(IssueQuery query, Map<String, FilterBuilder> filters, QueryBuilder esQuery) {
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
       .setTypes(IssueIndexDefinition.TYPE_ISSUE);
 
     configureSorting(query, requestBuilder);
-    configurePagination(options, requestBuilder);
 
-    QueryBuilder esQuery = QueryBuilders.matchAllQuery();
     BoolFilterBuilder esFilter = FilterBuilders.boolFilter();
-    Map<String, FilterBuilder> filters = createFilters(query);
     for (FilterBuilder filter : filters.values()) {
       if (filter != null) {
         esFilter.must(filter);
@@ -205,9 +278,77 @@ public class IssueIndex extends BaseIndex {
     } else {
       requestBuilder.setQuery(esQuery);
     }
+    return requestBuilder;
+  }
 
-    configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+  /**
+   * Gives to the handler the keys of all the pages of a scrolled search, starting from the first page
+   * contained in the response. The scroll is cleared at the end.
+   */
+  private void scrollKeys(SearchResponse firstResponse, int offset, KeysHandler handler) {
+    int toSkip = offset;
+    SearchResponse response = firstResponse;
+    try {
+      SearchHit[] hits = response.getHits().getHits();
+      while (hits.length > 0) {
+        int skipped = Math.min(toSkip, hits.length);
+        toSkip -= skipped;
+        if (skipped < hits.length) {
+          handler.handle(keys(hits, skipped));
+        }
+        response = getClient().prepareSearchScroll(response.getScrollId())
+          .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+          .get();
+        hits = response.getHits().getHits();
+      }
+    } finally {
+      getClient().prepareClearScroll(response.getScrollId()).get();
+    }
+  }
+
+  private static List<String> keys(SearchHit[] hits, int from) {
+    List<String> keys = new ArrayList<>(hits.length - from);
+    for (int i = from; i < hits.length; i++) {
+      keys.add(hits[i].getId());
+    }
+    return keys;
+  }
+
+  /**
+   * Aggregations are requested only when facets are not already cached
+   */
+  private class FacetsRequest {
+    @CheckForNull
+    private final String cacheKey;
+    private final long cacheVersion;
+    @CheckForNull
+    private final Facets cachedFacets;
+
+    FacetsRequest(IssueQuery query, SearchOptions options, Map<String, FilterBuilder> filters, QueryBuilder esQuery, SearchRequestBuilder requestBuilder) {
+      if (options.getFacets().isEmpty()) {
+        this.cacheKey = null;
+        this.cacheVersion = 0L;
+        this.cachedFacets = null;
+      } else {
+        this.cacheKey = IssueFacetCache.key(query, options, userSession.getLogin());
+        this.cacheVersion = facetCache.version();
+        this.cachedFacets = facetCache.get(cacheKey);
+        if (cachedFacets == null) {
+          configureStickyFacets(query, options, filters, esQuery, requestBuilder);
+        }
+      }
+    }
+
+    Facets read(SearchResponse response) {
+      if (cachedFacets != null) {
+        return cachedFacets;
+      }
+      Facets facets = new Facets(response);
+      if (cacheKey != null) {
+        facetCache.put(cacheKey, cacheVersion, facets);
+      }
+      return facets;
+    }
   }
 
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
@@ -321,20 +462,7 @@ public class IssueIndex extends BaseIndex {
 
   private FilterBuilder createAuthorizationFilter(boolean checkAuthorization, @Nullable String userLogin, Set<String> userGroups) {
     if (checkAuthorization) {
-      OrFilterBuilder groupsAndUser = FilterBuilders.orFilter();
-      if (userLogin != null) {
-        groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, userLogin));
-      }
-      for (String group : userGroups) {
-        groupsAndUser.add(FilterBuilders.termFilter(IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS, group));
-      }
-      return FilterBuilders.hasParentFilter(IssueIndexDefinition.TYPE_AUTHORIZATION,
-        QueryBuilders.filteredQuery(
-          QueryBuilders.matchAllQuery(),
-          FilterBuilders.boolFilter()
-            .must(groupsAndUser)
-            .cache(true))
-        );
+      return authorizationCache.createFilter(userLogin, userGroups);
     } else {
       return FilterBuilders.matchAllFilter();
     }
@@ -684,7 +812,12 @@ public class IssueIndex extends BaseIndex {
       FilterBuilders.andFilter(projectFilter, dateFilter)
       );
 
-    getClient().prepareDeleteByQuery(IssueIndexDefinition.INDEX).setQuery(queryBuilder).get();
+    SearchRequestBuilder searchRequest = getClient().prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setRouting(projectUuid)
+      .setQuery(queryBuilder);
+    BulkIndexer.delete(getClient(), IssueIndexDefinition.INDEX, searchRequest);
+    facetCache.invalidate();
   }
 
   private BoolFilterBuilder createBoolFilter(IssueQuery query) {
@@ -712,20 +845,33 @@ public class IssueIndex extends BaseIndex {
    * Only fields needed for the batch are returned.
    */
   public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
-    BoolFilterBuilder filter = FilterBuilders.boolFilter()
-      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()))
-      .mustNot(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
-
+    FilterBuilder componentFilter;
     switch (component.scope()) {
       case Scopes.PROJECT:
-        filter.must(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
+        componentFilter = FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid());
         break;
       case Scopes.FILE:
-        filter.must(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
+        componentFilter = FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid());
         break;
       default:
         throw new IllegalStateException(String.format("Component of scope '%s' is not allowed", component.scope()));
     }
+    return selectIssuesForBatch(componentFilter);
+  }
+
+  /**
+   * Return non closed issues of the given files, in a single scroll.
+   * Only fields needed for the batch are returned.
+   */
+  public Iterator<IssueDoc> selectIssuesForBatch(Collection<String> fileUuids) {
+    return selectIssuesForBatch(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, fileUuids));
+  }
+
+  private Iterator<IssueDoc> selectIssuesForBatch(FilterBuilder componentFilter) {
+    BoolFilterBuilder filter = FilterBuilders.boolFilter()
+      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()))
+      .must(componentFilter)
+      .mustNot(FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
 
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
@@ -26,20 +26,24 @@ import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.db.IdRange;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 
 import java.sql.Connection;
 import java.util.Iterator;
+import java.util.List;
 
 public class IssueIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final IssueFacetCache facetCache;
 
-  public IssueIndexer(DbClient dbClient, EsClient esClient) {
+  public IssueIndexer(DbClient dbClient, EsClient esClient, IssueFacetCache facetCache) {
     super(esClient, 300, IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE, IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
     this.dbClient = dbClient;
+    this.facetCache = facetCache;
   }
 
   @Override
@@ -59,6 +63,9 @@ public class IssueIndexer extends BaseIndexer {
   }
 
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    if (lastUpdatedAt == 0L) {
+      return doIndexPartitions(bulk);
+    }
     DbSession dbSession = dbClient.openSession(false);
     Connection dbConnection = dbSession.getConnection();
     long maxDate;
@@ -74,8 +81,44 @@ public class IssueIndexer extends BaseIndexer {
     }
   }
 
+  /**
+   * Full indexing. Table ISSUES is split into ranges of ids that are read concurrently.
+   */
+  private long doIndexPartitions(final BulkIndexer bulk) {
+    List<IdRange> ranges = IdRange.split(dbClient, "issues", null, FULL_INDEXING_PARTITIONS);
+    bulk.start();
+    long maxDate = indexPartitions(ranges, new PartitionTask() {
+      @Override
+      public long index(IdRange range) {
+        DbSession dbSession = dbClient.openSession(false);
+        Connection dbConnection = dbSession.getConnection();
+        IssueResultSetIterator rowIt = null;
+        try {
+          rowIt = IssueResultSetIterator.create(dbClient, dbConnection, range);
+          return addAll(bulk, rowIt);
+        } finally {
+          if (rowIt != null) {
+            rowIt.close();
+          }
+          DbUtils.closeQuietly(dbConnection);
+          dbSession.close();
+        }
+      }
+    });
+    bulk.stop();
+    facetCache.invalidate();
+    return maxDate;
+  }
+
   private long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     bulk.start();
+    long maxDate = addAll(bulk, issues);
+    bulk.stop();
+    facetCache.invalidate();
+    return maxDate;
+  }
+
+  private long addAll(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     long maxDate = 0L;
     while (issues.hasNext()) {
       IssueDoc issue = issues.next();
@@ -84,7 +127,6 @@ public class IssueIndexer extends BaseIndexer {
       // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
       maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
     }
-    bulk.stop();
     return maxDate;
   }
 
@@ -100,6 +142,7 @@ public class IssueIndexer extends BaseIndexer {
       ));
     bulk.addDeletion(search);
     bulk.stop();
+    facetCache.invalidate();
   }
 
   BulkIndexer createBulkIndexer(boolean large) {
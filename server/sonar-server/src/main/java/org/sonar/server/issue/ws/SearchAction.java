@@ -51,6 +51,7 @@ import org.sonar.api.user.UserFinder;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.component.ComponentDto;
+import org.sonar.core.issue.db.IssueDto;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.server.component.ws.ComponentJsonWriter;
 import org.sonar.server.db.DbClient;
@@ -61,7 +62,6 @@ import org.sonar.server.issue.IssueQueryService;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.actionplan.ActionPlanService;
 import org.sonar.server.issue.filter.IssueFilterParameters;
-import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.rule.Rule;
 import org.sonar.server.rule.RuleService;
@@ -279,7 +279,7 @@ public class SearchAction implements IssuesWsAction {
     options.addFacets(request.paramAsStrings(WebService.Param.FACETS));
 
     IssueQuery query = issueQueryService.createFromRequest(request);
-    SearchResult<IssueDoc> result = execute(query, options);
+    SearchResult<Issue> result = execute(query, options);
 
     JsonWriter json = response.newJsonWriter().beginObject();
     options.writeJson(json, result.getTotal());
@@ -299,15 +299,46 @@ public class SearchAction implements IssuesWsAction {
         && BooleanUtils.isTrue(request.paramAsBoolean(IssueFilterParameters.IGNORE_PAGING));
   }
 
-  private SearchResult<IssueDoc> execute(IssueQuery query, SearchOptions options) {
+  /**
+   * Only keys of issues are read from index. Issues are loaded from database, page by page, in the order of the index.
+   */
+  private SearchResult<Issue> execute(IssueQuery query, SearchOptions options) {
     Collection<String> components = query.componentUuids();
     if (components != null && components.size() == 1 && BooleanUtils.isTrue(query.ignorePaging())) {
       options.disableLimit();
     }
-    return service.search(query, options);
+    final List<Issue> issues = newArrayList();
+    final DbSession session = dbClient.openSession(false);
+    try {
+      SearchResult<String> keysResult = service.searchKeys(query, options, new IssueIndex.KeysHandler() {
+        @Override
+        public void handle(List<String> keys) {
+          issues.addAll(loadIssues(session, keys));
+        }
+      });
+      return new SearchResult<>(issues, keysResult.getTotal(), keysResult.getFacets());
+    } finally {
+      session.close();
+    }
+  }
+
+  private List<Issue> loadIssues(DbSession session, List<String> keys) {
+    Map<String, IssueDto> dtosByKey = newHashMap();
+    for (IssueDto dto : dbClient.issueDao().selectByKeys(session, keys)) {
+      dtosByKey.put(dto.getKey(), dto);
+    }
+    List<Issue> issues = newArrayList();
+    for (String key : keys) {
+      IssueDto dto = dtosByKey.get(key);
+      // issue may have been deleted from database since it was indexed
+      if (dto != null) {
+        issues.add(dto.toDefaultIssue());
+      }
+    }
+    return issues;
   }
 
-  private void writeResponse(Request request, SearchResult<IssueDoc> result, JsonWriter json) {
+  private void writeResponse(Request request, SearchResult<Issue> result, JsonWriter json) {
     List<String> issueKeys = newArrayList();
     Set<RuleKey> ruleKeys = newHashSet();
     Set<String> projectUuids = newHashSet();
@@ -321,17 +352,17 @@ public class SearchAction implements IssuesWsAction {
     List<ComponentDto> projectDtos = Lists.newArrayList();
     Map<String, ComponentDto> projectsByComponentUuid = newHashMap();
 
-    for (IssueDoc issueDoc : result.getDocs()) {
-      issueKeys.add(issueDoc.key());
-      ruleKeys.add(issueDoc.ruleKey());
-      projectUuids.add(issueDoc.projectUuid());
-      componentUuids.add(issueDoc.componentUuid());
-      actionPlanKeys.add(issueDoc.actionPlanKey());
-      if (issueDoc.reporter() != null) {
-        userLogins.add(issueDoc.reporter());
+    for (Issue issue : result.getDocs()) {
+      issueKeys.add(issue.key());
+      ruleKeys.add(issue.ruleKey());
+      projectUuids.add(issue.projectUuid());
+      componentUuids.add(issue.componentUuid());
+      actionPlanKeys.add(issue.actionPlanKey());
+      if (issue.reporter() != null) {
+        userLogins.add(issue.reporter());
       }
-      if (issueDoc.assignee() != null) {
-        userLogins.add(issueDoc.assignee());
+      if (issue.assignee() != null) {
+        userLogins.add(issue.assignee());
       }
     }
 
@@ -372,7 +403,7 @@ public class SearchAction implements IssuesWsAction {
     writeLanguages(json);
   }
 
-  private static void collectRuleKeys(Request request, SearchResult<IssueDoc> result, Set<RuleKey> ruleKeys) {
+  private static void collectRuleKeys(Request request, SearchResult<Issue> result, Set<RuleKey> ruleKeys) {
     Set<String> facetRules = result.getFacets().getBucketKeys(IssueFilterParameters.RULES);
     if (facetRules != null) {
       for (String rule : facetRules) {
@@ -387,7 +418,7 @@ public class SearchAction implements IssuesWsAction {
     }
   }
 
-  protected void writeFacets(Request request, SearchOptions options, SearchResult<IssueDoc> results, JsonWriter json) {
+  protected void writeFacets(Request request, SearchOptions options, SearchResult<Issue> results, JsonWriter json) {
     addMandatoryFacetValues(results, IssueFilterParameters.SEVERITIES, Severity.ALL);
     addMandatoryFacetValues(results, IssueFilterParameters.STATUSES, Issue.STATUSES);
     List<String> resolutions = Lists.newArrayList("");
@@ -440,7 +471,7 @@ public class SearchAction implements IssuesWsAction {
     json.endArray();
   }
 
-  private void collectFacetsData(Request request, SearchResult<IssueDoc> result, Set<String> projectUuids, Set<String> componentUuids, List<String> userLogins,
+  private void collectFacetsData(Request request, SearchResult<Issue> result, Set<String> projectUuids, Set<String> componentUuids, List<String> userLogins,
     Set<String> actionPlanKeys) {
     collectBucketKeys(result, IssueFilterParameters.PROJECT_UUIDS, projectUuids);
     collectParameterValues(request, IssueFilterParameters.PROJECT_UUIDS, projectUuids);
@@ -462,7 +493,7 @@ public class SearchAction implements IssuesWsAction {
     collectParameterValues(request, IssueFilterParameters.ACTION_PLANS, actionPlanKeys);
   }
 
-  private static void collectBucketKeys(SearchResult<IssueDoc> result, String facetName, Collection<String> bucketKeys) {
+  private static void collectBucketKeys(SearchResult<Issue> result, String facetName, Collection<String> bucketKeys) {
     bucketKeys.addAll(result.getFacets().getBucketKeys(facetName));
   }
 
@@ -490,12 +521,12 @@ public class SearchAction implements IssuesWsAction {
     json.endArray();
   }
 
-  private void writeIssues(SearchResult<IssueDoc> result, Multimap<String, DefaultIssueComment> commentsByIssues, Map<String, User> usersByLogin,
+  private void writeIssues(SearchResult<Issue> result, Multimap<String, DefaultIssueComment> commentsByIssues, Map<String, User> usersByLogin,
     Map<String, ActionPlan> actionPlanByKeys,
     Map<String, ComponentDto> componentsByUuid, Map<String, ComponentDto> projectsByComponentUuid, @Nullable List<String> extraFields, JsonWriter json) {
     json.name("issues").beginArray();
 
-    for (IssueDoc issue : result.getDocs()) {
+    for (Issue issue : result.getDocs()) {
       issueWriter.write(json, issue, usersByLogin, componentsByUuid, projectsByComponentUuid, commentsByIssues, actionPlanByKeys, extraFields);
     }
 
@@ -602,7 +633,7 @@ public class SearchAction implements IssuesWsAction {
     return null;
   }
 
-  protected void addMandatoryFacetValues(SearchResult<IssueDoc> results, String facetName, @Nullable List<String> mandatoryValues) {
+  protected void addMandatoryFacetValues(SearchResult<Issue> results, String facetName, @Nullable List<String> mandatoryValues) {
     Map<String, Long> buckets = results.getFacets().get(facetName);
     if (buckets != null && mandatoryValues != null) {
       for (String mandatoryValue : mandatoryValues) {
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.server.ServerSide;
 import org.sonar.core.component.SnapshotDto;
 import org.sonar.core.measure.db.MeasureDto;
@@ -56,6 +57,16 @@ public class MeasureDao implements DaoComponent {
     });
   }
 
+  /**
+   * Streams the measures of the last snapshots of a project, its modules and its directories, which are not
+   * associated to a rule, a characteristic or a developer. Results are instances of {@link MeasureDto}, with
+   * component key and metric id. Large data (column measure_data) is not loaded, so {@link MeasureDto#getData()}
+   * returns null when it does not fit in column text_value.
+   */
+  public void selectLastMeasuresByProjectUuid(DbSession session, String projectUuid, ResultHandler handler) {
+    mapper(session).selectLastMeasuresByProjectUuid(projectUuid, handler);
+  }
+
   public List<PastMeasureDto> selectByComponentUuidAndProjectSnapshotIdAndMetricIds(final DbSession session, final String componentUuid, final long projectSnapshotId,
     Set<Integer> metricIds) {
     return DaoUtils.executeLargeInputs(metricIds, new Function<List<Integer>, List<PastMeasureDto>>() {
@@ -67,6 +78,14 @@ public class MeasureDao implements DaoComponent {
     });
   }
 
+  /**
+   * Streams the measures of all the components of a processed project snapshot. Results are instances of
+   * {@link PastMeasureDto}, with component uuid.
+   */
+  public void selectByProjectSnapshotId(DbSession session, long projectSnapshotId, ResultHandler handler) {
+    mapper(session).selectByProjectSnapshotIdAndStatus(projectSnapshotId, SnapshotDto.STATUS_PROCESSED, handler);
+  }
+
   public void insert(DbSession session, MeasureDto measureDto) {
     mapper(session).insert(measureDto);
   }
@@ -37,6 +37,7 @@ import org.sonar.core.user.UserDto;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.user.UserSession;
 
@@ -58,14 +59,16 @@ public class InternalPermissionService {
   private final PermissionFacade permissionFacade;
   private final PermissionFinder finder;
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
+  private final IssueAuthorizationCache issueAuthorizationCache;
   private final UserSession userSession;
 
   public InternalPermissionService(DbClient dbClient, PermissionFacade permissionFacade, PermissionFinder finder,
-    IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession) {
+    IssueAuthorizationIndexer issueAuthorizationIndexer, IssueAuthorizationCache issueAuthorizationCache, UserSession userSession) {
     this.dbClient = dbClient;
     this.permissionFacade = permissionFacade;
     this.finder = finder;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
+    this.issueAuthorizationCache = issueAuthorizationCache;
     this.userSession = userSession;
   }
 
@@ -278,5 +281,7 @@ public class InternalPermissionService {
 
   private void indexProjectPermissions() {
     issueAuthorizationIndexer.index();
+    // the indexer may be disabled or may not have indexed anything
+    issueAuthorizationCache.invalidate();
   }
 }
@@ -29,6 +29,10 @@ import org.sonar.core.persistence.DatabaseVersion;
 import org.sonar.core.persistence.DbSession;
 import org.sonar.core.persistence.MyBatis;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.MetadataIndex;
+import org.sonar.server.es.MetadataIndexDefinition;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.search.IndexDefinition;
 import org.sonar.server.source.index.SourceLineIndexDefinition;
@@ -47,10 +51,14 @@ public class BackendCleanup {
   };
   private final EsClient esClient;
   private final MyBatis myBatis;
+  private final IssueFacetCache issueFacetCache;
+  private final IssueAuthorizationCache issueAuthorizationCache;
 
-  public BackendCleanup(EsClient esClient, MyBatis myBatis) {
+  public BackendCleanup(EsClient esClient, MyBatis myBatis, IssueFacetCache issueFacetCache, IssueAuthorizationCache issueAuthorizationCache) {
     this.esClient = esClient;
     this.myBatis = myBatis;
+    this.issueFacetCache = issueFacetCache;
+    this.issueAuthorizationCache = issueAuthorizationCache;
   }
 
   public void clearAll() {
@@ -94,6 +102,8 @@ public class BackendCleanup {
       esClient.prepareFlush(esClient.prepareState().get()
         .getState().getMetaData().concreteAllIndices())
         .get();
+      issueFacetCache.invalidate();
+      issueAuthorizationCache.invalidate();
     } catch (Exception e) {
       throw new IllegalStateException("Unable to clear indexes", e);
     }
@@ -165,6 +175,11 @@ public class BackendCleanup {
       .getState().getMetaData().concreteIndices(new String[] {indexName}))
       .setQuery(QueryBuilders.matchAllQuery())
       .get();
+    if (esClient.prepareIndicesExist(MetadataIndexDefinition.INDEX).get().isExists()) {
+      new MetadataIndex(esClient).deleteIndex(indexName);
+    }
+    issueFacetCache.invalidate();
+    issueAuthorizationCache.invalidate();
   }
 
   /**
@@ -26,7 +26,10 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.cluster.stats.ClusterStatsResponse;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.BulkIndexerStatistics;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.issue.index.IssueFacetCache;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -36,9 +39,11 @@ import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
 
   private final EsClient esClient;
+  private final IssueFacetCache issueFacetCache;
 
-  public EsMonitor(EsClient esClient) {
+  public EsMonitor(EsClient esClient, IssueFacetCache issueFacetCache) {
     this.esClient = esClient;
+    this.issueFacetCache = issueFacetCache;
   }
 
   @Override
@@ -71,6 +76,35 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     attributes.put("Indices", indexAttributes());
     attributes.put("Number of Nodes", getNumberOfNodes());
     attributes.put("Nodes", nodeAttributes());
+    attributes.put("Bulk Indexing", bulkIndexingAttributes());
+    attributes.put("Issue Facets Cache", issueFacetCacheAttributes());
+    return attributes;
+  }
+
+  /**
+   * Usage of the cache of issue facets since startup
+   */
+  private LinkedHashMap<String, Object> issueFacetCacheAttributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Hits", issueFacetCache.getHits());
+    attributes.put("Misses", issueFacetCache.getMisses());
+    attributes.put("Size", issueFacetCache.size());
+    return attributes;
+  }
+
+  /**
+   * Statistics of the bulk requests sent by server since startup
+   */
+  private static LinkedHashMap<String, Object> bulkIndexingAttributes() {
+    BulkIndexerStatistics statistics = BulkIndexer.STATISTICS;
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Indexed Docs", statistics.getDocs());
+    attributes.put("Sent Data", byteCountToDisplaySize(statistics.getBytes()));
+    attributes.put("Last Throughput (docs/s)", statistics.getLastDocsPerSecond());
+    attributes.put("Last Throughput (bytes/s)", statistics.getLastBytesPerSecond());
+    attributes.put("Rejections", statistics.getRejections());
+    attributes.put("Retries", statistics.getRetries());
+    attributes.put("Failures", statistics.getFailures());
     return attributes;
   }
 
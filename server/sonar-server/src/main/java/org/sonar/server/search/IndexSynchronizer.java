@@ -19,7 +19,21 @@
  */
 package org.sonar.server.search;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -27,6 +41,7 @@ import org.sonar.core.persistence.DbSession;
 import org.sonar.server.activity.index.ActivityIndexer;
 import org.sonar.server.db.Dao;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndex;
@@ -34,6 +49,7 @@ import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.source.index.SourceLineIndexer;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.util.ProgressLogger;
 import org.sonar.server.view.index.ViewIndexer;
 
 public class IndexSynchronizer {
@@ -82,26 +98,51 @@ public class IndexSynchronizer {
     }
   }
 
+  /**
+   * Indexers are executed concurrently, except {@link IssueAuthorizationIndexer} which must be executed
+   * before {@link IssueIndexer}. Each indexer is still bounded by the concurrent requests of its
+   * {@link org.sonar.server.es.BulkIndexer}.
+   */
   public void execute() {
     if (!settings.getBoolean("sonar.internal.es.disableIndexes")) {
-      LOG.info("Index activities");
-      activityIndexer.setEnabled(true).index();
-
-      LOG.info("Index issues");
-      issueAuthorizationIndexer.setEnabled(true).index();
-      issueIndexer.setEnabled(true).index();
-
-      LOG.info("Index source lines");
-      sourceLineIndexer.setEnabled(true).index();
-
-      LOG.info("Index tests");
-      testIndexer.setEnabled(true).index();
-
-      LOG.info("Index users");
-      userIndexer.setEnabled(true).index();
+      List<IndexingTask> tasks = Arrays.asList(
+        new IndexingTask("activities", activityIndexer),
+        new IndexingTask("issues", issueAuthorizationIndexer, issueIndexer),
+        new IndexingTask("source lines", sourceLineIndexer),
+        new IndexingTask("tests", testIndexer),
+        new IndexingTask("users", userIndexer),
+        new IndexingTask("views", viewIndexer));
+      execute(tasks, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+    }
+  }
 
-      LOG.info("Index views");
-      viewIndexer.setEnabled(true).index();
+  @VisibleForTesting
+  void execute(List<IndexingTask> tasks, int threads) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("IndexSynchronizer-%d").build());
+    Timer timer = new Timer("IndexSynchronizerProgress", true);
+    timer.schedule(new ProgressTask(tasks), ProgressLogger.DEFAULT_PERIOD_MS, ProgressLogger.DEFAULT_PERIOD_MS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (IndexingTask task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      // wait for all the tasks, even if one of them fails
+      Throwable failure = null;
+      for (Future<?> future : futures) {
+        try {
+          Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+      }
+      if (failure != null) {
+        throw Throwables.propagate(failure);
+      }
+    } finally {
+      timer.cancel();
+      executor.shutdown();
     }
   }
 
@@ -115,4 +156,54 @@ public class IndexSynchronizer {
       dao.synchronizeAfter(session, lastSynch);
     }
   }
+
+  @VisibleForTesting
+  static class IndexingTask implements Runnable {
+    private final String label;
+    private final List<BaseIndexer> indexers;
+    private volatile long startedAt = 0L;
+    private volatile long finishedAt = 0L;
+
+    IndexingTask(String label, BaseIndexer... indexers) {
+      this.label = label;
+      this.indexers = Arrays.asList(indexers);
+    }
+
+    @Override
+    public void run() {
+      startedAt = System.currentTimeMillis();
+      LOG.info("Index {}", label);
+      try {
+        for (BaseIndexer indexer : indexers) {
+          indexer.setEnabled(true).index();
+        }
+      } finally {
+        finishedAt = System.currentTimeMillis();
+        LOG.info("Index {} (done) | time={}ms", label, finishedAt - startedAt);
+      }
+    }
+  }
+
+  private static class ProgressTask extends TimerTask {
+    private final List<IndexingTask> tasks;
+
+    private ProgressTask(List<IndexingTask> tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    public void run() {
+      long now = System.currentTimeMillis();
+      int done = 0;
+      List<String> running = new ArrayList<>();
+      for (IndexingTask task : tasks) {
+        if (task.finishedAt > 0L) {
+          done++;
+        } else if (task.startedAt > 0L) {
+          running.add(String.format("%s (%ds)", task.label, (now - task.startedAt) / 1000L));
+        }
+      }
+      LOG.info("{}/{} indexes populated. In progress: {}", done, tasks.size(), Joiner.on(", ").join(running));
+    }
+  }
 }
@@ -26,21 +26,25 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.db.IdRange;
 
 public class FileSourcesUpdaterHelper {
 
   private static final String SQL_ALL = "SELECT %s FROM file_sources WHERE data_type='%s' ";
   private static final String AFTER_DATE_FILTER = " AND updated_at>?";
   private static final String PROJECT_FILTER = " AND project_uuid=?";
+  private static final String ID_RANGE_FILTER = " AND id>=? AND id<?";
 
   private static final String[] FIELDS = {
     "project_uuid",
     "file_uuid",
     "updated_at",
-    "binary_data"
+    "binary_data",
+    "previous_line_count"
   };
   private static final String FIELDS_ONE_LINE = Joiner.on(",").join(FIELDS);
 
@@ -64,6 +68,22 @@ public class FileSourcesUpdaterHelper {
     return stmt;
   }
 
+  public static PreparedStatement preparedStatementToSelectFileSources(DbClient dbClient, Connection connection, String dataType, IdRange range)
+    throws SQLException {
+    String sql = String.format(SQL_ALL, FIELDS_ONE_LINE, dataType) + ID_RANGE_FILTER;
+    PreparedStatement stmt = dbClient.newScrollingSingleRowSelectStatement(connection, sql);
+    stmt.setLong(1, range.getFrom());
+    stmt.setLong(2, range.getTo());
+    return stmt;
+  }
+
+  /**
+   * Condition to be used when splitting table FILE_SOURCES with {@link IdRange#split(DbClient, String, String, int)}
+   */
+  public static String dataTypeCondition(String dataType) {
+    return String.format("data_type='%s'", dataType);
+  }
+
   private static String createSQL(String dataType, long afterDate, @Nullable String projectUuid) {
     StringBuilder sql = new StringBuilder(String.format(SQL_ALL, FIELDS_ONE_LINE, dataType));
     if (afterDate > 0L || projectUuid != null) {
@@ -82,6 +102,7 @@ public class FileSourcesUpdaterHelper {
     private final String projectUuid;
     private final long updatedAt;
     private final List<UpdateRequest> updateRequests = new ArrayList<>();
+    private Integer previousLineCount;
 
     public Row(String projectUuid, String fileUuid, long updatedAt) {
       this.projectUuid = projectUuid;
@@ -104,5 +125,19 @@ public class FileSourcesUpdaterHelper {
     public List<UpdateRequest> getUpdateRequests() {
       return updateRequests;
     }
+
+    /**
+     * Number of lines before the last update of the file, or null if unknown (rows persisted
+     * before the column FILE_SOURCES.PREVIOUS_LINE_COUNT was introduced).
+     */
+    @CheckForNull
+    public Integer getPreviousLineCount() {
+      return previousLineCount;
+    }
+
+    public Row setPreviousLineCount(@Nullable Integer previousLineCount) {
+      this.previousLineCount = previousLineCount;
+      return this;
+    }
   }
 }
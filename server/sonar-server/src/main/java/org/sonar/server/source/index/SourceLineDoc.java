@@ -21,7 +21,6 @@ package org.sonar.server.source.index;
 
 import com.google.common.collect.ImmutableList;
 import org.sonar.server.search.BaseDoc;
-import org.sonar.server.search.IndexUtils;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -90,7 +89,7 @@ public class SourceLineDoc extends BaseDoc {
 
   @CheckForNull
   public Date scmDate() {
-    return IndexUtils.parseDateTime(this.<String>getNullableField(SourceLineIndexDefinition.FIELD_SCM_DATE));
+    return getNullableFieldAsDate(SourceLineIndexDefinition.FIELD_SCM_DATE);
   }
 
   public SourceLineDoc setScmDate(@Nullable Date scmDate) {
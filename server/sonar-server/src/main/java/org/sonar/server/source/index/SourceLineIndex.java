@@ -20,17 +20,22 @@
 package org.sonar.server.source.index;
 
 import com.google.common.collect.Lists;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Base64;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.api.config.Settings;
+import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.exceptions.NotFoundException;
-
-import javax.annotation.CheckForNull;
-import java.util.Date;
-import java.util.List;
+import org.sonar.server.source.db.FileSourceDb;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -38,8 +43,11 @@ public class SourceLineIndex extends BaseIndex {
 
   private static final int MAX_RESULT = 500000;
 
-  public SourceLineIndex(EsClient esClient) {
+  private final boolean compact;
+
+  public SourceLineIndex(EsClient esClient, Settings settings) {
     super(esClient);
+    this.compact = SourceLineIndexDefinition.isCompactLayout(settings);
   }
 
   /**
@@ -61,6 +69,9 @@ public class SourceLineIndex extends BaseIndex {
       size = MAX_RESULT;
     }
     int toLimited = size + from - 1;
+    if (compact) {
+      return getLinesFromBlocks(fileUuid, from, toLimited);
+    }
 
     for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
       .setTypes(SourceLineIndexDefinition.TYPE)
@@ -82,6 +93,9 @@ public class SourceLineIndex extends BaseIndex {
    * Get lines of code for file with UUID <code>fileUuid</code>.
    */
   public List<SourceLineDoc> getLines(String fileUuid) {
+    if (compact) {
+      return getLinesFromBlocks(fileUuid, 1, MAX_RESULT);
+    }
     List<SourceLineDoc> lines = Lists.newArrayList();
 
     for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
@@ -98,6 +112,13 @@ public class SourceLineIndex extends BaseIndex {
 
   public SourceLineDoc getLine(String fileUuid, int line) {
     checkArgument(line > 0, "Line should be greater than 0");
+    if (compact) {
+      List<SourceLineDoc> lines = getLinesFromBlocks(fileUuid, line, line);
+      if (lines.size() == 1) {
+        return lines.get(0);
+      }
+      throw new NotFoundException(String.format("No source found on line %s for file '%s'", line, fileUuid));
+    }
     SearchRequestBuilder request = getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
       .setTypes(SourceLineIndexDefinition.TYPE)
       .setSize(1)
@@ -118,7 +139,7 @@ public class SourceLineIndex extends BaseIndex {
   @CheckForNull
   public Date lastCommitDateOnProject(String projectUuid) {
     SearchRequestBuilder request = getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(compact ? SourceLineIndexDefinition.TYPE_BLOCK : SourceLineIndexDefinition.TYPE)
       .setSize(1)
       .setQuery(QueryBuilders.boolQuery()
         .must(QueryBuilders.termQuery(SourceLineIndexDefinition.FIELD_PROJECT_UUID, projectUuid)))
@@ -132,4 +153,61 @@ public class SourceLineIndex extends BaseIndex {
 
     return null;
   }
+
+  /**
+   * Lines between <code>from</code> and <code>to</code> (both inclusive) are decoded from the
+   * documents of type {@link SourceLineIndexDefinition#TYPE_BLOCK} that contain them.
+   */
+  private List<SourceLineDoc> getLinesFromBlocks(String fileUuid, int from, int to) {
+    int blocks = 1 + SourceLineIndexDefinition.blockIndex(to) - SourceLineIndexDefinition.blockIndex(from);
+    QueryBuilder query = QueryBuilders.boolQuery()
+      .must(QueryBuilders.termQuery(SourceLineIndexDefinition.FIELD_FILE_UUID, fileUuid))
+      .must(QueryBuilders.rangeQuery(SourceLineIndexDefinition.FIELD_BLOCK_FIRST_LINE).lte(to))
+      .must(QueryBuilders.rangeQuery(SourceLineIndexDefinition.FIELD_BLOCK_LAST_LINE).gte(from));
+
+    List<SourceLineDoc> lines = Lists.newArrayList();
+    for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
+      .setTypes(SourceLineIndexDefinition.TYPE_BLOCK)
+      .setSize(blocks)
+      .setQuery(query)
+      .addSort(SourceLineIndexDefinition.FIELD_BLOCK_FIRST_LINE, SortOrder.ASC)
+      .get().getHits().getHits()) {
+      Map<String, Object> fields = hit.sourceAsMap();
+      String projectUuid = (String) fields.get(SourceLineIndexDefinition.FIELD_PROJECT_UUID);
+      Object updatedAt = fields.get(SourceLineIndexDefinition.FIELD_UPDATED_AT);
+      FileSourceDb.Data block = FileSourceDto.decodeSourceData(Base64.decodeBase64((String) fields.get(SourceLineIndexDefinition.FIELD_BLOCK_DATA)));
+      for (FileSourceDb.Line line : block.getLinesList()) {
+        if (line.getLine() >= from && line.getLine() <= to) {
+          lines.add(toDoc(projectUuid, fileUuid, updatedAt, line));
+        }
+      }
+    }
+    return lines;
+  }
+
+  private static SourceLineDoc toDoc(String projectUuid, String fileUuid, Object updatedAt, FileSourceDb.Line line) {
+    SourceLineDoc doc = new SourceLineDoc()
+      .setProjectUuid(projectUuid)
+      .setFileUuid(fileUuid)
+      .setLine(line.getLine())
+      .setScmRevision(line.getScmRevision())
+      .setScmAuthor(line.getScmAuthor())
+      .setScmDate(line.hasScmDate() ? new Date(line.getScmDate()) : null)
+      .setUtLineHits(line.hasUtLineHits() ? line.getUtLineHits() : null)
+      .setUtConditions(line.hasUtConditions() ? line.getUtConditions() : null)
+      .setUtCoveredConditions(line.hasUtCoveredConditions() ? line.getUtCoveredConditions() : null)
+      .setItLineHits(line.hasItLineHits() ? line.getItLineHits() : null)
+      .setItConditions(line.hasItConditions() ? line.getItConditions() : null)
+      .setItCoveredConditions(line.hasItCoveredConditions() ? line.getItCoveredConditions() : null)
+      .setOverallLineHits(line.hasOverallLineHits() ? line.getOverallLineHits() : null)
+      .setOverallConditions(line.hasOverallConditions() ? line.getOverallConditions() : null)
+      .setOverallCoveredConditions(line.hasOverallCoveredConditions() ? line.getOverallCoveredConditions() : null)
+      .setHighlighting(line.hasHighlighting() ? line.getHighlighting() : null)
+      .setSymbols(line.hasSymbols() ? line.getSymbols() : null)
+      .setDuplications(line.getDuplicationList())
+      .setSource(line.hasSource() ? line.getSource() : null);
+    // same format as documents of type sourceline: formatted date
+    doc.setField(SourceLineIndexDefinition.FIELD_UPDATED_AT, updatedAt);
+    return doc;
+  }
 }
@@ -28,6 +28,7 @@ public class SourceLineIndexDefinition implements IndexDefinition {
 
   public static final String INDEX = "sourcelines";
   public static final String TYPE = "sourceline";
+  public static final String TYPE_BLOCK = "sourceblock";
   public static final String FIELD_PROJECT_UUID = "projectUuid";
   public static final String FIELD_FILE_UUID = "fileUuid";
   public static final String FIELD_LINE = "line";
@@ -48,6 +49,23 @@ public class SourceLineIndexDefinition implements IndexDefinition {
   public static final String FIELD_SYMBOLS = "symbols";
   public static final String FIELD_DUPLICATIONS = "duplications";
   public static final String FIELD_UPDATED_AT = "updatedAt";
+  public static final String FIELD_BLOCK_FIRST_LINE = "firstLine";
+  public static final String FIELD_BLOCK_LAST_LINE = "lastLine";
+  public static final String FIELD_BLOCK_DATA = "blockData";
+
+  /**
+   * When enabled, lines are not indexed in documents of type {@link #TYPE} (one document per line) but
+   * in documents of type {@link #TYPE_BLOCK}. Each of these documents stores a block of {@link #BLOCK_SIZE}
+   * consecutive lines of a file in a binary field. Changing this property drops the index and
+   * triggers a full re-indexing at next startup.
+   */
+  public static final String COMPACT_LAYOUT_PROPERTY = "sonar.search.compactSourceLines";
+
+  /**
+   * Number of lines per document of type {@link #TYPE_BLOCK}. Block i (zero-based) of a file
+   * contains the lines [i*BLOCK_SIZE+1, (i+1)*BLOCK_SIZE].
+   */
+  public static final int BLOCK_SIZE = 500;
 
   private final Settings settings;
 
@@ -62,6 +80,14 @@ public class SourceLineIndexDefinition implements IndexDefinition {
     index.refreshHandledByIndexer();
     index.setShards(settings);
 
+    if (isCompactLayout(settings)) {
+      defineBlockType(index);
+    } else {
+      defineLineType(index);
+    }
+  }
+
+  private static void defineLineType(NewIndex index) {
     // type "sourceline"
     NewIndex.NewIndexType mapping = index.createType(TYPE);
     mapping.setAttribute("_routing", ImmutableMap.of("required", true, "path", FIELD_PROJECT_UUID));
@@ -87,6 +113,43 @@ public class SourceLineIndexDefinition implements IndexDefinition {
     mapping.createDateTimeField(FIELD_UPDATED_AT);
   }
 
+  private static void defineBlockType(NewIndex index) {
+    // type "sourceblock"
+    NewIndex.NewIndexType mapping = index.createType(TYPE_BLOCK);
+    mapping.setAttribute("_routing", ImmutableMap.of("required", true, "path", FIELD_PROJECT_UUID));
+    mapping.setAttribute("_all", ImmutableMap.of("enabled", false));
+    mapping.stringFieldBuilder(FIELD_PROJECT_UUID).build();
+    mapping.stringFieldBuilder(FIELD_FILE_UUID).build();
+    mapping.createIntegerField(FIELD_BLOCK_FIRST_LINE);
+    mapping.createIntegerField(FIELD_BLOCK_LAST_LINE);
+    // most recent SCM date of the lines of the block
+    mapping.createDateTimeField(FIELD_SCM_DATE);
+    mapping.createBinaryField(FIELD_BLOCK_DATA);
+    mapping.createDateTimeField(FIELD_UPDATED_AT);
+  }
+
+  public static boolean isCompactLayout(Settings settings) {
+    return settings.getBoolean(COMPACT_LAYOUT_PROPERTY);
+  }
+
+  /**
+   * Type of the documents of the index, depending on {@link #COMPACT_LAYOUT_PROPERTY}
+   */
+  public static String indexedType(Settings settings) {
+    return isCompactLayout(settings) ? TYPE_BLOCK : TYPE;
+  }
+
+  /**
+   * Zero-based index of the block containing the given line
+   */
+  public static int blockIndex(int line) {
+    return (line - 1) / BLOCK_SIZE;
+  }
+
+  public static String blockKey(String fileUuid, int blockIndex) {
+    return String.format("%s_b%d", fileUuid, blockIndex);
+  }
+
   public static String docKey(String fileUuid, int line) {
     return String.format("%s_%d", fileUuid, line);
   }
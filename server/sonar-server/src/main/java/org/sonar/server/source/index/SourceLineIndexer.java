@@ -19,12 +19,16 @@
  */
 package org.sonar.server.source.index;
 
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.sonar.api.config.Settings;
 import org.sonar.core.persistence.DbSession;
+import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.db.IdRange;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
@@ -33,6 +37,7 @@ import javax.annotation.Nullable;
 
 import java.sql.Connection;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_FILE_UUID;
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_PROJECT_UUID;
@@ -44,10 +49,14 @@ import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_PROJ
 public class SourceLineIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final boolean compact;
+  private final String type;
 
-  public SourceLineIndexer(DbClient dbClient, EsClient esClient) {
-    super(esClient, 0L, SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE, SourceLineIndexDefinition.FIELD_UPDATED_AT);
+  public SourceLineIndexer(DbClient dbClient, EsClient esClient, Settings settings) {
+    super(esClient, 0L, SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.indexedType(settings), SourceLineIndexDefinition.FIELD_UPDATED_AT);
     this.dbClient = dbClient;
+    this.compact = SourceLineIndexDefinition.isCompactLayout(settings);
+    this.type = SourceLineIndexDefinition.indexedType(settings);
   }
 
   public void index(final String projectUuid){
@@ -67,11 +76,14 @@ public class SourceLineIndexer extends BaseIndexer {
   private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
     final BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
     bulk.setLarge(lastUpdatedAt == 0L);
+    if (lastUpdatedAt == 0L && projectUuid == null) {
+      return doIndexPartitions(bulk);
+    }
 
     DbSession dbSession = dbClient.openSession(false);
     Connection dbConnection = dbSession.getConnection();
     try {
-      SourceLineResultSetIterator rowIt = SourceLineResultSetIterator.create(dbClient, dbConnection, lastUpdatedAt, projectUuid);
+      SourceLineResultSetIterator rowIt = SourceLineResultSetIterator.create(dbClient, dbConnection, lastUpdatedAt, projectUuid, compact);
       long maxUpdatedAt = doIndex(bulk, rowIt);
       rowIt.close();
       return maxUpdatedAt;
@@ -81,23 +93,58 @@ public class SourceLineIndexer extends BaseIndexer {
     }
   }
 
+  /**
+   * Full indexing. Table FILE_SOURCES is split into ranges of ids that are read concurrently, so that
+   * decoding of data is not done by a single thread.
+   */
+  private long doIndexPartitions(final BulkIndexer bulk) {
+    List<IdRange> ranges = IdRange.split(dbClient, "file_sources", FileSourcesUpdaterHelper.dataTypeCondition(FileSourceDto.Type.SOURCE), FULL_INDEXING_PARTITIONS);
+    bulk.start();
+    long maxUpdatedAt = indexPartitions(ranges, new PartitionTask() {
+      @Override
+      public long index(IdRange range) {
+        DbSession dbSession = dbClient.openSession(false);
+        SourceLineResultSetIterator rowIt = null;
+        try {
+          rowIt = SourceLineResultSetIterator.create(dbClient, dbSession.getConnection(), range, compact);
+          // index is empty, there are no obsolete lines to delete
+          return addAll(bulk, rowIt, false);
+        } finally {
+          if (rowIt != null) {
+            rowIt.close();
+          }
+          dbSession.close();
+        }
+      }
+    });
+    bulk.stop();
+    return maxUpdatedAt;
+  }
+
   public long index(Iterator<FileSourcesUpdaterHelper.Row> dbRows) {
     BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
     return doIndex(bulk, dbRows);
   }
 
   private long doIndex(BulkIndexer bulk, Iterator<FileSourcesUpdaterHelper.Row> dbRows) {
-    long maxUpdatedAt = 0L;
     bulk.start();
+    long maxUpdatedAt = addAll(bulk, dbRows, true);
+    bulk.stop();
+    return maxUpdatedAt;
+  }
+
+  private long addAll(BulkIndexer bulk, Iterator<FileSourcesUpdaterHelper.Row> dbRows, boolean deleteObsoleteLines) {
+    long maxUpdatedAt = 0L;
     while (dbRows.hasNext()) {
       FileSourcesUpdaterHelper.Row row = dbRows.next();
-      addDeleteRequestsForLinesGreaterThan(bulk, row);
+      if (deleteObsoleteLines) {
+        addDeleteRequestsForLinesGreaterThan(bulk, row);
+      }
       for (UpdateRequest updateRequest : row.getUpdateRequests()) {
         bulk.add(updateRequest);
       }
       maxUpdatedAt = Math.max(maxUpdatedAt, row.getUpdatedAt());
     }
-    bulk.stop();
     return maxUpdatedAt;
   }
 
@@ -106,9 +153,23 @@ public class SourceLineIndexer extends BaseIndexer {
    * - file had 10 lines in previous analysis
    * - same file has now 5 lines
    * Lines 6 to 10 must be removed from index.
+   * When the previous number of lines is known, documents are deleted by id. Otherwise they
+   * are searched, which is much slower.
    */
   private void addDeleteRequestsForLinesGreaterThan(BulkIndexer bulk, FileSourcesUpdaterHelper.Row fileRow) {
+    if (compact) {
+      addDeleteRequestsForBlocksGreaterThan(bulk, fileRow);
+      return;
+    }
     int numberOfLines = fileRow.getUpdateRequests().size();
+    Integer previousLineCount = fileRow.getPreviousLineCount();
+    if (previousLineCount != null) {
+      for (int line = numberOfLines + 1; line <= previousLineCount; line++) {
+        bulk.add(new DeleteRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE, SourceLineIndexDefinition.docKey(fileRow.getFileUuid(), line))
+          .routing(fileRow.getProjectUuid()));
+      }
+      return;
+    }
     SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
       .setTypes(SourceLineIndexDefinition.TYPE)
       .setRouting(fileRow.getProjectUuid())
@@ -122,10 +183,39 @@ public class SourceLineIndexer extends BaseIndexer {
     bulk.addDeletion(searchRequest);
   }
 
+  /**
+   * Same as {@link #addDeleteRequestsForLinesGreaterThan(BulkIndexer, FileSourcesUpdaterHelper.Row)} for
+   * documents of type {@link SourceLineIndexDefinition#TYPE_BLOCK}. Blocks are aligned on
+   * {@link SourceLineIndexDefinition#BLOCK_SIZE}, so the blocks to be removed are deduced from the number of lines.
+   */
+  private void addDeleteRequestsForBlocksGreaterThan(BulkIndexer bulk, FileSourcesUpdaterHelper.Row fileRow) {
+    int numberOfBlocks = fileRow.getUpdateRequests().size();
+    Integer previousLineCount = fileRow.getPreviousLineCount();
+    if (previousLineCount != null) {
+      int previousNumberOfBlocks = previousLineCount == 0 ? 0 : (SourceLineIndexDefinition.blockIndex(previousLineCount) + 1);
+      for (int blockIndex = numberOfBlocks; blockIndex < previousNumberOfBlocks; blockIndex++) {
+        bulk.add(new DeleteRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE_BLOCK, SourceLineIndexDefinition.blockKey(fileRow.getFileUuid(), blockIndex))
+          .routing(fileRow.getProjectUuid()));
+      }
+      return;
+    }
+    SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
+      .setTypes(SourceLineIndexDefinition.TYPE_BLOCK)
+      .setRouting(fileRow.getProjectUuid())
+      .setQuery(QueryBuilders.filteredQuery(
+        QueryBuilders.matchAllQuery(),
+        FilterBuilders.boolFilter()
+          .must(FilterBuilders.termFilter(FIELD_FILE_UUID, fileRow.getFileUuid()).cache(false))
+          .must(FilterBuilders.rangeFilter(SourceLineIndexDefinition.FIELD_BLOCK_FIRST_LINE).gt(numberOfBlocks * SourceLineIndexDefinition.BLOCK_SIZE).cache(false))
+          .cache(false)
+      ));
+    bulk.addDeletion(searchRequest);
+  }
+
   public void deleteByFile(String fileUuid) {
     // TODO would be great to have the projectUuid for routing
     SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(type)
       .setQuery(QueryBuilders.filteredQuery(
         QueryBuilders.matchAllQuery(),
         FilterBuilders.termFilter(FIELD_FILE_UUID, fileUuid).cache(false)));
@@ -135,7 +225,7 @@ public class SourceLineIndexer extends BaseIndexer {
   public void deleteByProject(String projectUuid) {
     SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
       .setRouting(projectUuid)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(type)
       .setQuery(QueryBuilders.filteredQuery(
         QueryBuilders.matchAllQuery(),
         FilterBuilders.termFilter(FIELD_PROJECT_UUID, projectUuid).cache(false)));
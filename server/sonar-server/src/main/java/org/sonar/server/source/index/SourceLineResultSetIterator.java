@@ -19,10 +19,12 @@
  */
 package org.sonar.server.source.index;
 
+import org.apache.commons.codec.binary.Base64;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.source.db.FileSourceDto;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.db.IdRange;
 import org.sonar.server.db.ResultSetIterator;
 import org.sonar.server.es.EsUtils;
 import org.sonar.server.source.db.FileSourceDb;
@@ -46,17 +48,32 @@ import static org.sonar.server.source.index.FileSourcesUpdaterHelper.Row;
  */
 public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUpdaterHelper.Row> {
 
-  public static SourceLineResultSetIterator create(DbClient dbClient, Connection connection, long afterDate, @Nullable String projectUuid) {
+  /**
+   * @param compact if true, rows are converted to documents of type {@link SourceLineIndexDefinition#TYPE_BLOCK},
+   *                else to documents of type {@link SourceLineIndexDefinition#TYPE}
+   */
+  public static SourceLineResultSetIterator create(DbClient dbClient, Connection connection, long afterDate, @Nullable String projectUuid, boolean compact) {
     try {
       return new SourceLineResultSetIterator(FileSourcesUpdaterHelper.preparedStatementToSelectFileSources(dbClient, connection, FileSourceDto.Type.SOURCE, afterDate,
-        projectUuid));
+        projectUuid), compact);
     } catch (SQLException e) {
       throw new IllegalStateException("Fail to prepare SQL request to select all file sources", e);
     }
   }
 
-  private SourceLineResultSetIterator(PreparedStatement stmt) throws SQLException {
+  public static SourceLineResultSetIterator create(DbClient dbClient, Connection connection, IdRange range, boolean compact) {
+    try {
+      return new SourceLineResultSetIterator(FileSourcesUpdaterHelper.preparedStatementToSelectFileSources(dbClient, connection, FileSourceDto.Type.SOURCE, range), compact);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select file sources of range " + range, e);
+    }
+  }
+
+  private final boolean compact;
+
+  private SourceLineResultSetIterator(PreparedStatement stmt, boolean compact) throws SQLException {
     super(stmt);
+    this.compact = compact;
   }
 
   @Override
@@ -65,7 +82,9 @@ public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUp
     String fileUuid = rs.getString(2);
     Date updatedAt = new Date(rs.getLong(3));
     FileSourceDb.Data data = FileSourceDto.decodeSourceData(rs.getBinaryStream(4));
-    return toRow(projectUuid, fileUuid, updatedAt, data);
+    int previousLineCount = rs.getInt(5);
+    Row row = compact ? toBlockRow(projectUuid, fileUuid, updatedAt, data) : toRow(projectUuid, fileUuid, updatedAt, data);
+    return row.setPreviousLineCount(rs.wasNull() ? null : previousLineCount);
   }
 
   /**
@@ -166,4 +185,56 @@ public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUp
     }
     return result;
   }
+
+  /**
+   * Convert protobuf message to the documents of type {@link SourceLineIndexDefinition#TYPE_BLOCK}. Lines
+   * are grouped by blocks of {@link SourceLineIndexDefinition#BLOCK_SIZE} and each block is stored
+   * as a compressed protobuf message.
+   */
+  public static Row toBlockRow(String projectUuid, String fileUuid, Date updatedAt, FileSourceDb.Data data) {
+    Row result = new Row(projectUuid, fileUuid, updatedAt.getTime());
+    FileSourceDb.Data.Builder blockBuilder = FileSourceDb.Data.newBuilder();
+    int blockIndex = -1;
+    for (FileSourceDb.Line line : data.getLinesList()) {
+      int lineBlockIndex = SourceLineIndexDefinition.blockIndex(line.getLine());
+      if (lineBlockIndex != blockIndex && blockBuilder.getLinesCount() > 0) {
+        result.getUpdateRequests().add(toBlockRequest(projectUuid, fileUuid, updatedAt, blockIndex, blockBuilder.build()));
+        blockBuilder.clear();
+      }
+      blockIndex = lineBlockIndex;
+      blockBuilder.addLines(line);
+    }
+    if (blockBuilder.getLinesCount() > 0) {
+      result.getUpdateRequests().add(toBlockRequest(projectUuid, fileUuid, updatedAt, blockIndex, blockBuilder.build()));
+    }
+    return result;
+  }
+
+  private static UpdateRequest toBlockRequest(String projectUuid, String fileUuid, Date updatedAt, int blockIndex, FileSourceDb.Data block) {
+    Long maxScmDate = null;
+    for (FileSourceDb.Line line : block.getLinesList()) {
+      if (line.hasScmDate() && (maxScmDate == null || line.getScmDate() > maxScmDate)) {
+        maxScmDate = line.getScmDate();
+      }
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    // all the fields must be present, even if value is null
+    JsonWriter writer = JsonWriter.of(new OutputStreamWriter(bytes, StandardCharsets.UTF_8)).setSerializeNulls(true);
+    writer.beginObject();
+    writer.prop(SourceLineIndexDefinition.FIELD_PROJECT_UUID, projectUuid);
+    writer.prop(SourceLineIndexDefinition.FIELD_FILE_UUID, fileUuid);
+    writer.prop(SourceLineIndexDefinition.FIELD_BLOCK_FIRST_LINE, block.getLines(0).getLine());
+    writer.prop(SourceLineIndexDefinition.FIELD_BLOCK_LAST_LINE, block.getLines(block.getLinesCount() - 1).getLine());
+    writer.prop(SourceLineIndexDefinition.FIELD_UPDATED_AT, EsUtils.formatDateTime(updatedAt));
+    writer.prop(SourceLineIndexDefinition.FIELD_SCM_DATE, EsUtils.formatDateTime(maxScmDate == null ? null : new Date(maxScmDate)));
+    writer.prop(SourceLineIndexDefinition.FIELD_BLOCK_DATA, Base64.encodeBase64String(FileSourceDto.encodeSourceData(block)));
+    writer.endObject().close();
+
+    byte[] jsonDoc = bytes.toByteArray();
+    return new UpdateRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE_BLOCK, SourceLineIndexDefinition.blockKey(fileUuid, blockIndex))
+      .routing(projectUuid)
+      .doc(jsonDoc)
+      .upsert(jsonDoc);
+  }
 }
@@ -19,35 +19,50 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.Serializable;
-import org.apache.commons.io.FileUtils;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.server.util.CloseableIterator;
-import org.sonar.server.util.ObjectInputStreamIterator;
 
 /**
- * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * Append-only storage of objects on disk. No search capabilities, only traversal (full scan).
+ * <p/>
+ * Objects are encoded by a {@link DiskCacheCodec} into records written one after the other
+ * through a buffer. When compression is enabled, each {@link DiskAppender} writes its own
+ * GZIP member, so that file can still be appended by successive appenders.
  */
-public class DiskCache<O extends Serializable> {
+public class DiskCache<O> {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int RECORD_MARKER = 1;
 
   private final File file;
+  private final DiskCacheCodec<O> codec;
+  private final boolean compressed;
   private final System2 system2;
 
-  public DiskCache(File file, System2 system2) {
-    this.system2 = system2;
+  public DiskCache(File file, DiskCacheCodec<O> codec, boolean compressed, System2 system2) {
     this.file = file;
+    this.codec = codec;
+    this.compressed = compressed;
+    this.system2 = system2;
     OutputStream output = null;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
-      output.flush();
+      // truncates the file, as it may be provided by a temp folder reused between analysis
+      output = new FileOutputStream(file);
 
       // raise an exception if can't close
       system2.close(output);
@@ -63,33 +78,49 @@ public class DiskCache<O extends Serializable> {
   }
 
   public CloseableIterator<O> traverse() {
+    if (file.length() == 0L) {
+      return CloseableIterator.emptyCloseableIterator();
+    }
+    InputStream input = null;
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      input = new FileInputStream(file);
+      if (compressed) {
+        input = new GZIPInputStream(input, BUFFER_SIZE);
+      }
+      return new RecordIterator(new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE)));
     } catch (IOException e) {
+      IOUtils.closeQuietly(input);
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final DataOutputStream output;
 
     private DiskAppender() {
+      OutputStream fileOutput = null;
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() throws IOException {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        fileOutput = new FileOutputStream(file, true);
+        OutputStream stream = fileOutput;
+        if (compressed) {
+          stream = new GZIPOutputStream(fileOutput, BUFFER_SIZE) {
+            {
+              // cache is temporary, favor speed over size
+              def.setLevel(Deflater.BEST_SPEED);
+            }
+          };
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
       } catch (IOException e) {
+        IOUtils.closeQuietly(fileOutput);
         throw new IllegalStateException("Fail to open file " + file, e);
       }
     }
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        output.writeByte(RECORD_MARKER);
+        codec.write(object, output);
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -101,4 +132,35 @@ public class DiskCache<O extends Serializable> {
       system2.close(output);
     }
   }
+
+  private class RecordIterator extends CloseableIterator<O> {
+    private final DataInputStream input;
+
+    private RecordIterator(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        int marker = input.read();
+        if (marker == -1) {
+          return null;
+        }
+        if (marker != RECORD_MARKER) {
+          throw new IllegalStateException("Corrupted record in file " + file);
+        }
+        return codec.read(input);
+      } catch (EOFException e) {
+        throw new IllegalStateException("Unexpected end of file " + file, e);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
 }
@@ -17,24 +17,20 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.computation.batch;
+package org.sonar.server.util.cache;
 
-import java.io.File;
-import java.util.Objects;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
-public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
-  private File directory;
+/**
+ * Encodes and decodes the records of a {@link DiskCache}. Implementations must read exactly
+ * the bytes written by {@link #write(Object, DataOutput)}, as records are stored one after the other.
+ */
+public interface DiskCacheCodec<O> {
+
+  void write(O object, DataOutput output) throws IOException;
 
-  @Override
-  public void setDirectory(File newDirectory) {
-    this.directory = Objects.requireNonNull(newDirectory);
-  }
+  O read(DataInput input) throws IOException;
 
-  @Override
-  public File getDirectory() {
-    if (this.directory == null) {
-      throw new IllegalStateException("Directory has not been set yet");
-    }
-    return this.directory;
-  }
 }
@@ -30,6 +30,7 @@ import org.sonar.server.db.DbClient;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
 
 import static com.google.common.collect.Maps.newHashMap;
@@ -37,10 +38,12 @@ import static com.google.common.collect.Maps.newHashMap;
 public class ViewIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final IssueFacetCache issueFacetCache;
 
-  public ViewIndexer(DbClient dbClient, EsClient esClient) {
+  public ViewIndexer(DbClient dbClient, EsClient esClient, IssueFacetCache issueFacetCache) {
     super(esClient, 300, ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, "updatedAt");
     this.dbClient = dbClient;
+    this.issueFacetCache = issueFacetCache;
   }
 
   /**
@@ -98,6 +101,7 @@ public class ViewIndexer extends BaseIndexer {
     bulk.start();
     doIndex(bulk, viewDoc, true);
     bulk.stop();
+    issueFacetCache.invalidate();
   }
 
   private void index(DbSession dbSession, Map<String, String> viewAndProjectViewUuidMap, boolean needClearCache) {
@@ -111,6 +115,7 @@ public class ViewIndexer extends BaseIndexer {
         .setProjects(projects), needClearCache);
     }
     bulk.stop();
+    issueFacetCache.invalidate();
   }
 
   private void doIndex(BulkIndexer bulk, ViewDoc viewDoc, boolean needClearCache) {
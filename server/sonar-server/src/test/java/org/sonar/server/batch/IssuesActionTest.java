@@ -43,8 +43,10 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.db.IssueDao;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.issue.index.IssueAuthorizationDao;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
@@ -56,7 +58,9 @@ import org.sonar.test.DbTests;
 import javax.annotation.Nullable;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -95,9 +99,11 @@ public class IssuesActionTest {
 
     componentDao = new ComponentDao();
     DbClient dbClient = new DbClient(db.database(), db.myBatis(), new IssueDao(db.myBatis()), componentDao);
-    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule);
-    issueIndexer = new IssueIndexer(null, es.client());
-    issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, es.client());
+    IssueFacetCache facetCache = new IssueFacetCache();
+    IssueAuthorizationCache authorizationCache = new IssueAuthorizationCache(es.client());
+    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule, facetCache, authorizationCache);
+    issueIndexer = new IssueIndexer(null, es.client(), facetCache);
+    issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, es.client(), facetCache, authorizationCache);
     issuesAction = new IssuesAction(dbClient, issueIndex, userSessionRule);
 
     tester = new WsTester(new BatchWs(new BatchIndex(mock(Server.class)), issuesAction));
@@ -262,6 +268,35 @@ public class IssuesActionTest {
     assertThat(serverIssue.getAssigneeLogin()).isEqualTo("john");
   }
 
+  @Test
+  public void issues_from_several_files() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto("ABCD").setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto("BCDE", project).setKey(MODULE_KEY);
+    ComponentDto file1 = ComponentTesting.newFileDto(module, "CDEF").setKey("Action.java").setPath("src/org/struts/Action.java");
+    ComponentDto file2 = ComponentTesting.newFileDto(module, "DEFG").setKey("Form.java").setPath("src/org/struts/Form.java");
+    ComponentDto file3 = ComponentTesting.newFileDto(module, "EFGH").setKey("Mapping.java").setPath("src/org/struts/Mapping.java");
+    componentDao.insert(session, project, module, file1, file2, file3);
+    session.commit();
+
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file1).setRuleKey("squid:AvoidCycle"),
+      IssueTesting.newDoc("ISSUE2", file2).setRuleKey("squid:AvoidCycle"),
+      IssueTesting.newDoc("ISSUE3", file3).setRuleKey("squid:AvoidCycle"));
+
+    userSessionRule.login("henry").setGlobalPermissions(GlobalPermissions.PREVIEW_EXECUTION);
+
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues").setParam("keys", "Action.java,Form.java,Unknown.java");
+    ByteArrayInputStream input = new ByteArrayInputStream(request.execute().output());
+    List<String> issueKeys = new ArrayList<>();
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(input);
+    while (serverIssue != null) {
+      assertThat(serverIssue.getModuleKey()).isEqualTo(MODULE_KEY);
+      issueKeys.add(serverIssue.getKey());
+      serverIssue = ServerIssue.parseDelimitedFrom(input);
+    }
+    assertThat(issueKeys).containsOnly("ISSUE1", "ISSUE2");
+  }
+
   @Test
   public void issues_attached_on_module() throws Exception {
     ComponentDto project = ComponentTesting.newProjectDto("ABCD").setKey(PROJECT_KEY);
@@ -205,6 +205,19 @@ public class ComponentDaoTest {
     assertThat(sut.selectByKeys(session, Collections.singletonList("unknown"))).isEmpty();
   }
 
+  @Test
+  public void get_by_keys_partitions_large_inputs() {
+    loadBasicDataInDatabase();
+
+    List<String> keys = newArrayList();
+    for (int i = 0; i < 1500; i++) {
+      keys.add("unknown" + i);
+    }
+    keys.add("org.struts:struts-core:src/org/struts/RequestContext.java");
+
+    assertThat(sut.selectByKeys(session, keys)).extracting("kee").containsOnly("org.struts:struts-core:src/org/struts/RequestContext.java");
+  }
+
   @Test
   public void get_by_ids() {
     loadBasicDataInDatabase();
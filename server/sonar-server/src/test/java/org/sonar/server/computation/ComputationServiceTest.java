@@ -24,21 +24,25 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.core.computation.db.AnalysisReportDto.Status;
 import org.sonar.server.computation.activity.ActivityManager;
+import org.sonar.server.computation.activity.StepStatistics;
 import org.sonar.server.computation.step.ComputationStep;
 import org.sonar.server.computation.step.ComputationSteps;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -53,6 +57,7 @@ public class ComputationServiceTest {
   ComputationStep projectStep2 = mockStep();
   ComputationSteps steps = mock(ComputationSteps.class);
   ActivityManager activityManager = mock(ActivityManager.class);
+  ArgumentCaptor<List> statisticsCaptor = ArgumentCaptor.forClass(List.class);
   System2 system = mock(System2.class);
   AnalysisReportDto dto = AnalysisReportDto.newForTests(1L).setProjectKey("P1").setUuid("U1").setStatus(Status.PENDING);
   ComputationService sut;
@@ -81,7 +86,27 @@ public class ComputationServiceTest {
     // execute only the steps supporting the project qualifier
     verify(projectStep1).execute();
     verify(projectStep2).execute();
-    verify(activityManager).saveActivity(dto);
+    verify(activityManager).saveActivity(eq(dto), statisticsCaptor.capture());
+    assertThat(statisticsCaptor.getValue()).hasSize(2);
+    StepStatistics statistics = (StepStatistics) statisticsCaptor.getValue().get(0);
+    assertThat(statistics.getName()).isEqualTo(projectStep1.getClass().getSimpleName());
+    assertThat(statistics.getDurationMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(statistics.getSqlCount()).isEqualTo(0L);
+    assertThat(statistics.getEsCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void save_statistics_of_executed_steps_when_a_step_fails() throws Exception {
+    when(steps.instances()).thenReturn(Arrays.asList(projectStep1, projectStep2));
+    doThrow(new IllegalStateException("pb")).when(projectStep1).execute();
+
+    try {
+      sut.process();
+      fail();
+    } catch (IllegalStateException e) {
+      verify(activityManager).saveActivity(eq(dto), statisticsCaptor.capture());
+      assertThat(statisticsCaptor.getValue()).hasSize(1);
+    }
   }
 
   @Test
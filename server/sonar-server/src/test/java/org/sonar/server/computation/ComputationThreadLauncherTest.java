@@ -28,12 +28,16 @@ import org.junit.Test;
 import org.junit.rules.DisableOnDebug;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.server.computation.container.ContainerFactory;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class ComputationThreadLauncherTest {
@@ -55,12 +59,14 @@ public class ComputationThreadLauncherTest {
 
   @After
   public void after() {
-    sut.stop();
+    if (sut != null) {
+      sut.stop();
+    }
   }
 
   @Test
   public void call_findAndBook_when_launching_a_recurrent_task() throws Exception {
-    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 0, 1, TimeUnit.MILLISECONDS);
+    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 1, 0, 1, TimeUnit.MILLISECONDS);
 
     sut.onServerStart(mock(Server.class));
 
@@ -71,20 +77,65 @@ public class ComputationThreadLauncherTest {
 
   @Test
   public void call_findAndBook_when_executing_task_immediately() throws Exception {
-    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 1, 1, TimeUnit.HOURS);
+    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 1, 0, 1, TimeUnit.HOURS);
     sut.start();
+    sut.onServerStart(mock(Server.class));
+    sleep();
 
     sut.startAnalysisTaskNow();
 
     sleep();
 
-    verify(queue, atLeastOnce()).pop();
+    // once at startup, once when woken up
+    verify(queue, times(2)).pop();
+  }
+
+  @Test
+  public void wake_up_worker_when_report_is_added_to_queue() throws Exception {
+    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 1, 0, 1, TimeUnit.HOURS);
+    sut.start();
+    verify(queue).addListener(sut);
+    sut.onServerStart(mock(Server.class));
+    sleep();
+
+    sut.onReportAdded(mock(ReportQueue.Item.class));
+
+    sleep();
+
+    verify(queue, times(2)).pop();
+  }
+
+  @Test
+  public void several_workers_pop_the_queue() throws Exception {
+    sut = new ComputationThreadLauncher(queue, componentContainer, containerFactory, 3, 0, 1, TimeUnit.MILLISECONDS);
+
+    sut.onServerStart(mock(Server.class));
+
+    sleep();
+
+    verify(queue, atLeast(3)).pop();
   }
 
   @Test
   public void test_real_constructor() throws Exception {
-    sut = new ComputationThreadLauncher(queue, componentContainer);
+    sut = new ComputationThreadLauncher(queue, componentContainer, new Settings());
     sut.start();
+
+    assertThat(sut.getWorkerCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void worker_count_is_configurable() throws Exception {
+    Settings settings = new Settings().setProperty(ComputationThreadLauncher.WORKER_COUNT_PROPERTY, 4);
+    sut = new ComputationThreadLauncher(queue, componentContainer, settings);
+
+    assertThat(sut.getWorkerCount()).isEqualTo(4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_worker_count_is_not_positive() throws Exception {
+    Settings settings = new Settings().setProperty(ComputationThreadLauncher.WORKER_COUNT_PROPERTY, 0);
+    sut = new ComputationThreadLauncher(queue, componentContainer, settings);
   }
 
   private void sleep() throws InterruptedException {
@@ -74,6 +74,23 @@ public class ComputationThreadTest {
     verify(containerFactory).create(componentContainer, item);
   }
 
+  @Test
+  public void processNextReport_returns_false_if_queue_is_empty() {
+    when(queue.pop()).thenReturn(null);
+
+    assertThat(sut.processNextReport()).isFalse();
+  }
+
+  @Test
+  public void processNextReport_returns_true_if_report_is_processed() throws IOException {
+    ReportQueue.Item item = new ReportQueue.Item(AnalysisReportDto.newForTests(1L), temp.newFile());
+    when(queue.pop()).thenReturn(item);
+    when(containerFactory.create(componentContainer, item)).thenReturn(mock(ComputeEngineContainer.class));
+
+    assertThat(sut.processNextReport()).isTrue();
+    verify(queue).remove(item);
+  }
+
   @Test
   public void handle_error_during_queue_pop() {
     when(queue.pop()).thenThrow(new IllegalStateException());
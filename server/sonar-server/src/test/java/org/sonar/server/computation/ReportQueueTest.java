@@ -44,7 +44,10 @@ import java.io.InputStream;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
 import static org.sonar.core.computation.db.AnalysisReportDto.Status.WORKING;
@@ -114,6 +117,27 @@ public class ReportQueueTest {
     assertThat(FileUtils.listFiles(analysisDir(), new String[] {"zip"}, false)).hasSize(1);
   }
 
+  @Test
+  public void notify_listeners_when_report_is_added() {
+    ReportQueue.Listener listener = mock(ReportQueue.Listener.class);
+    sut.addListener(listener);
+
+    ReportQueue.Item item = sut.add("P1", "Project 1", generateData());
+
+    verify(listener).onReportAdded(item);
+  }
+
+  @Test
+  public void report_is_added_even_if_listener_fails() {
+    ReportQueue.Listener listener = mock(ReportQueue.Listener.class);
+    doThrow(new IllegalStateException("pb")).when(listener).onReportAdded(any(ReportQueue.Item.class));
+    sut.addListener(listener);
+
+    sut.add("P1", "Project 1", generateData());
+
+    assertThat(sut.all()).hasSize(1);
+  }
+
   @Test
   public void pop_pending_items_in_fifo_order() {
     sut.add("P1", "Project 1", generateData());
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.activity;
 
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -71,6 +72,27 @@ public class ActivityManagerTest {
     assertThat(activityArgumentCaptor.getValue().getData().get("projectUuid")).isEqualTo("ABCD");
   }
 
+  @Test
+  public void save_waiting_and_execution_times() throws Exception {
+    reportDto.setCreatedAt(1_000L).setStartedAt(3_000L).setFinishedAt(10_000L);
+
+    underTest.saveActivity(reportDto);
+
+    verify(activityService).save(activityArgumentCaptor.capture());
+    assertThat(activityArgumentCaptor.getValue().getData()).containsEntry("waitingTime", "2000");
+    assertThat(activityArgumentCaptor.getValue().getData()).containsEntry("executionTime", "7000");
+  }
+
+  @Test
+  public void save_step_statistics() throws Exception {
+    underTest.saveActivity(reportDto, Arrays.asList(
+      new StepStatistics("FirstStep", 10L, 8L, 1024L, 3L, 2L, 0L, 0L),
+      new StepStatistics("SecondStep", 20L, -1L, -1L, 0L, 0L, 4L, 15L)));
+
+    verify(activityService).save(activityArgumentCaptor.capture());
+    assertThat(activityArgumentCaptor.getValue().getData()).containsEntry("steps", "FirstStep:10:8:1024:3:2:0:0|SecondStep:20:-1:-1:0:0:4:15");
+  }
+
   @Test
   public void process_new_project() throws Exception {
     underTest.saveActivity(reportDto);
@@ -0,0 +1,62 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.activity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StepStatisticsTest {
+
+  @Test
+  public void format_and_parse() {
+    String text = StepStatistics.format(Arrays.asList(
+      new StepStatistics("FirstStep", 10L, 8L, 1024L, 3L, 2L, 0L, 0L),
+      new StepStatistics("SecondStep", 20L, -1L, -1L, 0L, 0L, 4L, 15L)));
+
+    List<StepStatistics> steps = StepStatistics.parse(text);
+
+    assertThat(steps).hasSize(2);
+    StepStatistics first = steps.get(0);
+    assertThat(first.getName()).isEqualTo("FirstStep");
+    assertThat(first.getDurationMs()).isEqualTo(10L);
+    assertThat(first.getCpuTimeMs()).isEqualTo(8L);
+    assertThat(first.getAllocatedBytes()).isEqualTo(1024L);
+    assertThat(first.getSqlCount()).isEqualTo(3L);
+    assertThat(first.getSqlTimeMs()).isEqualTo(2L);
+    assertThat(first.getEsCount()).isEqualTo(0L);
+    assertThat(first.getEsTimeMs()).isEqualTo(0L);
+    StepStatistics second = steps.get(1);
+    assertThat(second.getName()).isEqualTo("SecondStep");
+    assertThat(second.getCpuTimeMs()).isEqualTo(-1L);
+    assertThat(second.getEsCount()).isEqualTo(4L);
+    assertThat(second.getEsTimeMs()).isEqualTo(15L);
+  }
+
+  @Test
+  public void format_and_parse_empty_list() {
+    assertThat(StepStatistics.format(Collections.<StepStatistics>emptyList())).isEmpty();
+    assertThat(StepStatistics.parse("")).isEmpty();
+    assertThat(StepStatistics.parse(null)).isEmpty();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class BatchReportHolderImplTest {
+
+  @Test(expected = IllegalStateException.class)
+  public void getReport_throws_ISE_if_holder_is_empty() {
+    new BatchReportHolderImpl().getReport();
+  }
+
+  @Test
+  public void getReport_returns_report_set_with_setReport() {
+    BatchReportEntries report = mock(BatchReportEntries.class);
+    BatchReportHolderImpl holder = new BatchReportHolderImpl();
+    holder.setReport(report);
+
+    assertThat(holder.getReport()).isSameAs(report);
+  }
+
+  @Test
+  public void close_report_when_stopping() throws Exception {
+    CloseableEntries report = mock(CloseableEntries.class);
+    BatchReportHolderImpl holder = new BatchReportHolderImpl();
+    holder.setReport(report);
+
+    holder.stop();
+
+    verify(report).close();
+  }
+
+  @Test
+  public void stop_does_not_fail_if_holder_is_empty() {
+    new BatchReportHolderImpl().stop();
+  }
+
+  private abstract static class CloseableEntries implements BatchReportEntries, Closeable {
+    @Override
+    public abstract InputStream open(String name) throws IOException;
+  }
+}
@@ -21,11 +21,14 @@ package org.sonar.server.computation.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.batch.protocol.output.BatchReportWriter;
@@ -60,13 +63,37 @@ public class BatchReportReaderImplTest {
   private BatchReportWriter writer;
   private BatchReportReaderImpl underTest;
   private FileStructure fileStructure;
+  private File reportDir;
 
   @Before
   public void setUp() throws Exception {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
+    reportDir = tempFolder.newDir();
+    BatchReportHolderImpl holder = new BatchReportHolderImpl();
+    holder.setReport(new DirectoryBatchReportEntries(reportDir));
     underTest = new BatchReportReaderImpl(holder);
-    writer = new BatchReportWriter(holder.getDirectory());
-    fileStructure = new FileStructure(holder.getDirectory());
+    writer = new BatchReportWriter(reportDir);
+    fileStructure = new FileStructure(reportDir);
+  }
+
+  @Test
+  public void read_zipped_report_without_extraction() throws Exception {
+    writer.writeMetadata(BatchReport.Metadata.newBuilder().setRootComponentRef(COMPONENT_REF).build());
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(reportDir, zip);
+
+    BatchReportHolderImpl zipHolder = new BatchReportHolderImpl();
+    zipHolder.setReport(new ZipBatchReportEntries(zip));
+    try {
+      BatchReportReaderImpl zipReader = new BatchReportReaderImpl(zipHolder);
+      assertThat(zipReader.readMetadata().getRootComponentRef()).isEqualTo(COMPONENT_REF);
+      assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+      assertThat(zipReader.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE);
+      assertThat(zipReader.readComponentMeasures(COMPONENT_REF)).isEmpty();
+    } finally {
+      zipHolder.stop();
+    }
   }
 
   @Test(expected = IllegalStateException.class)
@@ -297,4 +324,21 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void readRawFile_returns_null_when_file_does_not_exist() {
+    assertThat(underTest.readRawFile(FileStructure.Domain.SOURCE, COMPONENT_REF)).isNull();
+  }
+
+  @Test
+  public void verify_readRawFile() throws IOException {
+    writer.writeComponentChangesets(CHANGESETS);
+
+    InputStream res = underTest.readRawFile(FileStructure.Domain.CHANGESETS, COMPONENT_REF);
+    try {
+      assertThat(IOUtils.toByteArray(res)).isEqualTo(FileUtils.readFileToByteArray(fileStructure.fileFor(FileStructure.Domain.CHANGESETS, COMPONENT_REF)));
+    } finally {
+      res.close();
+    }
+  }
 }
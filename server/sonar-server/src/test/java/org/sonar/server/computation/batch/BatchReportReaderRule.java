@@ -19,7 +19,14 @@
  */
 package org.sonar.server.computation.batch;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.protobuf.Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,6 +38,7 @@ import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.sonar.batch.protocol.output.BatchReport;
+import org.sonar.batch.protocol.output.FileStructure;
 import org.sonar.server.util.CloseableIterator;
 
 public class BatchReportReaderRule implements TestRule, BatchReportReader {
@@ -241,4 +249,50 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
   public void putCoverageDetails(int testFileRef, List<BatchReport.CoverageDetail> coverageDetails) {
     this.coverageDetails.put(testFileRef, coverageDetails);
   }
+
+  /**
+   * Serializes the data which have been put in the rule, as {@link org.sonar.batch.protocol.output.BatchReportWriter} does.
+   */
+  @Override
+  @CheckForNull
+  public InputStream readRawFile(FileStructure.Domain domain, int componentRef) {
+    switch (domain) {
+      case SOURCE:
+        List<String> lines = fileSources.get(componentRef);
+        return lines == null ? null : new ByteArrayInputStream(Joiner.on('\n').join(lines).getBytes(StandardCharsets.UTF_8));
+      case CHANGESETS:
+        BatchReport.Changesets scm = changesets.get(componentRef);
+        return scm == null ? null : new ByteArrayInputStream(scm.toByteArray());
+      case DUPLICATIONS:
+        List<BatchReport.Duplication> dups = duplications.get(componentRef);
+        return dups == null ? null : new ByteArrayInputStream(
+          BatchReport.Duplications.newBuilder().setComponentRef(componentRef).addAllDuplication(dups).build().toByteArray());
+      case SYMBOLS:
+        List<BatchReport.Symbols.Symbol> syms = symbols.get(componentRef);
+        return syms == null ? null : new ByteArrayInputStream(
+          BatchReport.Symbols.newBuilder().setFileRef(componentRef).addAllSymbol(syms).build().toByteArray());
+      case SYNTAX_HIGHLIGHTINGS:
+        return delimited(syntaxHighlightings.get(componentRef));
+      case COVERAGES:
+        return delimited(coverages.get(componentRef));
+      default:
+        throw new UnsupportedOperationException("Raw file is not supported for domain " + domain);
+    }
+  }
+
+  @CheckForNull
+  private static InputStream delimited(@Nullable List<? extends Message> messages) {
+    if (messages == null) {
+      return null;
+    }
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      for (Message message : messages) {
+        message.writeDelimitedTo(output);
+      }
+      return new ByteArrayInputStream(output.toByteArray());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
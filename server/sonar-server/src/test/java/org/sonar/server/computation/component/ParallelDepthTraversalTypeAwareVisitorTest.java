@@ -0,0 +1,138 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package org.sonar.server.computation.component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.sonar.server.computation.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.component.Component.Type.FILE;
+import static org.sonar.server.computation.component.Component.Type.MODULE;
+import static org.sonar.server.computation.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.component.DepthTraversalTypeAwareVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.component.DepthTraversalTypeAwareVisitor.Order.PRE_ORDER;
+
+public class ParallelDepthTraversalTypeAwareVisitorTest {
+
+  private static final Component FILE_4 = component(FILE, 4);
+  private static final Component FILE_5 = component(FILE, 5);
+  private static final Component DIRECTORY_3 = component(DIRECTORY, 3, FILE_4, FILE_5);
+  private static final Component FILE_7 = component(FILE, 7);
+  private static final Component DIRECTORY_6 = component(DIRECTORY, 6, FILE_7);
+  private static final Component MODULE_2 = component(MODULE, 2, DIRECTORY_3, DIRECTORY_6);
+  private static final Component COMPONENT_TREE = component(PROJECT, 1, MODULE_2);
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_parallelism_is_not_positive() {
+    new RecordingVisitor(PRE_ORDER, 0);
+  }
+
+  @Test
+  public void visit_all_files() {
+    RecordingVisitor visitor = new RecordingVisitor(PRE_ORDER, 4);
+    visitor.visit(COMPONENT_TREE);
+
+    assertThat(visitor.visitedFiles).containsOnly(4, 5, 7);
+    assertThat(visitor.orderedNodes).containsExactly(1, 2, 3, 6);
+  }
+
+  @Test
+  public void in_post_order_node_is_visited_after_its_files() {
+    RecordingVisitor visitor = new RecordingVisitor(POST_ORDER, 4);
+    visitor.visit(COMPONENT_TREE);
+
+    assertThat(visitor.orderedNodes).containsExactly(3, 6, 2, 1);
+    assertThat(visitor.visitedFilesBeforeNode.get(3)).containsOnly(4, 5);
+    assertThat(visitor.visitedFilesBeforeNode.get(6)).containsOnly(4, 5, 7);
+    assertThat(visitor.visitedFilesBeforeNode.get(1)).containsOnly(4, 5, 7);
+  }
+
+  @Test
+  public void visitor_can_be_reused() {
+    RecordingVisitor visitor = new RecordingVisitor(PRE_ORDER, 2);
+    visitor.visit(COMPONENT_TREE);
+    visitor.visit(DIRECTORY_6);
+
+    assertThat(visitor.orderedNodes).containsExactly(1, 2, 3, 6, 6);
+  }
+
+  @Test
+  public void propagate_failure_of_file() {
+    DepthTraversalTypeAwareVisitor visitor = new ParallelDepthTraversalTypeAwareVisitor(FILE, PRE_ORDER, 2) {
+      @Override
+      public void visitFile(Component file) {
+        if (file.getRef() == 5) {
+          throw new IllegalStateException("Fail to visit file 5");
+        }
+      }
+    };
+
+    try {
+      visitor.visit(COMPONENT_TREE);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to visit file 5");
+    }
+  }
+
+  @Test
+  public void parallelism_is_configurable() {
+    assertThat(ParallelDepthTraversalTypeAwareVisitor.parallelism(new Settings())).isEqualTo(Runtime.getRuntime().availableProcessors());
+    assertThat(ParallelDepthTraversalTypeAwareVisitor.parallelism(
+      new Settings().setProperty(ParallelDepthTraversalTypeAwareVisitor.PARALLELISM_PROPERTY, 3))).isEqualTo(3);
+  }
+
+  private static class RecordingVisitor extends ParallelDepthTraversalTypeAwareVisitor {
+    final Set<Integer> visitedFiles = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    final List<Integer> orderedNodes = new ArrayList<>();
+    final Map<Integer, List<Integer>> visitedFilesBeforeNode = new HashMap<>();
+
+    RecordingVisitor(Order order, int parallelism) {
+      super(FILE, order, parallelism);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      visitedFiles.add(file.getRef());
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      if (component.getType() != FILE) {
+        orderedNodes.add(component.getRef());
+        visitedFilesBeforeNode.put(component.getRef(), new ArrayList<>(visitedFiles));
+      }
+    }
+  }
+
+  private static Component component(final Component.Type type, final int ref, final Component... children) {
+    return DumbComponent.builder(type, ref).addChildren(children).build();
+  }
+}
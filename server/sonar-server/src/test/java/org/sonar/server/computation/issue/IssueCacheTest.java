@@ -0,0 +1,205 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.DefaultIssueComment;
+import org.sonar.api.issue.internal.FieldDiffs;
+import org.sonar.api.issue.internal.IssueChangeContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.server.util.CloseableIterator;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class IssueCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read_all_fields() throws Exception {
+    Date date = new Date(1_500_000_000_000L);
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("PROJECT:File.java")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT")
+      .setRuleKey(RuleKey.of("squid", "S001"))
+      .setLanguage("java")
+      .setSeverity(Severity.BLOCKER)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(10)
+      .setEffortToFix(2.5)
+      .setDebt(Duration.create(30L))
+      .setStatus(Issue.STATUS_RESOLVED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      .setReporter("reporter")
+      .setAssignee("assignee")
+      .setChecksum("checksum")
+      .setAttributes(ImmutableMap.of("jira", "SONAR-1234"))
+      .setAuthorLogin("author")
+      .setActionPlanKey("ACTION_PLAN")
+      .setTags(Arrays.asList("bug", "security"))
+      .setCreationDate(date)
+      .setUpdateDate(date)
+      .setCloseDate(date)
+      .setNew(false)
+      .setEndOfLife(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_000L);
+    issue.addComment(new DefaultIssueComment().setKey("COMMENT_KEY").setIssueKey("ISSUE_KEY").setUserLogin("john")
+      .setMarkdownText("the comment").setCreatedAt(date).setUpdatedAt(date).setNew(true));
+    issue.addChange(new FieldDiffs().setIssueKey("ISSUE_KEY").setUserLogin("john").setCreationDate(date).setDiff("status", "OPEN", "CONFIRMED"));
+    IssueChangeContext context = IssueChangeContext.createUser(date, "john");
+    issue.setFieldChange(context, "technicalDebt", 10L, 30L);
+    issue.setFieldChange(context, "line", null, 10);
+
+    DefaultIssue read = writeAndRead(issue);
+
+    assertThat(read.key()).isEqualTo("ISSUE_KEY");
+    assertThat(read.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(read.componentKey()).isEqualTo("PROJECT:File.java");
+    assertThat(read.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(read.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(read.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(read.projectKey()).isEqualTo("PROJECT");
+    assertThat(read.ruleKey()).isEqualTo(RuleKey.of("squid", "S001"));
+    assertThat(read.language()).isEqualTo("java");
+    assertThat(read.severity()).isEqualTo(Severity.BLOCKER);
+    assertThat(read.manualSeverity()).isTrue();
+    assertThat(read.message()).isEqualTo("the message");
+    assertThat(read.line()).isEqualTo(10);
+    assertThat(read.effortToFix()).isEqualTo(2.5);
+    assertThat(read.debt()).isEqualTo(Duration.create(30L));
+    assertThat(read.status()).isEqualTo(Issue.STATUS_RESOLVED);
+    assertThat(read.resolution()).isEqualTo(Issue.RESOLUTION_FIXED);
+    assertThat(read.reporter()).isEqualTo("reporter");
+    assertThat(read.assignee()).isEqualTo("assignee");
+    assertThat(read.checksum()).isEqualTo("checksum");
+    assertThat(read.attributes()).containsOnly(entry("jira", "SONAR-1234"));
+    assertThat(read.authorLogin()).isEqualTo("author");
+    assertThat(read.actionPlanKey()).isEqualTo("ACTION_PLAN");
+    assertThat(read.tags()).containsExactly("bug", "security");
+    assertThat(read.creationDate()).isEqualTo(date);
+    assertThat(read.updateDate()).isEqualTo(date);
+    assertThat(read.closeDate()).isEqualTo(date);
+    assertThat(read.isNew()).isFalse();
+    assertThat(read.isEndOfLife()).isTrue();
+    assertThat(read.isOnDisabledRule()).isTrue();
+    assertThat(read.isChanged()).isTrue();
+    assertThat(read.mustSendNotifications()).isTrue();
+    assertThat(read.selectedAt()).isEqualTo(1_000L);
+
+    assertThat(read.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) read.comments().get(0);
+    assertThat(comment.key()).isEqualTo("COMMENT_KEY");
+    assertThat(comment.issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("the comment");
+    assertThat(comment.createdAt()).isEqualTo(date);
+    assertThat(comment.updatedAt()).isEqualTo(date);
+    assertThat(comment.isNew()).isTrue();
+
+    FieldDiffs currentChange = read.currentChange();
+    assertThat(currentChange.userLogin()).isEqualTo("john");
+    assertThat(currentChange.creationDate()).isEqualTo(date);
+    assertThat(currentChange.get("technicalDebt").oldValue()).isEqualTo(10L);
+    assertThat(currentChange.get("technicalDebt").newValue()).isEqualTo(30L);
+    assertThat(currentChange.get("line").oldValue()).isNull();
+    assertThat(currentChange.get("line").newValue()).isEqualTo(10);
+    assertThat(read.changes()).hasSize(3);
+    assertThat(read.changes().get(0).toString()).isEqualTo("status=OPEN|CONFIRMED");
+    assertThat(read.changes().get(1)).isSameAs(currentChange);
+    assertThat(read.changes().get(2)).isSameAs(currentChange);
+  }
+
+  @Test
+  public void write_and_read_issue_with_null_fields() throws Exception {
+    DefaultIssue read = writeAndRead(new DefaultIssue().setKey("ISSUE_KEY"));
+
+    assertThat(read.key()).isEqualTo("ISSUE_KEY");
+    assertThat(read.ruleKey()).isNull();
+    assertThat(read.status()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.debt()).isNull();
+    assertThat(read.creationDate()).isNull();
+    assertThat(read.attributes()).isEmpty();
+    assertThat(read.tags()).isEmpty();
+    assertThat(read.comments()).isEmpty();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.isNew()).isTrue();
+    assertThat(read.selectedAt()).isNull();
+  }
+
+  @Test
+  public void write_and_read_long_strings() throws Exception {
+    String longValue = Strings.repeat("é", 100_000);
+    DefaultIssue read = writeAndRead(new DefaultIssue().setKey("ISSUE_KEY").setAttribute("long", longValue));
+
+    assertThat(read.attribute("long")).isEqualTo(longValue);
+  }
+
+  @Test
+  public void write_and_read_several_issues() throws Exception {
+    IssueCache cache = new IssueCache(temp.newFile(), System2.INSTANCE);
+    cache.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE_1"))
+      .append(new DefaultIssue().setKey("ISSUE_2"))
+      .close();
+    cache.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE_3"))
+      .close();
+
+    try (CloseableIterator<DefaultIssue> issues = cache.traverse()) {
+      assertThat(newArrayList(issues)).extracting("key").containsExactly("ISSUE_1", "ISSUE_2", "ISSUE_3");
+    }
+  }
+
+  private DefaultIssue writeAndRead(DefaultIssue issue) throws Exception {
+    IssueCache cache = new IssueCache(temp.newFile(), System2.INSTANCE);
+    cache.newAppender().append(issue).close();
+
+    try (CloseableIterator<DefaultIssue> issues = cache.traverse()) {
+      DefaultIssue read = issues.next();
+      assertThat(issues.hasNext()).isFalse();
+      return read;
+    }
+  }
+}
@@ -49,7 +49,7 @@ public class SourceLinesCacheTest {
   @Before
   public void setUp() throws Exception {
     esTester.truncateIndices();
-    sut = new SourceLinesCache(new SourceLineIndex(esTester.client()));
+    sut = new SourceLinesCache(new SourceLineIndex(esTester.client(), new Settings()));
   }
 
   @Test
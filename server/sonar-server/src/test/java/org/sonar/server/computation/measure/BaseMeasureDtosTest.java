@@ -0,0 +1,54 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import org.junit.Test;
+import org.sonar.core.measure.db.MeasureDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BaseMeasureDtosTest {
+
+  private BaseMeasureDtos underTest = new BaseMeasureDtos();
+
+  @Test
+  public void get_returns_null_when_no_measure() {
+    assertThat(underTest.get(1, 10)).isNull();
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_measures_added_in_any_order() {
+    // more measures than the initial capacity of arrays
+    for (int metricId = 20; metricId > 0; metricId--) {
+      underTest.add(1, new MeasureDto().setMetricId(metricId).setValue((double) metricId));
+    }
+    underTest.add(2, new MeasureDto().setMetricId(5).setValue(500d));
+
+    assertThat(underTest.size()).isEqualTo(21);
+    for (int metricId = 1; metricId <= 20; metricId++) {
+      assertThat(underTest.get(1, metricId).getValue()).isEqualTo((double) metricId);
+    }
+    assertThat(underTest.get(1, 21)).isNull();
+    assertThat(underTest.get(2, 5).getValue()).isEqualTo(500d);
+    assertThat(underTest.get(2, 6)).isNull();
+    assertThat(underTest.get(3, 5)).isNull();
+  }
+}
@@ -30,6 +30,7 @@ import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -46,6 +47,7 @@ import org.sonar.server.component.db.ComponentDao;
 import org.sonar.server.component.db.SnapshotDao;
 import org.sonar.server.computation.batch.BatchReportReader;
 import org.sonar.server.computation.batch.BatchReportReaderRule;
+import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.DumbComponent;
 import org.sonar.server.computation.debt.Characteristic;
@@ -73,10 +75,16 @@ public class MeasureRepositoryImplTest {
   public static final DbTester dbTester = new DbTester();
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final DumbComponent FILE_COMPONENT = DumbComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
   private static final DumbComponent OTHER_COMPONENT = DumbComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
+  private static final DumbComponent DIRECTORY = DumbComponent.builder(Component.Type.DIRECTORY, 4).setKey("directory key")
+    .addChildren(FILE_COMPONENT, OTHER_COMPONENT).build();
+  private static final DumbComponent PROJECT = DumbComponent.builder(Component.Type.PROJECT, 3).setKey("project key").setUuid("PROJECT_UUID")
+    .addChildren(DIRECTORY).build();
   private static final String METRIC_KEY_1 = "metric 1";
   private static final int METRIC_ID_1 = 1;
   private static final String METRIC_KEY_2 = "metric 2";
@@ -86,6 +94,10 @@ public class MeasureRepositoryImplTest {
   private static final long LAST_SNAPSHOT_ID = 123;
   private static final long OTHER_SNAPSHOT_ID = 369;
   private static final long COMPONENT_ID = 567;
+  private static final long PROJECT_ID = 565;
+  private static final long PROJECT_SNAPSHOT_ID = 121;
+  private static final long DIRECTORY_ID = 566;
+  private static final long DIRECTORY_SNAPSHOT_ID = 122;
   private static final Measure SOME_MEASURE = Measure.newMeasureBuilder().create("some value");
   private static final String SOME_DATA = "some data";
   private static final RuleDto SOME_RULE = RuleDto.createFor(RuleKey.of("A", "1")).setId(963);
@@ -94,11 +106,11 @@ public class MeasureRepositoryImplTest {
   private DbClient dbClient = new DbClient(dbTester.database(), dbTester.myBatis(), new MeasureDao(), new SnapshotDao(), new MetricDao(), new ComponentDao());
   private MetricRepository metricRepository = mock(MetricRepository.class);
   private RuleCache ruleCache = mock(RuleCache.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, ruleCache);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, treeRootHolder, metricRepository, ruleCache);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, ruleCache);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, treeRootHolder, metricRepository, ruleCache);
 
   @CheckForNull
   private DbSession dbSession;
@@ -106,13 +118,17 @@ public class MeasureRepositoryImplTest {
   @Before
   public void setUp() throws Exception {
     when(metric1.getKey()).thenReturn(METRIC_KEY_1);
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
     when(metric1.getType()).thenReturn(Metric.MetricType.STRING);
     when(metric2.getKey()).thenReturn(METRIC_KEY_2);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
     when(metric2.getType()).thenReturn(Metric.MetricType.STRING);
 
     // references to metrics are consistent with DB by design
     when(metricRepository.getByKey(METRIC_KEY_1)).thenReturn(metric1);
     when(metricRepository.getByKey(METRIC_KEY_2)).thenReturn(metric2);
+
+    treeRootHolder.setRoot(PROJECT);
   }
 
   @After
@@ -169,6 +185,50 @@ public class MeasureRepositoryImplTest {
     assertThat(res).isAbsent();
   }
 
+  @Test
+  public void getBaseMeasure_loads_measures_of_project_and_directories_at_first_call() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbSession = dbClient.openSession(false);
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, PROJECT_ID, PROJECT_SNAPSHOT_ID));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, DIRECTORY_ID, DIRECTORY_SNAPSHOT_ID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(PROJECT, metric1)).isPresent();
+
+    // measures inserted after the first call are not loaded
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, PROJECT_ID, PROJECT_SNAPSHOT_ID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(PROJECT, metric2)).isAbsent();
+    assertThat(underTest.getBaseMeasure(DIRECTORY, metric2).get().getStringValue()).isEqualTo(SOME_DATA);
+    assertThat(underTest.getBaseMeasure(DIRECTORY, metric1)).isAbsent();
+  }
+
+  @Test
+  public void getBaseMeasure_loads_large_data_on_demand() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbSession = dbClient.openSession(false);
+    String largeData = StringUtils.repeat("a", 5000);
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, PROJECT_ID, PROJECT_SNAPSHOT_ID).setData(largeData));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(PROJECT, metric1).get().getStringValue()).isEqualTo(largeData);
+  }
+
+  @Test
+  public void getBaseMeasure_of_file_is_not_bulk_loaded() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbSession = dbClient.openSession(false);
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, PROJECT_ID, PROJECT_SNAPSHOT_ID));
+    dbSession.commit();
+    assertThat(underTest.getBaseMeasure(PROJECT, metric1)).isPresent();
+
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, LAST_SNAPSHOT_ID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metric1)).isPresent();
+  }
+
   @Test(expected = NullPointerException.class)
   public void add_throws_NPE_if_Component_argument_is_null() {
     underTest.add(null, metric1, SOME_MEASURE);
@@ -473,8 +533,12 @@ public class MeasureRepositoryImplTest {
   }
 
   private static MeasureDto createMeasureDto(int metricId, long snapshotId) {
+    return createMeasureDto(metricId, COMPONENT_ID, snapshotId);
+  }
+
+  private static MeasureDto createMeasureDto(int metricId, long componentId, long snapshotId) {
     return new MeasureDto()
-      .setComponentId(COMPONENT_ID)
+      .setComponentId(componentId)
       .setSnapshotId(snapshotId)
       .setData(SOME_DATA)
       .setMetricId(metricId);
@@ -0,0 +1,131 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RawMeasureStoreTest {
+
+  private static final String METRIC_KEY = "metric";
+  private static final String OTHER_METRIC_KEY = "other metric";
+
+  private RawMeasureStore underTest = new RawMeasureStore();
+
+  @Test
+  public void get_returns_null_when_store_is_empty() {
+    assertThat(underTest.get(1, METRIC_KEY, null, null)).isNull();
+    assertThat(underTest.get(1, METRIC_KEY, 12, null)).isNull();
+    assertThat(underTest.getAll(1).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void rebuild_numeric_measures() {
+    underTest.put(1, "int", Measure.newMeasureBuilder().create(12));
+    underTest.put(2, "long", Measure.newMeasureBuilder().create(1234567890123L));
+    underTest.put(300, "double", Measure.newMeasureBuilder().create(1.5d));
+    underTest.put(4, "boolean", Measure.newMeasureBuilder().create(true));
+    underTest.put(5, "no value", Measure.newMeasureBuilder().createNoValue());
+
+    assertThat(underTest.get(1, "int", null, null).getIntValue()).isEqualTo(12);
+    assertThat(underTest.get(2, "long", null, null).getLongValue()).isEqualTo(1234567890123L);
+    assertThat(underTest.get(300, "double", null, null).getDoubleValue()).isEqualTo(1.5d);
+    assertThat(underTest.get(4, "boolean", null, null).getBooleanValue()).isTrue();
+    assertThat(underTest.get(5, "no value", null, null).getValueType()).isEqualTo(Measure.ValueType.NO_VALUE);
+
+    assertThat(underTest.get(2, "int", null, null)).isNull();
+    assertThat(underTest.get(299, "double", null, null)).isNull();
+    assertThat(underTest.get(1000, "double", null, null)).isNull();
+  }
+
+  @Test
+  public void rebuild_variations_of_numeric_measures() {
+    underTest.put(1, METRIC_KEY, Measure.newMeasureBuilder().create(10));
+    underTest.put(2, METRIC_KEY, Measure.newMeasureBuilder().setVariations(new MeasureVariations(1d, null, 3d)).create(20));
+    underTest.put(50, METRIC_KEY, Measure.newMeasureBuilder().create(30));
+
+    assertThat(underTest.get(1, METRIC_KEY, null, null).hasVariations()).isFalse();
+    assertThat(underTest.get(50, METRIC_KEY, null, null).hasVariations()).isFalse();
+    MeasureVariations variations = underTest.get(2, METRIC_KEY, null, null).getVariations();
+    assertThat(variations.getVariation1()).isEqualTo(1d);
+    assertThat(variations.hasVariation2()).isFalse();
+    assertThat(variations.getVariation3()).isEqualTo(3d);
+    assertThat(variations.hasVariation4()).isFalse();
+    assertThat(variations.hasVariation5()).isFalse();
+  }
+
+  @Test
+  public void keep_other_measures_as_objects() {
+    Measure stringMeasure = Measure.newMeasureBuilder().create("foo");
+    Measure measureWithData = Measure.newMeasureBuilder().create(12, "some data");
+    Measure measureWithDescription = Measure.newMeasureBuilder().setDescription("desc").create(12);
+    Measure levelMeasure = Measure.newMeasureBuilder().create(Measure.Level.ERROR);
+    underTest.put(1, "string", stringMeasure);
+    underTest.put(1, "data", measureWithData);
+    underTest.put(1, "description", measureWithDescription);
+    underTest.put(1, "level", levelMeasure);
+
+    assertThat(underTest.get(1, "string", null, null)).isSameAs(stringMeasure);
+    assertThat(underTest.get(1, "data", null, null)).isSameAs(measureWithData);
+    assertThat(underTest.get(1, "description", null, null)).isSameAs(measureWithDescription);
+    assertThat(underTest.get(1, "level", null, null)).isSameAs(levelMeasure);
+  }
+
+  @Test
+  public void store_measures_of_rules_and_characteristics_apart() {
+    Measure metricMeasure = Measure.newMeasureBuilder().create(1);
+    Measure ruleMeasure = Measure.newMeasureBuilder().forRule(12).create(2);
+    Measure characteristicMeasure = Measure.newMeasureBuilder().forCharacteristic(12).create(3);
+    underTest.put(1, METRIC_KEY, metricMeasure);
+    underTest.put(1, METRIC_KEY, ruleMeasure);
+    underTest.put(1, METRIC_KEY, characteristicMeasure);
+
+    assertThat(underTest.get(1, METRIC_KEY, null, null).getIntValue()).isEqualTo(1);
+    assertThat(underTest.get(1, METRIC_KEY, 12, null)).isSameAs(ruleMeasure);
+    assertThat(underTest.get(1, METRIC_KEY, null, 12)).isSameAs(characteristicMeasure);
+    assertThat(underTest.get(1, METRIC_KEY, 13, null)).isNull();
+    assertThat(underTest.contains(1, METRIC_KEY, ruleMeasure)).isTrue();
+    assertThat(underTest.contains(2, METRIC_KEY, ruleMeasure)).isFalse();
+    assertThat(underTest.getAll(1).get(METRIC_KEY)).hasSize(3);
+  }
+
+  @Test
+  public void put_overrides_measure() {
+    underTest.put(1, METRIC_KEY, Measure.newMeasureBuilder().create(12));
+    Measure stringMeasure = Measure.newMeasureBuilder().setDescription("desc").create(13);
+    underTest.put(1, METRIC_KEY, stringMeasure);
+    assertThat(underTest.get(1, METRIC_KEY, null, null)).isSameAs(stringMeasure);
+
+    underTest.put(1, METRIC_KEY, Measure.newMeasureBuilder().create(14));
+    assertThat(underTest.get(1, METRIC_KEY, null, null).getIntValue()).isEqualTo(14);
+    assertThat(underTest.getAll(1).get(METRIC_KEY)).hasSize(1);
+  }
+
+  @Test
+  public void getAll_returns_measures_of_all_metrics() {
+    underTest.put(1, METRIC_KEY, Measure.newMeasureBuilder().create(12));
+    underTest.put(1, OTHER_METRIC_KEY, Measure.newMeasureBuilder().create("foo"));
+    underTest.put(2, METRIC_KEY, Measure.newMeasureBuilder().create(13));
+
+    assertThat(underTest.getAll(1).keySet()).containsOnly(METRIC_KEY, OTHER_METRIC_KEY);
+    assertThat(underTest.getAll(2).keySet()).containsOnly(METRIC_KEY);
+  }
+}
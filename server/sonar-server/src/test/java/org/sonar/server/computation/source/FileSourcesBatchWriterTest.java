@@ -0,0 +1,103 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.source;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.sonar.core.persistence.DbTester;
+import org.sonar.core.source.db.FileSourceDto;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.source.db.FileSourceDao;
+import org.sonar.test.DbTests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Category(DbTests.class)
+public class FileSourcesBatchWriterTest {
+
+  @ClassRule
+  public static DbTester dbTester = new DbTester();
+
+  DbClient dbClient;
+
+  @Before
+  public void setUp() {
+    dbTester.truncateTables();
+    dbClient = new DbClient(dbTester.database(), dbTester.myBatis(), new FileSourceDao(dbTester.myBatis()));
+  }
+
+  @Test
+  public void flush_when_size_threshold_is_reached() {
+    FileSourcesBatchWriter writer = new FileSourcesBatchWriter(dbClient, 10L);
+    try {
+      writer.insert(newDto("FILE1", new byte[6]));
+      assertThat(writer.getFlushedRows()).isEqualTo(0L);
+
+      writer.insert(newDto("FILE2", new byte[6]));
+      assertThat(writer.getFlushedRows()).isEqualTo(2L);
+      assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(2);
+
+      writer.insert(newDto("FILE3", new byte[2]));
+      assertThat(writer.getFlushedRows()).isEqualTo(2L);
+    } finally {
+      writer.close();
+    }
+
+    assertThat(writer.getFlushedRows()).isEqualTo(3L);
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(3);
+  }
+
+  @Test
+  public void update_existing_rows() {
+    dbClient.fileSourceDao().insert(newDto("FILE1", new byte[] {1}));
+    FileSourceDto dto = dbClient.fileSourceDao().selectSource("FILE1");
+
+    FileSourcesBatchWriter writer = new FileSourcesBatchWriter(dbClient);
+    try {
+      writer.update(dto.setBinaryData(new byte[] {2}).setDataHash("NEW_HASH"));
+    } finally {
+      writer.close();
+    }
+
+    assertThat(dbClient.fileSourceDao().selectSource("FILE1").getDataHash()).isEqualTo("NEW_HASH");
+  }
+
+  @Test
+  public void close_without_rows() {
+    FileSourcesBatchWriter writer = new FileSourcesBatchWriter(dbClient);
+    writer.close();
+
+    assertThat(writer.getFlushedRows()).isEqualTo(0L);
+  }
+
+  private static FileSourceDto newDto(String fileUuid, byte[] data) {
+    return new FileSourceDto()
+      .setProjectUuid("PROJECT")
+      .setFileUuid(fileUuid)
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setBinaryData(data)
+      .setDataHash("HASH")
+      .setSrcHash("SRC_HASH")
+      .setCreatedAt(1000L)
+      .setUpdatedAt(1000L);
+  }
+}
@@ -49,7 +49,9 @@ import org.sonar.server.computation.component.DbIdsRepository;
 import org.sonar.server.computation.component.DumbComponent;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.test.DbTests;
 
@@ -93,7 +95,8 @@ public class ApplyPermissionsStepTest extends BaseStepTest {
 
     settings = new Settings();
 
-    issueAuthorizationIndexer = new IssueAuthorizationIndexer(dbClient, esTester.client());
+    issueAuthorizationIndexer = new IssueAuthorizationIndexer(dbClient, esTester.client(), new IssueFacetCache(),
+      new IssueAuthorizationCache(esTester.client()));
     issueAuthorizationIndexer.setEnabled(true);
 
     dbIdsRepository = new DbIdsRepository();
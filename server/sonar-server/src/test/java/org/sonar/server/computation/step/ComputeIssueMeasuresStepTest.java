@@ -126,7 +126,7 @@ public class ComputeIssueMeasuresStepTest {
   @Before
   public void setUp() throws Exception {
     initMetrics();
-    measureRepository = new MeasureRepositoryImpl(null, reportReader, metricRepository, ruleCache);
+    measureRepository = new MeasureRepositoryImpl(null, reportReader, treeRootHolder, metricRepository, ruleCache);
 
     sut = new ComputeIssueMeasuresStep(periodsHolder, reportReader, treeRootHolder, measureRepository, metricRepository);
   }
@@ -20,8 +20,8 @@
 package org.sonar.server.computation.step;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
@@ -34,7 +34,9 @@ import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.server.computation.ReportQueue;
-import org.sonar.server.computation.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.batch.BatchReportEntries;
+import org.sonar.server.computation.batch.MutableBatchReportHolder;
+import org.sonar.server.computation.batch.ZipBatchReportEntries;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -42,64 +44,63 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
-public class ReportExtractionStepTest {
+public class OpenReportStepTest {
 
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
   @Rule
   public LogTester logTester = new LogTester().setLevel(LoggerLevel.INFO);
 
-  private MutableBatchReportDirectoryHolder reportDirectoryHolder = mock(MutableBatchReportDirectoryHolder.class);
+  private MutableBatchReportHolder reportHolder = mock(MutableBatchReportHolder.class);
   private AnalysisReportDto dto = newDefaultReport();
-  private ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
+  private ArgumentCaptor<BatchReportEntries> reportCaptor = ArgumentCaptor.forClass(BatchReportEntries.class);
 
   @Test
   public void fail_if_corrupted_zip() throws Exception {
     File zip = tempFolder.newFile();
     FileUtils.write(zip, "not a file");
 
-    ReportExtractionStep underTest = new ReportExtractionStep(new ReportQueue.Item(dto, zip), tempFolder, reportDirectoryHolder);
+    OpenReportStep underTest = new OpenReportStep(new ReportQueue.Item(dto, zip), reportHolder);
 
     try {
       underTest.execute();
       fail();
     } catch (IllegalStateException e) {
-      assertThat(e.getMessage()).startsWith("Fail to unzip " + zip.getAbsolutePath() + " into ");
+      assertThat(e.getMessage()).startsWith("Fail to open zip file " + zip.getAbsolutePath());
     }
-    verifyNoMoreInteractions(reportDirectoryHolder);
+    verifyNoMoreInteractions(reportHolder);
   }
 
   @Test
-  public void verify_zip_decompression() throws URISyntaxException, IOException {
-    new ReportExtractionStep(new ReportQueue.Item(dto, demoZipFile()), tempFolder, reportDirectoryHolder).execute();
-
-    verify(reportDirectoryHolder).setDirectory(fileCaptor.capture());
-    verifyNoMoreInteractions(reportDirectoryHolder);
-
-    File createDir = fileCaptor.getValue();
-    assertThat(createDir.exists()).isTrue();
-    assertThat(createDir.isDirectory()).isTrue();
-    verifyFile(createDir, "1.txt", "1\n");
-    verifyFile(createDir, "2.txt", "2\n");
-    File subDir1 = verifyDir(createDir, "subdir1");
-    verifyFile(subDir1, "3.txt", "3\n");
-    verifyFile(subDir1, "4.txt", "4\n");
-    File subDir2 = verifyDir(createDir, "subdir2");
-    verifyFile(subDir2, "5.txt", "5\n");
-    File subdir3 = verifyDir(subDir2, "subdir3");
-    verifyFile(subdir3, "6.txt", "6\n");
+  public void read_zip_entries_without_extraction() throws Exception {
+    new OpenReportStep(new ReportQueue.Item(dto, demoZipFile()), reportHolder).execute();
+
+    verify(reportHolder).setReport(reportCaptor.capture());
+    verifyNoMoreInteractions(reportHolder);
+
+    ZipBatchReportEntries report = (ZipBatchReportEntries) reportCaptor.getValue();
+    try {
+      verifyEntry(report, "1.txt", "1\n");
+      verifyEntry(report, "2.txt", "2\n");
+      verifyEntry(report, "subdir1/3.txt", "3\n");
+      verifyEntry(report, "subdir2/subdir3/6.txt", "6\n");
+      assertThat(report.open("subdir1/")).isNull();
+      assertThat(report.open("unknown.txt")).isNull();
+    } finally {
+      report.close();
+    }
   }
 
   @Test
   public void verify_show_log_at_DEBUG_level() throws URISyntaxException {
     logTester.setLevel(LoggerLevel.DEBUG);
 
-    new ReportExtractionStep(new ReportQueue.Item(dto, demoZipFile()), tempFolder, reportDirectoryHolder).execute();
+    new OpenReportStep(new ReportQueue.Item(dto, demoZipFile()), reportHolder).execute();
 
     List<String> logs = logTester.logs();
     assertThat(logs).hasSize(1);
     String log = logs.get(0);
-    assertThat(log.startsWith("Report extracted | size=")).isTrue();
+    assertThat(log.startsWith("Report opened | size=")).isTrue();
     assertThat(log.contains(" | project=P1 | time=")).isTrue();
   }
 
@@ -111,23 +112,19 @@ public class ReportExtractionStepTest {
   public void no_log_at_INFO_level() throws URISyntaxException {
     logTester.setLevel(LoggerLevel.INFO);
 
-    new ReportExtractionStep(new ReportQueue.Item(dto, demoZipFile()), tempFolder, reportDirectoryHolder).execute();
+    new OpenReportStep(new ReportQueue.Item(dto, demoZipFile()), reportHolder).execute();
 
     assertThat(logTester.logs()).isEmpty();
   }
 
-  private File verifyDir(File dir, String subDir) {
-    File file = new File(dir, subDir);
-    assertThat(file.exists()).isTrue();
-    assertThat(file.isDirectory()).isTrue();
-    return file;
-  }
-
-  private void verifyFile(File dir, String filename, String content) throws IOException {
-    File file = new File(dir, filename);
-    assertThat(file.exists()).isTrue();
-    assertThat(file.isDirectory()).isFalse();
-    assertThat(IOUtils.toString(new FileInputStream(file), "UTF-8")).isEqualTo(content);
+  private void verifyEntry(BatchReportEntries report, String name, String content) throws IOException {
+    InputStream input = report.open(name);
+    try {
+      assertThat(input).isNotNull();
+      assertThat(IOUtils.toString(input, "UTF-8")).isEqualTo(content);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
   }
 
   private static AnalysisReportDto newDefaultReport() {
@@ -30,6 +30,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Language;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.Constants;
@@ -42,6 +43,7 @@ import org.sonar.server.computation.batch.BatchReportReaderRule;
 import org.sonar.server.computation.batch.TreeRootHolderRule;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.DumbComponent;
+import org.sonar.server.computation.component.ParallelDepthTraversalTypeAwareVisitor;
 import org.sonar.server.computation.language.LanguageRepository;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.source.db.FileSourceDao;
@@ -89,7 +91,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
     System2 system2 = mock(System2.class);
     when(system2.now()).thenReturn(now);
-    sut = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader);
+    sut = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, new Settings());
   }
 
   @Override
@@ -115,6 +117,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getBinaryData()).isNotEmpty();
     assertThat(fileSourceDto.getDataHash()).isNotEmpty();
     assertThat(fileSourceDto.getLineHashes()).isNotEmpty();
+    assertThat(fileSourceDto.getLineCount()).isEqualTo(2);
+    assertThat(fileSourceDto.getPreviousLineCount()).isEqualTo(0);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(now);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now);
 
@@ -126,6 +130,31 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(1).getSource()).isEqualTo("line2");
   }
 
+  @Test
+  public void persist_sources_of_files_concurrently() throws Exception {
+    DumbComponent.Builder project = DumbComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    BatchReport.Component.Builder projectReport = BatchReport.Component.newBuilder().setRef(1).setType(Constants.ComponentType.PROJECT);
+    for (int ref = 2; ref < 12; ref++) {
+      project.addChildren(DumbComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + ref).setKey("PROJECT_KEY:file" + ref).build());
+      projectReport.addChildRef(ref);
+      reportReader.putComponent(BatchReport.Component.newBuilder().setRef(ref).setType(Constants.ComponentType.FILE).setLines(1).build());
+      reportReader.putFileSourceLines(ref, "line of file " + ref);
+    }
+    treeRootHolder.setRoot(project.build());
+    reportReader.putComponent(projectReport.build());
+
+    System2 system2 = mock(System2.class);
+    when(system2.now()).thenReturn(now);
+    Settings settings = new Settings().setProperty(ParallelDepthTraversalTypeAwareVisitor.PARALLELISM_PROPERTY, 4);
+    new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, settings).execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(10);
+    for (int ref = 2; ref < 12; ref++) {
+      FileSourceDb.Data data = FileSourceDto.decodeSourceData(dbClient.fileSourceDao().selectSource("FILE_" + ref).getBinaryData());
+      assertThat(data.getLines(0).getSource()).isEqualTo("line of file " + ref);
+    }
+  }
+
   @Test
   public void persist_last_line() throws Exception {
     treeRootHolder.setRoot(DumbComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
@@ -378,6 +407,36 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now);
   }
 
+  @Test
+  public void keep_previous_line_count_when_source_updated() throws Exception {
+    long past = 150000L;
+    dbClient.fileSourceDao().insert(session, new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setDataType(Type.SOURCE)
+      .setSrcHash("5b4bd9815cdb17b8ceae19eb1810c34c")
+      .setLineHashes("6438c669e0d0de98e6929c2cc0fac474\n")
+      .setDataHash("6cad150e3d065976c230cddc5a09efaa")
+      .setSourceData(FileSourceDb.Data.newBuilder()
+        .addLines(FileSourceDb.Line.newBuilder().setLine(1).setSource("old line 1").build())
+        .addLines(FileSourceDb.Line.newBuilder().setLine(2).setSource("old line 2").build())
+        .addLines(FileSourceDb.Line.newBuilder().setLine(3).setSource("old line 3").build())
+        .build())
+      .setLineCount(3)
+      .setPreviousLineCount(0)
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    session.commit();
+
+    initBasicReport(1);
+
+    sut.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    assertThat(fileSourceDto.getLineCount()).isEqualTo(1);
+    assertThat(fileSourceDto.getPreviousLineCount()).isEqualTo(3);
+  }
+
   @Test
   public void update_sources_when_src_hash_is_missing() throws Exception {
     // Existing sources
@@ -395,6 +454,9 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
           .setSource("line")
           .build())
         .build())
+      .setLineCount(1)
+      // line count known by the index, binary data not indexed yet
+      .setPreviousLineCount(5)
       .setCreatedAt(past)
       .setUpdatedAt(past));
     session.commit();
@@ -409,6 +471,52 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     // Updated at is not updated to not reindex the file source in E/S as the src hash is not indexed
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getSrcHash()).isEqualTo("137f72c3708c6bd0de00a0e5a69c699b");
+    assertThat(fileSourceDto.getPreviousLineCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void persist_report_hash() throws Exception {
+    initBasicReport(1);
+
+    sut.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    assertThat(fileSourceDto.getReportHash()).hasSize(32);
+  }
+
+  @Test
+  public void not_compute_sources_when_report_hash_has_not_changed() throws Exception {
+    initBasicReport(1);
+    sut.execute();
+
+    // data hash is changed in db, it would be fixed if sources were computed again
+    FileSourceDto previousDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    String reportHash = previousDto.getReportHash();
+    dbClient.fileSourceDao().update(previousDto.setDataHash("NOT_COMPUTED"));
+
+    sut.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("NOT_COMPUTED");
+    assertThat(fileSourceDto.getReportHash()).isEqualTo(reportHash);
+  }
+
+  @Test
+  public void compute_sources_when_a_file_of_report_has_changed() throws Exception {
+    initBasicReport(1);
+    sut.execute();
+    String previousReportHash = dbClient.fileSourceDao().selectSource(FILE_UUID).getReportHash();
+
+    reportReader.putCoverage(FILE_REF, newArrayList(BatchReport.Coverage.newBuilder()
+      .setLine(1)
+      .setUtHits(true)
+      .build()));
+    sut.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    assertThat(fileSourceDto.getReportHash()).isNotEqualTo(previousReportHash);
+    FileSourceDb.Data data = FileSourceDto.decodeSourceData(fileSourceDto.getBinaryData());
+    assertThat(data.getLines(0).getUtLineHits()).isEqualTo(1);
   }
 
   @Test
@@ -110,7 +110,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     RuleCache ruleCache = new RuleCache(new RuleCacheLoader(dbClient));
     MetricRepositoryImpl metricRepository = new MetricRepositoryImpl(dbClient);
     metricRepository.start();
-    MeasureRepository measureRepository = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, ruleCache);
+    MeasureRepository measureRepository = new MeasureRepositoryImpl(dbClient, reportReader, treeRootHolder, metricRepository, ruleCache);
     session.commit();
 
     sut = new PersistMeasuresStep(dbClient, metricRepository, dbIdsRepository, treeRootHolder, measureRepository);
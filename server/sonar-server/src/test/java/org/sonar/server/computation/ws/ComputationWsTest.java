@@ -22,8 +22,8 @@ package org.sonar.server.computation.ws;
 
 import org.junit.Test;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
 import org.sonar.server.activity.index.ActivityIndex;
-import org.sonar.server.computation.ComputationThreadLauncher;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.ws.WsTester;
@@ -34,8 +34,8 @@ import static org.mockito.Mockito.mock;
 public class ComputationWsTest {
 
   WsTester ws = new WsTester(new ComputationWs(
-    new QueueAction(mock(ReportQueue.class)),
-    new SubmitReportAction(mock(ReportQueue.class), mock(ComputationThreadLauncher.class), mock(UserSession.class)),
+    new QueueAction(mock(ReportQueue.class), mock(System2.class)),
+    new SubmitReportAction(mock(ReportQueue.class), mock(UserSession.class)),
     new HistoryAction(mock(ActivityIndex.class), mock(UserSession.class))));
 
   @Test
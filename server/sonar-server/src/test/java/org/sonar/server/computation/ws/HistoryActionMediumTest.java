@@ -28,11 +28,13 @@ import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.server.activity.Activity;
 import org.sonar.server.activity.ActivityService;
+import org.sonar.server.computation.activity.StepStatistics;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.tester.ServerTester;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsTester;
 
+import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -65,6 +67,9 @@ public class HistoryActionMediumTest {
     activity1.setData("projectUuid", "U1");
     activity1.setData("status", AnalysisReportDto.Status.SUCCESS);
     activity1.setData("submittedAt", new Date());
+    activity1.setData("steps", StepStatistics.format(Arrays.asList(
+      new StepStatistics("PersistMeasuresStep", 1200L, 900L, 5_000_000L, 40L, 200L, 0L, 0L),
+      new StepStatistics("IndexIssuesStep", 300L, -1L, -1L, 2L, 10L, 5L, 150L))));
     activityService.save(activity1);
 
     Activity activity2 = new Activity();
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.api.utils.System2;
 import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.ws.WsTester;
@@ -34,16 +35,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.core.computation.db.AnalysisReportDto.Status.PENDING;
+import static org.sonar.core.computation.db.AnalysisReportDto.Status.WORKING;
 
 public class QueueActionTest {
 
   WsTester tester;
   private ReportQueue queue;
+  private System2 system;
 
   @Before
   public void setup() {
     queue = mock(ReportQueue.class);
-    tester = new WsTester(new ComputationWs(new QueueAction(queue)));
+    system = mock(System2.class);
+    tester = new WsTester(new ComputationWs(new QueueAction(queue, system)));
   }
 
   @Test
@@ -59,11 +63,25 @@ public class QueueActionTest {
       .setFinishedAt(DateUtils.parseDateTime("2014-10-13T00:00:00+0200").getTime());
     List<AnalysisReportDto> reports = Lists.newArrayList(report);
     when(queue.all()).thenReturn(reports);
+    when(system.now()).thenReturn(DateUtils.parseDateTime("2014-10-13T00:01:00+0200").getTime());
 
     WsTester.TestRequest request = tester.newGetRequest(ComputationWs.ENDPOINT, "queue");
     request.execute().assertJson(getClass(), "list_queue_reports.json");
   }
 
+  @Test
+  public void count_pending_and_working_reports() throws Exception {
+    when(queue.all()).thenReturn(Lists.newArrayList(
+      AnalysisReportDto.newForTests(1L).setProjectKey("P1").setStatus(WORKING).setCreatedAt(1_000L).setStartedAt(2_000L),
+      AnalysisReportDto.newForTests(2L).setProjectKey("P1").setStatus(PENDING).setCreatedAt(3_000L),
+      AnalysisReportDto.newForTests(3L).setProjectKey("P2").setStatus(PENDING).setCreatedAt(4_000L)));
+    when(system.now()).thenReturn(10_000L);
+
+    String result = tester.newGetRequest(ComputationWs.ENDPOINT, "queue").execute().outputAsString();
+
+    assertThat(result).contains("\"pendingCount\":2", "\"workingCount\":1", "\"maxWaitingTime\":7000");
+  }
+
   @Test
   public void define() {
     assertThat(tester.controller(ComputationWs.ENDPOINT).action("queue")).isNotNull();
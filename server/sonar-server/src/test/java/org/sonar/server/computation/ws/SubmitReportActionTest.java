@@ -26,7 +26,6 @@ import org.junit.Test;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.core.computation.db.AnalysisReportDto;
 import org.sonar.core.permission.GlobalPermissions;
-import org.sonar.server.computation.ComputationThreadLauncher;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.tester.UserSessionRule;
@@ -46,14 +45,13 @@ public class SubmitReportActionTest {
   @Rule
   public UserSessionRule userSessionRule = UserSessionRule.standalone();
 
-  ComputationThreadLauncher workerLauncher = mock(ComputationThreadLauncher.class);
   ReportQueue queue = mock(ReportQueue.class);
   WsTester wsTester;
   SubmitReportAction sut;
 
   @Before
   public void before() {
-    sut = new SubmitReportAction(queue, workerLauncher, userSessionRule);
+    sut = new SubmitReportAction(queue, userSessionRule);
     wsTester = new WsTester(new ComputationWs(sut));
   }
 
@@ -70,7 +68,7 @@ public class SubmitReportActionTest {
   }
 
   @Test
-  public void add_element_to_queue_and_launch_analysis_task() throws Exception {
+  public void add_element_to_queue() throws Exception {
     userSessionRule.setGlobalPermissions(GlobalPermissions.SCAN_EXECUTION);
     AnalysisReportDto dto = mock(AnalysisReportDto.class);
     when(dto.getId()).thenReturn(42L);
@@ -84,7 +82,6 @@ public class SubmitReportActionTest {
     WsTester.Result response = request.execute();
 
     verify(queue).add(eq("P1"), eq("Project 1"), any(InputStream.class));
-    verify(workerLauncher).startAnalysisTaskNow();
     assertThat(response.outputAsString()).isEqualTo("{\"key\":\"42\"}");
   }
 
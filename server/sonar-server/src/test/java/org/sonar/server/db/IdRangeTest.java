@@ -0,0 +1,77 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.db;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.sonar.core.persistence.DbTester;
+import org.sonar.test.DbTests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Category(DbTests.class)
+public class IdRangeTest {
+
+  @ClassRule
+  public static DbTester dbTester = new DbTester();
+
+  DbClient dbClient;
+
+  @Before
+  public void setUp() {
+    dbTester.truncateTables();
+    dbClient = new DbClient(dbTester.database(), dbTester.myBatis());
+  }
+
+  @Test
+  public void split_ids_in_ranges_of_same_size() {
+    dbTester.prepareDbUnit(getClass(), "properties.xml");
+
+    List<IdRange> ranges = IdRange.split(dbClient, "properties", null, 3);
+
+    // ids from 3 to 12
+    assertThat(ranges).hasSize(3);
+    assertThat(ranges.get(0).getFrom()).isEqualTo(3L);
+    assertThat(ranges.get(0).getTo()).isEqualTo(7L);
+    assertThat(ranges.get(1).getFrom()).isEqualTo(7L);
+    assertThat(ranges.get(1).getTo()).isEqualTo(11L);
+    assertThat(ranges.get(2).getFrom()).isEqualTo(11L);
+    assertThat(ranges.get(2).getTo()).isEqualTo(13L);
+  }
+
+  @Test
+  public void split_ids_of_rows_matching_condition() {
+    dbTester.prepareDbUnit(getClass(), "properties.xml");
+
+    List<IdRange> ranges = IdRange.split(dbClient, "properties", "prop_key='bar'", 3);
+
+    assertThat(ranges).hasSize(1);
+    assertThat(ranges.get(0).getFrom()).isEqualTo(7L);
+    assertThat(ranges.get(0).getTo()).isEqualTo(8L);
+  }
+
+  @Test
+  public void no_ranges_if_table_is_empty() {
+    assertThat(IdRange.split(dbClient, "properties", null, 3)).isEmpty();
+  }
+}
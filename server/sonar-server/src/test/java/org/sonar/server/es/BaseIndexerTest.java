@@ -0,0 +1,172 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BaseIndexerTest {
+
+  @Rule
+  public EsTester esTester = new EsTester().addDefinitions(new FakeIndexDefinition());
+
+  MetadataIndex metadataIndex;
+
+  @Before
+  public void setUp() {
+    esTester.truncateIndices();
+    metadataIndex = new MetadataIndex(esTester.client());
+  }
+
+  @Test
+  public void persist_date_of_last_indexed_row() {
+    FakeIndexer indexer = new FakeIndexer(esTester.client(), 1000L);
+    indexer.index();
+    indexer.stop();
+
+    assertThat(indexer.calls).containsExactly(0L);
+    assertThat(metadataIndex.getLastUpdatedAt(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)).isEqualTo(1000L);
+
+    // another instance, for example after server restart, starts from the persisted date
+    FakeIndexer other = new FakeIndexer(esTester.client(), 2000L);
+    other.index();
+    other.stop();
+
+    assertThat(other.calls).containsExactly(1000L);
+    assertThat(metadataIndex.getLastUpdatedAt(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)).isEqualTo(2000L);
+  }
+
+  @Test
+  public void do_not_persist_date_when_nothing_indexed() {
+    FakeIndexer indexer = new FakeIndexer(esTester.client(), 0L);
+    indexer.index();
+    indexer.stop();
+
+    assertThat(metadataIndex.getLastUpdatedAt(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)).isNull();
+  }
+
+  @Test
+  public void fallback_to_max_value_of_index_when_date_is_not_persisted() {
+    esTester.client().prepareIndex(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)
+      .setSource(FakeIndexDefinition.newDoc(42))
+      .setRefresh(true)
+      .get();
+
+    FakeIndexer indexer = new FakeIndexer(esTester.client(), 0L);
+    indexer.index();
+    indexer.stop();
+
+    assertThat(indexer.calls).containsExactly(42L);
+  }
+
+  @Test
+  public void do_nothing_when_disabled() {
+    FakeIndexer indexer = new FakeIndexer(esTester.client(), 1000L);
+    indexer.setEnabled(false);
+    indexer.index();
+    indexer.stop();
+
+    assertThat(indexer.calls).isEmpty();
+  }
+
+  @Test
+  public void merge_concurrent_calls_into_a_single_pass() throws Exception {
+    final CountDownLatch firstPassStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstPass = new CountDownLatch(1);
+    final FakeIndexer indexer = new FakeIndexer(esTester.client(), 1000L) {
+      @Override
+      protected long doIndex(long lastUpdatedAt) {
+        if (calls.isEmpty()) {
+          firstPassStarted.countDown();
+          awaitQuietly(releaseFirstPass);
+        }
+        return super.doIndex(lastUpdatedAt);
+      }
+    };
+
+    Thread first = startIndexing(indexer);
+    assertThat(firstPassStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // these callers wait for the first pass, then share the second one
+    Thread second = startIndexing(indexer);
+    Thread third = startIndexing(indexer);
+    waitUntilWaiting(second);
+    waitUntilWaiting(third);
+
+    releaseFirstPass.countDown();
+    first.join();
+    second.join();
+    third.join();
+    indexer.stop();
+
+    assertThat(indexer.calls).hasSize(2);
+  }
+
+  private static Thread startIndexing(final BaseIndexer indexer) {
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        indexer.index();
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+    for (int i = 0; i < 1000 && thread.getState() != Thread.State.WAITING; i++) {
+      Thread.sleep(10L);
+    }
+    assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class FakeIndexer extends BaseIndexer {
+    final List<Long> calls = new CopyOnWriteArrayList<>();
+    private final long lastIndexedRow;
+
+    FakeIndexer(EsClient client, long lastIndexedRow) {
+      super(client, 0L, FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.INT_FIELD);
+      this.lastIndexedRow = lastIndexedRow;
+      setEnabled(true);
+    }
+
+    @Override
+    protected long doIndex(long lastUpdatedAt) {
+      calls.add(lastUpdatedAt);
+      return lastIndexedRow;
+    }
+  }
+}
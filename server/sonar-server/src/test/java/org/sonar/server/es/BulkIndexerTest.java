@@ -64,6 +64,22 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void record_statistics() {
+    long docs = BulkIndexer.STATISTICS.getDocs();
+    long bytes = BulkIndexer.STATISTICS.getBytes();
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    assertThat(BulkIndexer.STATISTICS.getDocs()).isGreaterThanOrEqualTo(docs + 2);
+    assertThat(BulkIndexer.STATISTICS.getBytes()).isGreaterThan(bytes);
+    assertThat(BulkIndexer.STATISTICS.getLastDocsPerSecond()).isGreaterThan(0L);
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -109,6 +125,31 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void delete_documents_while_indexing() throws Exception {
+    int max = 500;
+    int removeFrom = 200;
+    Map[] docs = new Map[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = ImmutableMap.of(FakeIndexDefinition.INT_FIELD, i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    indexer.addDeletion(esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setTypes(FakeIndexDefinition.TYPE)
+      .setQuery(QueryBuilders.filteredQuery(
+        QueryBuilders.matchAllQuery(),
+        FilterBuilders.rangeFilter(FakeIndexDefinition.INT_FIELD).gte(removeFrom))));
+    // deletion does not block
+    indexer.add(newIndexRequest(-1));
+    indexer.add(newIndexRequest(-2));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(removeFrom + 2);
+  }
+
   @Test
   public void disable_refresh() {
     BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
@@ -124,6 +165,15 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test(expected = IllegalStateException.class)
+  public void fail_to_add_request_when_stopped() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    indexer.stop();
+
+    indexer.add(newIndexRequest(42));
+  }
+
 
   private long count() {
     return esTester.countDocuments("fakes", "fake");
@@ -0,0 +1,90 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkThrottleTest {
+
+  BulkThrottle throttle = new BulkThrottle(4, 1000L);
+
+  @Test
+  public void initial_limits() {
+    assertThat(throttle.concurrentRequests()).isEqualTo(4);
+    assertThat(throttle.flushByteSize()).isEqualTo(1000L);
+  }
+
+  @Test
+  public void divide_limits_on_rejection() {
+    throttle.onRejection();
+    assertThat(throttle.concurrentRequests()).isEqualTo(2);
+    assertThat(throttle.flushByteSize()).isEqualTo(500L);
+
+    throttle.onRejection();
+    throttle.onRejection();
+    throttle.onRejection();
+    assertThat(throttle.concurrentRequests()).isEqualTo(1);
+    // a quarter of initial size
+    assertThat(throttle.flushByteSize()).isEqualTo(250L);
+  }
+
+  @Test
+  public void increase_limits_when_requests_are_fast() {
+    throttle.onRejection();
+    throttle.onSuccess(10L);
+    assertThat(throttle.concurrentRequests()).isEqualTo(3);
+    assertThat(throttle.flushByteSize()).isEqualTo(625L);
+
+    for (int i = 0; i < 20; i++) {
+      throttle.onSuccess(10L);
+    }
+    assertThat(throttle.concurrentRequests()).isEqualTo(4);
+    // four times initial size
+    assertThat(throttle.flushByteSize()).isEqualTo(4000L);
+  }
+
+  @Test
+  public void decrease_size_when_requests_are_slow() {
+    throttle.onSuccess(BulkThrottle.TARGET_LATENCY_MS + 1L);
+    assertThat(throttle.concurrentRequests()).isEqualTo(4);
+    assertThat(throttle.flushByteSize()).isEqualTo(750L);
+  }
+
+  @Test
+  public void keep_limits_when_latency_is_acceptable() {
+    throttle.onSuccess(BulkThrottle.TARGET_LATENCY_MS);
+    assertThat(throttle.concurrentRequests()).isEqualTo(4);
+    assertThat(throttle.flushByteSize()).isEqualTo(1000L);
+  }
+
+  @Test
+  public void await_completion_of_in_flight_requests() throws Exception {
+    assertThat(throttle.awaitCompletion(1, TimeUnit.MILLISECONDS)).isTrue();
+
+    throttle.acquire();
+    assertThat(throttle.awaitCompletion(1, TimeUnit.MILLISECONDS)).isFalse();
+
+    throttle.release();
+    assertThat(throttle.awaitCompletion(1, TimeUnit.MILLISECONDS)).isTrue();
+  }
+}
@@ -69,6 +69,7 @@ public class EsClientTest {
     assertThat(client.prepareRefresh()).isInstanceOf(ProxyRefreshRequestBuilder.class);
     assertThat(client.prepareSearch()).isInstanceOf(ProxySearchRequestBuilder.class);
     assertThat(client.prepareSearchScroll("1234")).isInstanceOf(ProxySearchScrollRequestBuilder.class);
+    assertThat(client.prepareClearScroll("1234")).isNotNull();
     assertThat(client.prepareState()).isInstanceOf(ProxyClusterStateRequestBuilder.class);
     assertThat(client.prepareStats()).isInstanceOf(ProxyIndicesStatsRequestBuilder.class);
 
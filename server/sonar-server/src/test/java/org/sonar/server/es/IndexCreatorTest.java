@@ -90,6 +90,29 @@ public class IndexCreatorTest {
     creator.stop();
   }
 
+  @Test
+  public void delete_metadata_of_recreated_index() throws Exception {
+    IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new Settings());
+    registry.start();
+    IndexCreator creator = new IndexCreator(es.client(), registry);
+    creator.start();
+    assertThat(mappings().get("metadatas")).isNotNull();
+    MetadataIndex metadataIndex = new MetadataIndex(es.client());
+    metadataIndex.setLastUpdatedAt("fakes", "fake", 1500L);
+
+    // restart without changes
+    creator = new IndexCreator(es.client(), registry);
+    creator.start();
+    assertThat(metadataIndex.getLastUpdatedAt("fakes", "fake")).isEqualTo(1500L);
+
+    // index "fakes" is re-created
+    registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinitionV2()}, new Settings());
+    registry.start();
+    creator = new IndexCreator(es.client(), registry);
+    creator.start();
+    assertThat(metadataIndex.getLastUpdatedAt("fakes", "fake")).isNull();
+  }
+
   private String setting(String indexName, String settingKey) {
     GetSettingsResponse indexSettings = es.client().nativeClient().admin().indices().prepareGetSettings(indexName).get();
     return indexSettings.getSetting(indexName, settingKey);
@@ -0,0 +1,64 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataIndexTest {
+
+  @Rule
+  public EsTester esTester = new EsTester().addDefinitions(new FakeIndexDefinition());
+
+  MetadataIndex underTest;
+
+  @Before
+  public void setUp() {
+    esTester.truncateIndices();
+    underTest = new MetadataIndex(esTester.client());
+  }
+
+  @Test
+  public void set_and_get_last_updated_at() {
+    assertThat(underTest.getLastUpdatedAt("fakes", "fake")).isNull();
+
+    underTest.setLastUpdatedAt("fakes", "fake", 1500L);
+    underTest.setLastUpdatedAt("fakes", "other", 2000L);
+    assertThat(underTest.getLastUpdatedAt("fakes", "fake")).isEqualTo(1500L);
+    assertThat(underTest.getLastUpdatedAt("fakes", "other")).isEqualTo(2000L);
+
+    underTest.setLastUpdatedAt("fakes", "fake", 3000L);
+    assertThat(underTest.getLastUpdatedAt("fakes", "fake")).isEqualTo(3000L);
+  }
+
+  @Test
+  public void delete_data_of_index() {
+    underTest.setLastUpdatedAt("fakes", "fake", 1500L);
+    underTest.setLastUpdatedAt("others", "other", 2000L);
+
+    underTest.deleteIndex("fakes");
+
+    assertThat(underTest.getLastUpdatedAt("fakes", "fake")).isNull();
+    assertThat(underTest.getLastUpdatedAt("others", "other")).isEqualTo(2000L);
+  }
+}
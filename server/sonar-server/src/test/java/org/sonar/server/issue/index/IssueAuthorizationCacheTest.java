@@ -0,0 +1,93 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Collections;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.EsTester;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssueAuthorizationCacheTest {
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new IssueIndexDefinition(new Settings()));
+
+  IssueAuthorizationCache underTest;
+
+  @Before
+  public void setUp() {
+    esTester.truncateIndices();
+    underTest = new IssueAuthorizationCache(esTester.client());
+  }
+
+  @Test
+  public void get_projects_authorized_to_user_or_groups() {
+    addAuthorization("P3", "sonar-users", null);
+    addAuthorization("P1", null, "marius");
+    addAuthorization("P2", "sonar-admins", null);
+
+    assertThat(underTest.getProjectUuids("marius", newHashSet("sonar-users"))).containsExactly("P1", "P3");
+    assertThat(underTest.getProjectUuids("marius", Collections.<String>emptySet())).containsExactly("P1");
+    assertThat(underTest.getProjectUuids(null, newHashSet("sonar-users", "sonar-admins"))).containsExactly("P2", "P3");
+    assertThat(underTest.getProjectUuids("simon", newHashSet("another group"))).isEmpty();
+  }
+
+  @Test
+  public void cache_projects_until_invalidation() {
+    addAuthorization("P1", "sonar-users", null);
+    assertThat(underTest.getProjectUuids(null, newHashSet("sonar-users"))).containsExactly("P1");
+
+    addAuthorization("P2", "sonar-users", null);
+    assertThat(underTest.getProjectUuids(null, newHashSet("sonar-users"))).containsExactly("P1");
+    assertThat(underTest.getHits()).isEqualTo(1L);
+    assertThat(underTest.getMisses()).isEqualTo(1L);
+
+    underTest.invalidate();
+    assertThat(underTest.getProjectUuids(null, newHashSet("sonar-users"))).containsExactly("P1", "P2");
+    assertThat(underTest.getMisses()).isEqualTo(2L);
+  }
+
+  @Test
+  public void key_does_not_depend_on_order_of_groups() {
+    addAuthorization("P1", "sonar-users", null);
+
+    underTest.getProjectUuids(null, newHashSet("sonar-users", "sonar-admins"));
+    underTest.getProjectUuids(null, newHashSet("sonar-admins", "sonar-users"));
+
+    assertThat(underTest.getHits()).isEqualTo(1L);
+    assertThat(underTest.getMisses()).isEqualTo(1L);
+  }
+
+  /**
+   * Indexes without invalidating the cache under test
+   */
+  private void addAuthorization(String projectUuid, @Nullable String group, @Nullable String user) {
+    IssueAuthorizationIndexer indexer = new IssueAuthorizationIndexer(null, esTester.client(), new IssueFacetCache(),
+      new IssueAuthorizationCache(esTester.client()));
+    indexer.index(newArrayList(new IssueAuthorizationDao.Dto(projectUuid, 1).addGroup(group).addUser(user)));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.tester.UserSessionRule;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class IssueFacetCacheTest {
+
+  @Rule
+  public UserSessionRule userSessionRule = UserSessionRule.standalone();
+
+  IssueFacetCache underTest = new IssueFacetCache();
+
+  @Test
+  public void put_and_get() {
+    assertThat(underTest.get("key")).isNull();
+
+    underTest.put("key", underTest.version(), newFacets());
+
+    Facets facets = underTest.get("key");
+    assertThat(facets.getNames()).isEmpty();
+    assertThat(underTest.size()).isEqualTo(1L);
+    assertThat(underTest.getHits()).isEqualTo(1L);
+    assertThat(underTest.getMisses()).isEqualTo(1L);
+  }
+
+  @Test
+  public void invalidate() {
+    underTest.put("key", underTest.version(), newFacets());
+
+    underTest.invalidate();
+
+    assertThat(underTest.get("key")).isNull();
+    assertThat(underTest.size()).isEqualTo(0L);
+  }
+
+  @Test
+  public void ignore_facets_computed_before_invalidation() {
+    long version = underTest.version();
+    underTest.invalidate();
+
+    underTest.put("key", version, newFacets());
+
+    assertThat(underTest.get("key")).isNull();
+  }
+
+  @Test
+  public void key_does_not_depend_on_order_of_criteria_nor_on_paging() {
+    IssueQuery query1 = IssueQuery.builder(userSessionRule).severities(newArrayList("MAJOR", "BLOCKER")).sort(IssueQuery.SORT_BY_SEVERITY).build();
+    IssueQuery query2 = IssueQuery.builder(userSessionRule).severities(newArrayList("BLOCKER", "MAJOR")).build();
+    SearchOptions options1 = new SearchOptions().addFacets(newArrayList("statuses")).setPage(1, 10);
+    SearchOptions options2 = new SearchOptions().addFacets(newArrayList("statuses")).setPage(3, 50);
+
+    assertThat(IssueFacetCache.key(query1, options1, "john")).isEqualTo(IssueFacetCache.key(query2, options2, "john"));
+  }
+
+  @Test
+  public void key_depends_on_facets_criteria_and_user() {
+    IssueQuery query = IssueQuery.builder(userSessionRule).severities(newArrayList("MAJOR")).build();
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("statuses"));
+    String key = IssueFacetCache.key(query, options, "john");
+
+    assertThat(IssueFacetCache.key(query, new SearchOptions().addFacets(newArrayList("rules")), "john")).isNotEqualTo(key);
+    assertThat(IssueFacetCache.key(IssueQuery.builder(userSessionRule).severities(newArrayList("MINOR")).build(), options, "john")).isNotEqualTo(key);
+    assertThat(IssueFacetCache.key(query, options, "jane")).isNotEqualTo(key);
+    assertThat(IssueFacetCache.key(IssueQuery.builder(userSessionRule).severities(newArrayList("MAJOR")).userGroups(newHashSet("admins")).build(), options, "john"))
+      .isNotEqualTo(key);
+  }
+
+  private static Facets newFacets() {
+    return new Facets(mock(SearchResponse.class));
+  }
+}
@@ -74,18 +74,22 @@ public class IssueIndexTest {
   IssueIndexer issueIndexer;
   IssueAuthorizationIndexer issueAuthorizationIndexer;
   ViewIndexer viewIndexer;
+  IssueFacetCache facetCache;
+  IssueAuthorizationCache authorizationCache;
 
   @Before
   public void setUp() {
     tester.truncateIndices();
-    issueIndexer = new IssueIndexer(null, tester.client());
-    issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, tester.client());
-    viewIndexer = new ViewIndexer(null, tester.client());
+    facetCache = new IssueFacetCache();
+    authorizationCache = new IssueAuthorizationCache(tester.client());
+    issueIndexer = new IssueIndexer(null, tester.client(), facetCache);
+    issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, tester.client(), facetCache, authorizationCache);
+    viewIndexer = new ViewIndexer(null, tester.client(), facetCache);
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
 
-    index = new IssueIndex(tester.client(), system, userSessionRule);
+    index = new IssueIndex(tester.client(), system, userSessionRule, facetCache, authorizationCache);
 
   }
 
@@ -377,6 +381,36 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
   }
 
+  @Test
+  public void cache_facets_until_index_changes() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file).setSeverity(Severity.INFO),
+      IssueTesting.newDoc("ISSUE2", file).setSeverity(Severity.MAJOR));
+    IssueQuery query = IssueQuery.builder(userSessionRule).build();
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+
+    SearchResult<IssueDoc> result = index.search(query, options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    assertThat(facetCache.getMisses()).isEqualTo(1L);
+
+    // modifying the result does not impact the cache
+    result.getFacets().get("severities").put("BLOCKER", 0L);
+
+    result = index.search(query, new SearchOptions().addFacets(newArrayList("severities")).setPage(2, 1));
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    assertThat(result.getDocs()).hasSize(1);
+    assertThat(result.getTotal()).isEqualTo(2L);
+    assertThat(facetCache.getHits()).isEqualTo(1L);
+
+    // cache is cleared when issues are indexed
+    indexIssues(IssueTesting.newDoc("ISSUE3", file).setSeverity(Severity.MAJOR));
+    result = index.search(query, options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 2L));
+    assertThat(facetCache.getMisses()).isEqualTo(2L);
+  }
+
   @Test
   public void filter_by_statuses() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -921,6 +955,60 @@ public class IssueIndexTest {
     assertThat(result.getDocs()).hasSize(SearchOptions.MAX_LIMIT);
   }
 
+  @Test
+  public void search_keys_of_all_pages_when_limit_is_disabled() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    List<IssueDoc> issues = newArrayList();
+    for (int i = 0; i < 1200; i++) {
+      issues.add(IssueTesting.newDoc(String.format("ISSUE%04d", i), file).setLine(i));
+    }
+    indexIssues(issues.toArray(new IssueDoc[] {}));
+
+    IssueQuery query = IssueQuery.builder(userSessionRule).sort(IssueQuery.SORT_BY_FILE_LINE).asc(true).build();
+    final List<List<String>> pages = newArrayList();
+    IssueIndex.KeysHandler handler = new IssueIndex.KeysHandler() {
+      @Override
+      public void handle(List<String> keys) {
+        pages.add(keys);
+      }
+    };
+    SearchResult<String> result = index.searchKeys(query, new SearchOptions().disableLimit().addFacets(newArrayList("severities")), handler);
+    assertThat(result.getTotal()).isEqualTo(1200L);
+    assertThat(result.getDocs()).isEmpty();
+    assertThat(result.getFacets().get("severities").values()).containsOnly(1200L);
+    // keys are given page by page
+    assertThat(pages).hasSize(3);
+    assertThat(pages.get(0)).hasSize(SearchOptions.MAX_LIMIT);
+    assertThat(pages.get(0).get(0)).isEqualTo("ISSUE0000");
+    assertThat(pages.get(2)).hasSize(200);
+    assertThat(pages.get(2).get(199)).isEqualTo("ISSUE1199");
+
+    pages.clear();
+    index.searchKeys(query, new SearchOptions().setOffset(600).disableLimit(), handler);
+    assertThat(pages).hasSize(2);
+    assertThat(pages.get(0)).hasSize(400);
+    assertThat(pages.get(0).get(0)).isEqualTo("ISSUE0600");
+    assertThat(pages.get(1)).hasSize(200);
+  }
+
+  @Test
+  public void search_keys() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file).setStatus(Issue.STATUS_OPEN),
+      IssueTesting.newDoc("ISSUE2", file).setStatus(Issue.STATUS_CLOSED),
+      IssueTesting.newDoc("ISSUE3", file).setStatus(Issue.STATUS_REOPENED));
+
+    IssueQuery query = IssueQuery.builder(userSessionRule).sort(IssueQuery.SORT_BY_STATUS).asc(true).build();
+    assertThat(index.searchKeys(query, new SearchOptions())).containsExactly("ISSUE2", "ISSUE1", "ISSUE3");
+    assertThat(index.searchKeys(query, new SearchOptions().setPage(2, 2))).containsExactly("ISSUE3");
+
+    query = IssueQuery.builder(userSessionRule).statuses(newArrayList(Issue.STATUS_OPEN)).build();
+    assertThat(index.searchKeys(query, new SearchOptions())).containsExactly("ISSUE1");
+  }
+
   @Test
   public void sort_by_status() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -1138,6 +1226,19 @@ public class IssueIndexTest {
     assertThat(index.search(IssueQuery.builder(userSessionRule).projectUuids(newArrayList(project3.uuid())).build(), new SearchOptions()).getDocs()).isEmpty();
   }
 
+  @Test
+  public void authorized_issues_when_permissions_change() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssue(IssueTesting.newDoc("ISSUE1", file), "sonar-admins", null);
+
+    userSessionRule.login().setUserGroups("sonar-users");
+    assertThat(index.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions()).getDocs()).isEmpty();
+
+    addIssueAuthorization(project.uuid(), "sonar-users", null);
+    assertThat(index.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions()).getDocs()).hasSize(1);
+  }
+
   @Test
   public void authorized_issues_on_user() {
     ComponentDto project1 = ComponentTesting.newProjectDto().setKey("project1");
@@ -97,7 +97,7 @@ public class IssueIndexerTest {
   }
 
   private IssueIndexer createIndexer() {
-    IssueIndexer indexer = new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
+    IssueIndexer indexer = new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client(), new IssueFacetCache());
     indexer.setEnabled(true);
     return indexer;
   }
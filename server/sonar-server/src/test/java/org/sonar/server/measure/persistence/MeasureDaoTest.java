@@ -23,9 +23,13 @@ package org.sonar.server.measure.persistence;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -180,6 +184,58 @@ public class MeasureDaoTest {
     assertThat(sut.selectByComponentUuidAndProjectSnapshotIdAndMetricIds(session, "CDEF", 1000L, ImmutableSet.of(123, 456))).isEmpty();
   }
 
+  @Test
+  public void select_past_measures_by_project_snapshot_id() {
+    db.prepareDbUnit(getClass(), "past_measures.xml");
+
+    List<PastMeasureDto> measures = select(1000L);
+    assertThat(measures).hasSize(6);
+    assertThat(measures).extracting("componentUuid").containsOnly("ABCD", "BCDE", "CDEF");
+
+    PastMeasureDto fileMeasure = measures.get(4);
+    assertThat(fileMeasure.getComponentUuid()).isEqualTo("CDEF");
+    assertThat(fileMeasure.getValue()).isEqualTo(5d);
+    assertThat(fileMeasure.getMetricId()).isEqualTo(1);
+
+    assertThat(select(987654L)).isEmpty();
+  }
+
+  private List<PastMeasureDto> select(long projectSnapshotId) {
+    final List<PastMeasureDto> res = newArrayList();
+    sut.selectByProjectSnapshotId(session, projectSnapshotId, new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        res.add((PastMeasureDto) context.getResultObject());
+      }
+    });
+    Collections.sort(res, new Comparator<PastMeasureDto>() {
+      @Override
+      public int compare(PastMeasureDto o1, PastMeasureDto o2) {
+        return o1.getId().compareTo(o2.getId());
+      }
+    });
+    return res;
+  }
+
+  @Test
+  public void select_last_measures_by_project_uuid() {
+    db.prepareDbUnit(getClass(), "last_measures.xml");
+
+    final List<MeasureDto> res = newArrayList();
+    sut.selectLastMeasuresByProjectUuid(session, "ABCD", new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        res.add((MeasureDto) context.getResultObject());
+      }
+    });
+
+    // measures of files, of previous snapshot, on rule and of other project are not selected
+    assertThat(res).extracting("id").containsOnly(1L);
+    assertThat(res).extracting("componentKey").containsOnly("project");
+    assertThat(res).extracting("metricId").containsOnly(1);
+    assertThat(res).extracting("value").containsOnly(60d);
+  }
+
   @Test
   public void select_past_measures_on_rule_by_component_uuid_and_root_snapshot_id_and_metric_keys() {
     db.prepareDbUnit(getClass(), "past_measures_with_rule_id.xml");
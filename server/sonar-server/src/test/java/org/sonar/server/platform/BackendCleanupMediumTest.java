@@ -28,6 +28,8 @@ import org.junit.experimental.categories.Category;
 import org.sonar.core.persistence.DbTester;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.issue.IssueTesting;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.rule.RuleTesting;
 import org.sonar.server.rule.index.RuleDoc;
@@ -55,7 +57,8 @@ public class BackendCleanupMediumTest {
 
   @Before
   public void setUp() {
-    backendCleanup = new BackendCleanup(esTester.client(), dbTester.myBatis());
+    backendCleanup = new BackendCleanup(esTester.client(), dbTester.myBatis(), new IssueFacetCache(),
+      new IssueAuthorizationCache(esTester.client()));
   }
 
   @Test
@@ -24,6 +24,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.sonar.api.config.Settings;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 
 import java.util.LinkedHashMap;
@@ -38,14 +39,14 @@ public class EsMonitorTest {
 
   @Test
   public void name() {
-    EsMonitor monitor = new EsMonitor(esTester.client());
+    EsMonitor monitor = new EsMonitor(esTester.client(), new IssueFacetCache());
     assertThat(monitor.name()).isEqualTo("ElasticSearch");
   }
 
 
   @Test
   public void cluster_attributes() {
-    EsMonitor monitor = new EsMonitor(esTester.client());
+    EsMonitor monitor = new EsMonitor(esTester.client(), new IssueFacetCache());
     LinkedHashMap<String, Object> attributes = monitor.attributes();
     assertThat(monitor.getState()).isEqualTo(ClusterHealthStatus.GREEN.name());
     assertThat(attributes.get("State")).isEqualTo(ClusterHealthStatus.GREEN);
@@ -54,7 +55,7 @@ public class EsMonitorTest {
 
   @Test
   public void node_attributes() {
-    EsMonitor monitor = new EsMonitor(esTester.client());
+    EsMonitor monitor = new EsMonitor(esTester.client(), new IssueFacetCache());
     LinkedHashMap<String, Object> attributes = monitor.attributes();
     Map nodesAttributes = (Map)attributes.get("Nodes");
 
@@ -67,15 +68,38 @@ public class EsMonitorTest {
 
   @Test
   public void index_attributes() {
-    EsMonitor monitor = new EsMonitor(esTester.client());
+    EsMonitor monitor = new EsMonitor(esTester.client(), new IssueFacetCache());
     LinkedHashMap<String, Object> attributes = monitor.attributes();
     Map indicesAttributes = (Map)attributes.get("Indices");
 
-    // one index "issues"
-    assertThat(indicesAttributes).hasSize(1);
-    Map indexAttributes = (Map)indicesAttributes.values().iterator().next();
+    // index "issues" and internal index "metadatas"
+    assertThat(indicesAttributes).hasSize(2);
+    Map indexAttributes = (Map)indicesAttributes.get("issues");
     assertThat(indexAttributes.get("Docs")).isEqualTo(0L);
     assertThat(indexAttributes.get("Shards")).isEqualTo(1);
     assertThat(indexAttributes.get("Store Size")).isNotNull();
   }
+
+  @Test
+  public void bulk_indexing_attributes() {
+    EsMonitor monitor = new EsMonitor(esTester.client(), new IssueFacetCache());
+    LinkedHashMap<String, Object> attributes = monitor.attributes();
+    Map bulkAttributes = (Map) attributes.get("Bulk Indexing");
+
+    assertThat(bulkAttributes).containsKeys("Indexed Docs", "Sent Data", "Last Throughput (docs/s)", "Last Throughput (bytes/s)",
+      "Rejections", "Retries", "Failures");
+  }
+
+  @Test
+  public void issue_facet_cache_attributes() {
+    IssueFacetCache cache = new IssueFacetCache();
+    cache.get("unknown");
+    EsMonitor monitor = new EsMonitor(esTester.client(), cache);
+    LinkedHashMap<String, Object> attributes = monitor.attributes();
+    Map cacheAttributes = (Map) attributes.get("Issue Facets Cache");
+
+    assertThat(cacheAttributes.get("Hits")).isEqualTo(0L);
+    assertThat(cacheAttributes.get("Misses")).isEqualTo(1L);
+    assertThat(cacheAttributes.get("Size")).isEqualTo(0L);
+  }
 }
@@ -0,0 +1,73 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.search;
+
+import java.util.Arrays;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.sonar.server.es.BaseIndexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexSynchronizerTest {
+
+  IndexSynchronizer underTest = new IndexSynchronizer(null, null, null, null, null, null, null, null, null, null);
+
+  @Test
+  public void execute_indexers_of_a_task_in_order() {
+    BaseIndexer first = mockIndexer();
+    BaseIndexer second = mockIndexer();
+    BaseIndexer other = mockIndexer();
+
+    underTest.execute(Arrays.asList(new IndexSynchronizer.IndexingTask("first", first, second), new IndexSynchronizer.IndexingTask("other", other)), 2);
+
+    InOrder inOrder = inOrder(first, second);
+    inOrder.verify(first).index();
+    inOrder.verify(second).index();
+    verify(other).index();
+  }
+
+  @Test
+  public void execute_all_tasks_even_if_one_fails() {
+    BaseIndexer failing = mockIndexer();
+    doThrow(new IllegalStateException("expected")).when(failing).index();
+    BaseIndexer other = mockIndexer();
+
+    try {
+      underTest.execute(Arrays.asList(new IndexSynchronizer.IndexingTask("failing", failing), new IndexSynchronizer.IndexingTask("other", other)), 1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("expected");
+      verify(other).index();
+    }
+  }
+
+  private static BaseIndexer mockIndexer() {
+    BaseIndexer indexer = mock(BaseIndexer.class);
+    when(indexer.setEnabled(true)).thenReturn(indexer);
+    return indexer;
+  }
+}
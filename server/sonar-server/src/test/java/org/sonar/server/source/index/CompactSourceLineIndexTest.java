@@ -0,0 +1,158 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source.index;
+
+import com.google.common.collect.Iterators;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.source.db.FileSourceDb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.INDEX;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.TYPE_BLOCK;
+
+public class CompactSourceLineIndexTest {
+
+  static Settings settings = new Settings().setProperty(SourceLineIndexDefinition.COMPACT_LAYOUT_PROPERTY, true);
+
+  @ClassRule
+  public static EsTester es = new EsTester().addDefinitions(new SourceLineIndexDefinition(settings));
+
+  SourceLineIndexer indexer;
+  SourceLineIndex index;
+
+  @Before
+  public void setUp() {
+    es.truncateIndices();
+    indexer = new SourceLineIndexer(mock(DbClient.class), es.client(), settings);
+    index = new SourceLineIndex(es.client(), settings);
+  }
+
+  @Test
+  public void index_blocks_of_lines() {
+    indexFile("P1", "F1", 1200, null);
+
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(3);
+    assertThat(es.getDocumentFieldValues(INDEX, TYPE_BLOCK, SourceLineIndexDefinition.FIELD_BLOCK_FIRST_LINE)).containsOnly(1, 501, 1001);
+    assertThat(es.getDocumentFieldValues(INDEX, TYPE_BLOCK, SourceLineIndexDefinition.FIELD_BLOCK_LAST_LINE)).containsOnly(500, 1000, 1200);
+  }
+
+  @Test
+  public void get_lines() {
+    indexFile("P1", "F1", 1200, null);
+    indexFile("P1", "F2", 3, null);
+
+    List<SourceLineDoc> lines = index.getLines("F1", 498, 503);
+    assertThat(lines).hasSize(6);
+    assertThat(lines.get(0).line()).isEqualTo(498);
+    assertThat(lines.get(0).source()).isEqualTo("line 498");
+    assertThat(lines.get(0).projectUuid()).isEqualTo("P1");
+    assertThat(lines.get(0).fileUuid()).isEqualTo("F1");
+    assertThat(lines.get(0).utLineHits()).isEqualTo(498);
+    assertThat(lines.get(0).itLineHits()).isNull();
+    assertThat(lines.get(5).line()).isEqualTo(503);
+
+    assertThat(index.getLines("F1", 1100, Integer.MAX_VALUE)).hasSize(101);
+    assertThat(index.getLines("F1")).hasSize(1200);
+    assertThat(index.getLines("F2")).hasSize(3);
+    assertThat(index.getLines("unknown")).isEmpty();
+  }
+
+  @Test
+  public void get_line() {
+    indexFile("P1", "F1", 3, null);
+
+    SourceLineDoc line = index.getLine("F1", 2);
+    assertThat(line.line()).isEqualTo(2);
+    assertThat(line.scmAuthor()).isEqualTo("author");
+    assertThat(line.scmDate()).isEqualTo(new Date(2000L));
+    assertThat(line.duplications()).containsOnly(2);
+
+    try {
+      index.getLine("F1", 4);
+      fail();
+    } catch (NotFoundException e) {
+      assertThat(e).hasMessage("No source found on line 4 for file 'F1'");
+    }
+  }
+
+  @Test
+  public void last_commit_date_on_project() {
+    indexFile("P1", "F1", 700, null);
+    indexFile("P1", "F2", 3, null);
+
+    assertThat(index.lastCommitDateOnProject("P1")).isEqualTo(new Date(700000L));
+    assertThat(index.lastCommitDateOnProject("unknown")).isNull();
+  }
+
+  @Test
+  public void delete_blocks_when_file_gets_shorter() {
+    indexFile("P1", "F1", 1200, null);
+    indexFile("P1", "F1", 400, 1200);
+
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(1);
+    assertThat(index.getLines("F1")).hasSize(400);
+  }
+
+  @Test
+  public void delete_blocks_when_previous_line_count_is_unknown() {
+    indexFile("P1", "F1", 1200, null);
+    indexFile("P1", "F1", 600, null);
+
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(2);
+    assertThat(index.getLines("F1")).hasSize(600);
+  }
+
+  @Test
+  public void delete_by_file() {
+    indexFile("P1", "F1", 700, null);
+    indexFile("P1", "F2", 3, null);
+
+    indexer.deleteByFile("F1");
+
+    assertThat(es.getDocumentFieldValues(INDEX, TYPE_BLOCK, SourceLineIndexDefinition.FIELD_FILE_UUID)).containsOnly("F2");
+  }
+
+  private void indexFile(String projectUuid, String fileUuid, int numberOfLines, Integer previousLineCount) {
+    FileSourceDb.Data.Builder dataBuilder = FileSourceDb.Data.newBuilder();
+    for (int line = 1; line <= numberOfLines; line++) {
+      dataBuilder.addLinesBuilder()
+        .setLine(line)
+        .setSource("line " + line)
+        .setScmAuthor("author")
+        .setScmDate(line * 1000L)
+        .setUtLineHits(line)
+        .addDuplication(line)
+        .build();
+    }
+    FileSourcesUpdaterHelper.Row row = SourceLineResultSetIterator.toBlockRow(projectUuid, fileUuid, new Date(), dataBuilder.build())
+      .setPreviousLineCount(previousLineCount);
+    indexer.index(Iterators.singletonIterator(row));
+  }
+}
@@ -46,6 +46,17 @@ public class SourceLineIndexDefinitionTest {
     assertThat(index.getSettings().get("index.number_of_replicas")).isEqualTo("0");
   }
 
+  @Test
+  public void define_compact_layout() {
+    Settings settings = new Settings();
+    settings.setProperty(SourceLineIndexDefinition.COMPACT_LAYOUT_PROPERTY, true);
+    IndexDefinition def = new SourceLineIndexDefinition(settings);
+    def.define(context);
+
+    NewIndex index = context.getIndices().get("sourcelines");
+    assertThat(index.getTypes().keySet()).containsOnly("sourceblock");
+  }
+
   @Test
   public void enable_cluster() {
     Settings settings = new Settings();
@@ -41,7 +41,7 @@ public class SourceLineIndexTest {
   @Before
   public void setUp() {
     es.truncateIndices();
-    index = new SourceLineIndex(es.client());
+    index = new SourceLineIndex(es.client(), new Settings());
   }
 
   @Test
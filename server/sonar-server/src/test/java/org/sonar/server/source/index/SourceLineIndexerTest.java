@@ -82,7 +82,7 @@ public class SourceLineIndexerTest {
   public void setUp() {
     es.truncateIndices();
     db.truncateTables();
-    indexer = new SourceLineIndexer(new DbClient(db.database(), db.myBatis()), es.client());
+    indexer = new SourceLineIndexer(new DbClient(db.database(), db.myBatis()), es.client(), new Settings());
     indexer.setEnabled(true);
   }
 
@@ -161,6 +161,29 @@ public class SourceLineIndexerTest {
       );
   }
 
+  @Test
+  public void delete_lines_greater_than_new_number_of_lines() throws Exception {
+    indexLine("P1", "F1", 1);
+    indexLine("P1", "F1", 2);
+    indexLine("P1", "F2", 1);
+
+    FileSourceDb.Data.Builder dataBuilder = FileSourceDb.Data.newBuilder();
+    dataBuilder.addLinesBuilder()
+      .setLine(1)
+      .setSource("new source")
+      .build();
+    FileSourcesUpdaterHelper.Row dbRow = SourceLineResultSetIterator.toRow("P1", "F1", new Date(), dataBuilder.build())
+      .setPreviousLineCount(2);
+    indexer.index(Iterators.singletonIterator(dbRow));
+
+    assertThat(countDocuments()).isEqualTo(2L);
+    SearchResponse fileSearch = prepareSearch()
+      .setQuery(QueryBuilders.termQuery(FIELD_FILE_UUID, "F1"))
+      .get();
+    assertThat(fileSearch.getHits().getTotalHits()).isEqualTo(1L);
+    assertThat(fileSearch.getHits().getHits()[0].sourceAsMap()).contains(entry(FIELD_LINE, 1));
+  }
+
   @Test
   public void delete_file_uuid() throws Exception {
     indexLine("P1", "F1", 1);
@@ -69,7 +69,7 @@ public class SourceLineResultSetIteratorTest {
     db.prepareDbUnit(getClass(), "shared.xml");
     FileSourceTesting.updateDataColumn(connection, "F1", FileSourceTesting.newFakeData(3).build());
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null);
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null, false);
     assertThat(iterator.hasNext()).isTrue();
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
@@ -109,7 +109,7 @@ public class SourceLineResultSetIteratorTest {
     dataBuilder.addLinesBuilder().setLine(1).build();
     FileSourceTesting.updateDataColumn(connection, "F1", dataBuilder.build());
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null);
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null, false);
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
     assertThat(row.getFileUuid()).isEqualTo("F1");
@@ -144,7 +144,7 @@ public class SourceLineResultSetIteratorTest {
   public void filter_by_date() {
     db.prepareDbUnit(getClass(), "shared.xml");
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 2000000000000L, null);
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 2000000000000L, null, false);
     assertThat(iterator.hasNext()).isFalse();
   }
 
@@ -155,7 +155,7 @@ public class SourceLineResultSetIteratorTest {
     dataBuilder.addLinesBuilder().setLine(1).build();
     FileSourceTesting.updateDataColumn(connection, "F1", dataBuilder.build());
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, "P1");
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, "P1", false);
 
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
@@ -172,7 +172,7 @@ public class SourceLineResultSetIteratorTest {
     dataBuilder.addLinesBuilder().setLine(1).build();
     FileSourceTesting.updateDataColumn(connection, "F1", dataBuilder.build());
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 1400000000000L, "P1");
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 1400000000000L, "P1", false);
 
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
@@ -188,7 +188,7 @@ public class SourceLineResultSetIteratorTest {
 
     FileSourceTesting.updateDataColumn(connection, "F1", "THIS_IS_NOT_PROTOBUF".getBytes());
 
-    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null);
+    iterator = SourceLineResultSetIterator.create(dbClient, connection, 0L, null, false);
     try {
       assertThat(iterator.hasNext()).isTrue();
       iterator.next();
@@ -79,7 +79,7 @@ public class LinesActionTest {
     esTester.truncateIndices();
 
     htmlSourceDecorator = new HtmlSourceDecorator();
-    sourceLineIndex = new SourceLineIndex(esTester.client());
+    sourceLineIndex = new SourceLineIndex(esTester.client(), new Settings());
     componentDao = new ComponentDao();
     DbClient dbClient = new DbClient(dbTester.database(), dbTester.myBatis(), componentDao);
     session = dbClient.openSession(false);
@@ -25,6 +25,10 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.server.util.CloseableIterator;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
@@ -38,7 +42,53 @@ public class DiskCacheTest {
 
   @Test
   public void write_and_read() throws Exception {
-    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    verifyWriteAndRead(false);
+  }
+
+  @Test
+  public void write_and_read_compressed() throws Exception {
+    verifyWriteAndRead(true);
+  }
+
+  @Test
+  public void append_with_several_appenders() throws Exception {
+    verifyAppendWithSeveralAppenders(false);
+    verifyAppendWithSeveralAppenders(true);
+  }
+
+  @Test
+  public void file_is_truncated_at_creation() throws Exception {
+    File file = temp.newFile();
+    new DiskCache<>(file, new JavaSerializationCodec<String>(), false, System2.INSTANCE).newAppender().append("foo").close();
+
+    DiskCache<String> cache = new DiskCache<>(file, new JavaSerializationCodec<String>(), false, System2.INSTANCE);
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+  }
+
+  @Test
+  public void use_codec() throws Exception {
+    DiskCache<Integer> cache = new DiskCache<>(temp.newFile(), new DiskCacheCodec<Integer>() {
+      @Override
+      public void write(Integer object, DataOutput output) throws IOException {
+        output.writeInt(object);
+      }
+
+      @Override
+      public Integer read(DataInput input) throws IOException {
+        return input.readInt();
+      }
+    }, false, System2.INSTANCE);
+
+    cache.newAppender().append(1).append(2).append(3).close();
+    try (CloseableIterator<Integer> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly(1, 2, 3);
+    }
+  }
+
+  private void verifyWriteAndRead(boolean compressed) throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), new JavaSerializationCodec<String>(), compressed, System2.INSTANCE);
     try (CloseableIterator<String> traverse = cache.traverse()) {
       assertThat(traverse).isEmpty();
     }
@@ -52,10 +102,21 @@ public class DiskCacheTest {
     }
   }
 
+  private void verifyAppendWithSeveralAppenders(boolean compressed) throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), new JavaSerializationCodec<String>(), compressed, System2.INSTANCE);
+    cache.newAppender().append("foo").close();
+    cache.newAppender().close();
+    cache.newAppender().append("bar").append("baz").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar", "baz");
+    }
+  }
+
   @Test
   public void fail_if_file_is_not_writable() throws Exception {
     try {
-      new DiskCache<>(temp.newFolder(), System2.INSTANCE);
+      new DiskCache<>(temp.newFolder(), new JavaSerializationCodec<String>(), false, System2.INSTANCE);
       fail();
     } catch (IllegalStateException e) {
       assertThat(e).hasMessageContaining("Fail to write into file");
@@ -69,7 +130,7 @@ public class DiskCacheTest {
         throw new UnsupportedOperationException("expected error");
       }
     }
-    DiskCache<Serializable> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    DiskCache<Serializable> cache = new DiskCache<>(temp.newFile(), new JavaSerializationCodec<Serializable>(), false, System2.INSTANCE);
     try {
       cache.newAppender().append(new Unserializable());
       fail();
@@ -49,8 +49,10 @@ import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.db.IssueDao;
+import org.sonar.server.issue.index.IssueAuthorizationCache;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueDoc;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
@@ -78,6 +80,8 @@ public class ViewIndexerTest {
   
   DbSession dbSession;
 
+  IssueFacetCache facetCache = new IssueFacetCache();
+
   ViewIndexer indexer;
 
   @Before
@@ -87,7 +91,7 @@ public class ViewIndexerTest {
 
     dbClient = new DbClient(dbTester.database(), dbTester.myBatis(), new RuleDao(System2.INSTANCE), new ComponentDao(), new IssueDao(dbTester.myBatis()), new RoleDao());
     dbSession = dbClient.openSession(false);
-    indexer = (ViewIndexer) new ViewIndexer(dbClient, esTester.client()).setEnabled(true);
+    indexer = (ViewIndexer) new ViewIndexer(dbClient, esTester.client(), facetCache).setEnabled(true);
   }
 
   @After
@@ -171,9 +175,10 @@ public class ViewIndexerTest {
 
   @Test
   public void clear_views_lookup_cache_on_index_view_uuid() {
-    IssueIndex issueIndex = new IssueIndex(esTester.client(), System2.INSTANCE, userSessionRule);
-    IssueIndexer issueIndexer = (IssueIndexer) new IssueIndexer(dbClient, esTester.client()).setEnabled(true);
-    IssueAuthorizationIndexer issueAuthorizationIndexer = (IssueAuthorizationIndexer) new IssueAuthorizationIndexer(dbClient, esTester.client()).setEnabled(true);
+    IssueAuthorizationCache authorizationCache = new IssueAuthorizationCache(esTester.client());
+    IssueIndex issueIndex = new IssueIndex(esTester.client(), System2.INSTANCE, userSessionRule, facetCache, authorizationCache);
+    IssueIndexer issueIndexer = (IssueIndexer) new IssueIndexer(dbClient, esTester.client(), facetCache).setEnabled(true);
+    IssueAuthorizationIndexer issueAuthorizationIndexer = (IssueAuthorizationIndexer) new IssueAuthorizationIndexer(dbClient, esTester.client(), facetCache, authorizationCache).setEnabled(true);
 
     String viewUuid = "ABCD";
 
@@ -6,6 +6,8 @@ CREATE TABLE "FILE_SOURCES" (
   "BINARY_DATA" BINARY(167772150),
   "DATA_HASH" VARCHAR(50) NOT NULL,
   "DATA_TYPE" VARCHAR(50),
+  "LINE_COUNT" INTEGER,
+  "PREVIOUS_LINE_COUNT" INTEGER,
   "CREATED_AT" BIGINT NOT NULL,
   "UPDATED_AT" BIGINT NOT NULL
 );
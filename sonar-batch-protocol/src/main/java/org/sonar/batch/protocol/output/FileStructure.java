@@ -52,6 +52,8 @@ public class FileStructure {
     }
   }
 
+  public static final String METADATA_FILE_NAME = "metadata.pb";
+
   private final File dir;
 
   public FileStructure(File dir) {
@@ -62,11 +64,19 @@ public class FileStructure {
   }
 
   public File metadataFile() {
-    return new File(dir, "metadata.pb");
+    return new File(dir, METADATA_FILE_NAME);
   }
 
   public File fileFor(Domain domain, int componentRef) {
-    return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
+    return new File(dir, fileNameFor(domain, componentRef));
+  }
+
+  /**
+   * Name of file relative to the root of report, for example to read the zipped report without
+   * extracting it.
+   */
+  public static String fileNameFor(Domain domain, int componentRef) {
+    return domain.filePrefix + componentRef + domain.fileSuffix;
   }
 
 }
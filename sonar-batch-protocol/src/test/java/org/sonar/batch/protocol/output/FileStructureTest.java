@@ -71,4 +71,11 @@ public class FileStructureTest {
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 3)).exists().isFile();
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 42)).doesNotExist();
   }
+
+  @Test
+  public void file_names_are_relative_to_report_root() throws Exception {
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.COMPONENT, 42)).isEqualTo("component-42.pb");
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.SOURCE, 3)).isEqualTo("source-3.txt");
+    assertThat(FileStructure.METADATA_FILE_NAME).isEqualTo("metadata.pb");
+  }
 }
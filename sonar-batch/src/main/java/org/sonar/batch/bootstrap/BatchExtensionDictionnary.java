@@ -47,10 +47,16 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @since 2.6
@@ -156,6 +162,67 @@ public class BatchExtensionDictionnary {
     return Collections2.filter(sortedList, Predicates.in(extensions));
   }
 
+  /**
+   * For each extension, the other extensions that must be executed before it. Dependencies are the same as in
+   * {@link #sort(Collection)}, including the indirect ones, for example through metrics or phases.
+   */
+  public <T> Map<T, Set<T>> getPrerequisites(Collection<T> extensions) {
+    Map<Object, Set<Object>> dependenciesByNode = new HashMap<>();
+    for (T extension : extensions) {
+      for (Object dependency : getDependencies(extension)) {
+        addDependency(dependenciesByNode, extension, dependency);
+      }
+      for (Object generates : getDependents(extension)) {
+        addDependency(dependenciesByNode, generates, extension);
+      }
+      // same as completePhaseDependencies()
+      Phase.Name phase = evaluatePhase(extension);
+      addDependency(dependenciesByNode, extension, phase);
+      for (Phase.Name name : Phase.Name.values()) {
+        if (phase.compareTo(name) < 0) {
+          addDependency(dependenciesByNode, name, extension);
+        } else if (phase.compareTo(name) > 0) {
+          addDependency(dependenciesByNode, extension, name);
+        }
+      }
+    }
+
+    Set<T> extensionSet = new HashSet<>(extensions);
+    Map<T, Set<T>> result = new HashMap<>();
+    for (T extension : extensions) {
+      Set<T> prerequisites = new HashSet<>();
+      Set<Object> visited = new HashSet<>();
+      Deque<Object> toVisit = new ArrayDeque<>();
+      toVisit.push(extension);
+      while (!toVisit.isEmpty()) {
+        Object node = toVisit.pop();
+        Set<Object> dependencies = dependenciesByNode.get(node);
+        if (dependencies == null) {
+          continue;
+        }
+        for (Object dependency : dependencies) {
+          if (visited.add(dependency)) {
+            if (extensionSet.contains(dependency) && dependency != extension) {
+              prerequisites.add((T) dependency);
+            }
+            toVisit.push(dependency);
+          }
+        }
+      }
+      result.put(extension, prerequisites);
+    }
+    return result;
+  }
+
+  private static void addDependency(Map<Object, Set<Object>> dependenciesByNode, Object node, Object dependency) {
+    Set<Object> dependencies = dependenciesByNode.get(node);
+    if (dependencies == null) {
+      dependencies = new HashSet<>();
+      dependenciesByNode.put(node, dependencies);
+    }
+    dependencies.add(dependency);
+  }
+
   /**
    * Extension dependencies
    */
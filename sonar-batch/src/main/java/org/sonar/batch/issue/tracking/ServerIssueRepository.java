@@ -21,7 +21,6 @@ package org.sonar.batch.issue.tracking;
 
 import com.google.common.base.Function;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.AnalysisMode;
@@ -67,13 +66,10 @@ public class ServerIssueRepository {
   }
 
   public void load() {
-    if (analysisMode.isIncremental()) {
-      return;
-    }
     Profiler profiler = Profiler.create(LOG).startInfo("Load server issues");
     this.issuesCache = caches.createCache("previousIssues");
     caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
-    previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new Function<ServerIssue, Void>() {
+    Function<ServerIssue, Void> consumer = new Function<ServerIssue, Void>() {
 
       @Override
       public Void apply(@Nullable ServerIssue issue) {
@@ -90,37 +86,34 @@ public class ServerIssueRepository {
         }
         return null;
       }
-    }, false);
+    };
+    if (analysisMode.isIncremental()) {
+      // only changed files are analyzed, their issues are loaded all at once
+      previousIssuesLoader.load(changedFileKeys(), consumer);
+    } else {
+      previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), consumer, false);
+    }
     profiler.stopDebug();
   }
 
-  public Iterable<ServerIssue> byComponent(BatchComponent component) {
-    if (analysisMode.isIncremental()) {
-      if (!component.isFile()) {
-        throw new UnsupportedOperationException("Incremental mode should only get issues on files");
-      }
-      InputFile inputFile = (InputFile) inputPathCache.getInputPath(component);
-      if (inputFile.status() == Status.ADDED) {
-        return Collections.emptyList();
+  private List<String> changedFileKeys() {
+    List<String> keys = new ArrayList<>();
+    for (InputFile inputFile : inputPathCache.allFiles()) {
+      if (inputFile.status() != Status.ADDED) {
+        BatchComponent component = resourceCache.get(inputFile);
+        if (component != null) {
+          keys.add(component.key());
+        }
       }
-      Profiler profiler = Profiler.create(LOG).startInfo("Load server issues for " + component.resource().getPath());
-      final List<ServerIssue> result = new ArrayList<>();
-      previousIssuesLoader.load(component.key(), new Function<ServerIssue, Void>() {
+    }
+    return keys;
+  }
 
-        @Override
-        public Void apply(@Nullable ServerIssue issue) {
-          if (issue == null) {
-            return null;
-          }
-          result.add(issue);
-          return null;
-        }
-      }, true);
-      profiler.stopDebug();
-      return result;
-    } else {
-      return issuesCache.values(component.batchId());
+  public Iterable<ServerIssue> byComponent(BatchComponent component) {
+    if (analysisMode.isIncremental() && !component.isFile()) {
+      throw new UnsupportedOperationException("Incremental mode should only get issues on files");
     }
+    return issuesCache.values(component.batchId());
   }
 
   public Iterable<ServerIssue> issuesOnMissingComponents() {
@@ -48,6 +48,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -293,6 +294,15 @@ public class BatchMediumTester {
 
     }
 
+    @Override
+    public void load(Collection<String> fileKeys, Function<ServerIssue, Void> consumer) {
+      for (ServerIssue serverIssue : serverIssues) {
+        if (fileKeys.contains(ComponentKeys.createEffectiveKey(serverIssue.getModuleKey(), serverIssue.hasPath() ? serverIssue.getPath() : null))) {
+          consumer.apply(serverIssue);
+        }
+      }
+    }
+
   }
 
   private static class FakeServerLineHashesLoader implements ServerLineHashesLoader {
@@ -23,39 +23,152 @@ import com.google.common.collect.Lists;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.batch.bootstrap.BatchExtensionDictionnary;
 import org.sonar.batch.events.EventBus;
+import org.sonar.batch.sensor.SensorWrapper;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @BatchSide
 public class SensorsExecutor {
 
+  /**
+   * Max number of sensors executed concurrently. Only the sensors of the new API
+   * ({@link org.sonar.api.batch.sensor.Sensor}) that do not depend on each other are executed concurrently.
+   * Default value is 1, so sensors are executed sequentially.
+   */
+  public static final String THREADS_PROP_KEY = "sonar.batch.sensorThreads";
+
   private EventBus eventBus;
   private Project module;
   private BatchExtensionDictionnary selector;
+  private Settings settings;
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = project;
+    this.settings = settings;
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    int threads = settings.hasKey(THREADS_PROP_KEY) ? settings.getInt(THREADS_PROP_KEY) : 1;
+    if (threads > 1) {
+      executeConcurrently(context, sensors, threads);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+    fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(module, context);
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    fireEvent(new SensorExecutionEvent(sensor, false));
+  }
+
+  /**
+   * Event handlers are not thread-safe
+   */
+  private void fireEvent(SensorExecutionEvent event) {
+    synchronized (eventBus) {
+      eventBus.fireEvent(event);
+    }
+  }
+
+  private void executeConcurrently(SensorContext context, Collection<Sensor> sensors, int threads) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (List<Sensor> group : groupIndependentSensors(sensors)) {
+        if (group.size() == 1) {
+          executeSensor(context, group.get(0));
+        } else {
+          List<Future<Void>> executions = new ArrayList<>();
+          for (Sensor sensor : group) {
+            executions.add(executor.submit(newExecution(context, sensor)));
+          }
+          awaitAll(executions);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Splits the sorted sensors into groups that are executed one after the other. Sensors of a group do not depend
+   * on each other. Sensors of the deprecated API are alone in their group, as they can read or write anything.
+   */
+  List<List<Sensor>> groupIndependentSensors(Collection<Sensor> sortedSensors) {
+    Map<Sensor, Set<Sensor>> prerequisites = selector.getPrerequisites(sortedSensors);
+    Map<Sensor, Integer> groupIndexes = new HashMap<>();
+    List<List<Sensor>> groups = new ArrayList<>();
+    // sensors can't be executed before the last deprecated sensor
+    int minGroupIndex = 0;
+    for (Sensor sensor : sortedSensors) {
+      int groupIndex = minGroupIndex;
+      if (sensor instanceof SensorWrapper) {
+        for (Sensor prerequisite : prerequisites.get(sensor)) {
+          groupIndex = Math.max(groupIndex, groupIndexes.get(prerequisite) + 1);
+        }
+      } else {
+        groupIndex = groups.size();
+        minGroupIndex = groupIndex + 1;
+      }
+      if (groupIndex == groups.size()) {
+        groups.add(new ArrayList<Sensor>());
+      }
+      groups.get(groupIndex).add(sensor);
+      groupIndexes.put(sensor, groupIndex);
+    }
+    return groups;
+  }
+
+  private Callable<Void> newExecution(final SensorContext context, final Sensor sensor) {
+    return new Callable<Void>() {
+      @Override
+      public Void call() {
+        executeSensor(context, sensor);
+        return null;
+      }
+    };
+  }
+
+  private static void awaitAll(List<Future<Void>> executions) {
+    try {
+      for (Future<Void> execution : executions) {
+        execution.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
   }
 }
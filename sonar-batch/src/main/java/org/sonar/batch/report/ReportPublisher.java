@@ -23,9 +23,16 @@ import com.github.kevinsawicki.http.HttpRequest;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.picocontainer.Startable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +41,6 @@ import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
-import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.ZipUtils;
 import org.sonar.batch.bootstrap.DefaultAnalysisMode;
 import org.sonar.batch.bootstrap.ServerClient;
@@ -47,12 +53,19 @@ public class ReportPublisher implements Startable {
   private static final Logger LOG = LoggerFactory.getLogger(ReportPublisher.class);
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
 
+  /**
+   * Compression level of the uploaded report, from 0 (no compression) to 9 (best compression).
+   * Default level of {@link Deflater} is used if not set.
+   */
+  public static final String COMPRESSION_LEVEL_PROP_KEY = "sonar.batch.reportCompressionLevel";
+
+  private static final int CHUNK_SIZE = 65536;
+
   private final ServerClient serverClient;
   private final Server server;
   private final Settings settings;
   private final ImmutableProjectReactor projectReactor;
   private final DefaultAnalysisMode analysisMode;
-  private final TempFolder temp;
 
   private ReportPublisherStep[] publishers;
 
@@ -60,13 +73,12 @@ public class ReportPublisher implements Startable {
   private BatchReportWriter writer;
 
   public ReportPublisher(Settings settings, ServerClient serverClient, Server server,
-    ImmutableProjectReactor projectReactor, DefaultAnalysisMode analysisMode, TempFolder temp, ReportPublisherStep[] publishers) {
+    ImmutableProjectReactor projectReactor, DefaultAnalysisMode analysisMode, ReportPublisherStep[] publishers) {
     this.serverClient = serverClient;
     this.server = server;
     this.projectReactor = projectReactor;
     this.settings = settings;
     this.analysisMode = analysisMode;
-    this.temp = temp;
     this.publishers = publishers;
   }
 
@@ -96,36 +108,29 @@ public class ReportPublisher implements Startable {
   public void execute() {
     // If this is a preview analysis then we should not upload reports
     if (!analysisMode.isPreview()) {
-      File report = prepareReport();
+      prepareReport();
       if (!analysisMode.isMediumTest()) {
-        uploadMultiPartReport(report);
+        uploadMultiPartReport();
       }
     }
     logSuccess(LoggerFactory.getLogger(getClass()));
   }
 
-  private File prepareReport() {
-    try {
-      long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
-      }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis reports generated in " + (stopTime - startTime) + "ms, dir size=" + FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("batch-report", ".zip");
-      ZipUtils.zipDir(reportDir, reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis reports compressed in " + (stopTime - startTime) + "ms, zip size=" + FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
-      return reportZip;
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to prepare batch report", e);
+  private void prepareReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
     }
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis reports generated in " + (stopTime - startTime) + "ms, dir size=" + FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
   }
 
+  /**
+   * The report directory is compressed in a dedicated thread while being uploaded with chunked
+   * transfer encoding, so no zip file is written on disk.
+   */
   @VisibleForTesting
-  void uploadMultiPartReport(File report) {
+  void uploadMultiPartReport() {
     LOG.debug("Publish results");
     long startTime = System.currentTimeMillis();
     URL url;
@@ -139,9 +144,62 @@ public class ReportPublisher implements Startable {
     HttpRequest request = HttpRequest.post(url);
     request.trustAllCerts();
     request.trustAllHosts();
+    request.chunk(CHUNK_SIZE);
     request.header("User-Agent", String.format("SonarQube %s", server.getVersion()));
     request.basic(serverClient.getLogin(), serverClient.getPassword());
-    request.part("report", null, "application/octet-stream", report);
+
+    PipedInputStream zipInput = new PipedInputStream(CHUNK_SIZE);
+    FutureTask<Void> compression = startCompression(zipInput);
+    try {
+      request.part("report", null, "application/octet-stream", zipInput);
+      // the request is not completed if compression failed, so that a truncated report is not submitted
+      waitForCompression(compression);
+      checkResponse(request, url);
+    } finally {
+      // stops compression if upload failed
+      IOUtils.closeQuietly(zipInput);
+    }
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis reports compressed and sent to server in " + (stopTime - startTime) + "ms");
+  }
+
+  private FutureTask<Void> startCompression(PipedInputStream zipInput) {
+    final PipedOutputStream zipOutput;
+    try {
+      zipOutput = new PipedOutputStream(zipInput);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to compress batch report", e);
+    }
+    final int compressionLevel = settings.hasKey(COMPRESSION_LEVEL_PROP_KEY) ? settings.getInt(COMPRESSION_LEVEL_PROP_KEY) : Deflater.DEFAULT_COMPRESSION;
+    FutureTask<Void> compression = new FutureTask<>(new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        try {
+          ZipUtils.zipDir(reportDir, zipOutput, compressionLevel);
+        } finally {
+          zipOutput.close();
+        }
+        return null;
+      }
+    });
+    Thread thread = new Thread(compression, "Batch report compression");
+    thread.setDaemon(true);
+    thread.start();
+    return compression;
+  }
+
+  private static void waitForCompression(FutureTask<Void> compression) {
+    try {
+      compression.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compressing batch report", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to compress batch report", e.getCause());
+    }
+  }
+
+  private void checkResponse(HttpRequest request, URL url) {
     if (!request.ok()) {
       int responseCode = request.code();
       if (responseCode == 401) {
@@ -153,8 +211,6 @@ public class ReportPublisher implements Startable {
       }
       throw new IllegalStateException(String.format("Fail to execute request [code=%s, url=%s]: %s", responseCode, url, request.body()));
     }
-    long stopTime = System.currentTimeMillis();
-    LOG.info("Analysis reports sent to server in " + (stopTime - startTime) + "ms");
   }
 
   @VisibleForTesting
@@ -20,23 +20,28 @@
 package org.sonar.batch.report;
 
 import org.apache.commons.io.ByteOrderMark;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.ReaderInputStream;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.batch.index.BatchComponent;
 import org.sonar.batch.index.BatchComponentCache;
 import org.sonar.batch.protocol.output.BatchReportWriter;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 public class SourcePublisher implements ReportPublisherStep {
 
+  private static final int BUFFER_SIZE = 65536;
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
   private final BatchComponentCache resourceCache;
 
   public SourcePublisher(BatchComponentCache resourceCache) {
@@ -45,6 +50,7 @@ public class SourcePublisher implements ReportPublisherStep {
 
   @Override
   public void publish(BatchReportWriter writer) {
+    byte[] buffer = new byte[BUFFER_SIZE];
     for (final BatchComponent resource : resourceCache.all()) {
       if (!resource.isFile()) {
         continue;
@@ -52,22 +58,58 @@ public class SourcePublisher implements ReportPublisherStep {
 
       DefaultInputFile inputFile = (DefaultInputFile) resource.inputPath();
       File iofile = writer.getSourceFile(resource.batchId());
-      int line = 0;
-      try (FileOutputStream output = new FileOutputStream(iofile); BOMInputStream bomIn = new BOMInputStream(new FileInputStream(inputFile.file()),
-        ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(bomIn, inputFile.charset()))) {
-        String lineStr = reader.readLine();
-        while (lineStr != null) {
-          IOUtils.write(lineStr, output, StandardCharsets.UTF_8);
-          line++;
-          if (line < inputFile.lines()) {
-            IOUtils.write("\n", output, StandardCharsets.UTF_8);
-          }
-          lineStr = reader.readLine();
-        }
+      try (InputStream input = openUtf8(inputFile); OutputStream output = new FileOutputStream(iofile)) {
+        copyWithCleanLineEnds(input, output, inputFile.lines(), buffer);
       } catch (IOException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
     }
   }
+
+  /**
+   * UTF-8 content of the file, without BOM. Files that are already encoded in UTF-8 are not decoded.
+   */
+  private static InputStream openUtf8(DefaultInputFile inputFile) throws IOException {
+    BOMInputStream bomIn = new BOMInputStream(new FileInputStream(inputFile.file()),
+      ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
+    if (StandardCharsets.UTF_8.equals(inputFile.charset())) {
+      return bomIn;
+    }
+    return new ReaderInputStream(new InputStreamReader(bomIn, inputFile.charset()), StandardCharsets.UTF_8, BUFFER_SIZE);
+  }
+
+  /**
+   * Copies blocks of bytes, replacing CR and CRLF by LF in place. Bytes 0x0A and 0x0D can't be part of
+   * multi-byte UTF-8 characters. Same as {@link java.io.BufferedReader#readLine()}, there is no line end
+   * after the last line, which number is known from {@link DefaultInputFile#lines()}.
+   */
+  private static void copyWithCleanLineEnds(InputStream input, OutputStream output, int lines, byte[] buffer) throws IOException {
+    int line = 1;
+    boolean afterCR = false;
+    int read = input.read(buffer);
+    while (read != -1) {
+      // cleaned content is never longer than original content
+      int length = 0;
+      for (int i = 0; i < read; i++) {
+        byte b = buffer[i];
+        if (b == LINE_FEED && afterCR) {
+          // second byte of CRLF
+          afterCR = false;
+        } else if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+          afterCR = b == CARRIAGE_RETURN;
+          if (line < lines) {
+            buffer[length] = LINE_FEED;
+            length++;
+          }
+          line++;
+        } else {
+          afterCR = false;
+          buffer[length] = b;
+          length++;
+        }
+      }
+      output.write(buffer, 0, length);
+      read = input.read(buffer);
+    }
+  }
 }
@@ -21,15 +21,30 @@ package org.sonar.batch.repository;
 
 import com.google.common.base.Function;
 import com.google.common.io.InputSupplier;
+import org.apache.commons.io.IOUtils;
 import org.sonar.batch.bootstrap.ServerClient;
 import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
 import org.sonar.api.utils.HttpDownloader;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  /**
+   * Max length of the encoded file keys sent in a single request, so that URLs are not rejected by the server
+   */
+  static final int MAX_KEYS_LENGTH = 4000;
+
   private final ServerClient serverClient;
 
   public DefaultServerIssuesLoader(ServerClient serverClient) {
@@ -46,8 +61,87 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
     }
   }
 
+  /**
+   * Files are requested by groups. The response of next group is downloaded while the response of
+   * current group is given to the consumer.
+   */
+  @Override
+  public void load(Collection<String> fileKeys, Function<ServerIssue, Void> consumer) {
+    List<String> urls = requestUrls(fileKeys);
+    if (urls.isEmpty()) {
+      return;
+    }
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<byte[]> next = executor.submit(download(urls.get(0)));
+      for (int i = 0; i < urls.size(); i++) {
+        Future<byte[]> current = next;
+        if (i + 1 < urls.size()) {
+          next = executor.submit(download(urls.get(i + 1)));
+        }
+        parseIssues(new ByteArrayInputStream(await(current)), consumer);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<String> requestUrls(Collection<String> fileKeys) {
+    List<String> urls = new ArrayList<>();
+    StringBuilder keys = new StringBuilder();
+    for (String fileKey : fileKeys) {
+      String encodedKey = ServerClient.encodeForUrl(fileKey);
+      if (keys.length() > 0 && keys.length() + encodedKey.length() > MAX_KEYS_LENGTH) {
+        urls.add("/batch/issues?keys=" + keys);
+        keys.setLength(0);
+      }
+      if (keys.length() > 0) {
+        // encoded comma
+        keys.append("%2C");
+      }
+      keys.append(encodedKey);
+    }
+    if (keys.length() > 0) {
+      urls.add("/batch/issues?keys=" + keys);
+    }
+    return urls;
+  }
+
+  private Callable<byte[]> download(final String url) {
+    return new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        try (InputStream is = serverClient.doRequest(url, "GET", null).getInput()) {
+          return IOUtils.toByteArray(is);
+        }
+      }
+    };
+  }
+
+  private byte[] await(Future<byte[]> response) {
+    try {
+      return response.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading previous issues", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof HttpDownloader.HttpException) {
+        throw serverClient.handleHttpException((HttpDownloader.HttpException) e.getCause());
+      }
+      throw new IllegalStateException("Unable to get previous issues", e.getCause());
+    }
+  }
+
   private static void parseIssues(InputSupplier<InputStream> input, Function<ServerIssue, Void> consumer) {
     try (InputStream is = input.getInput()) {
+      parseIssues(is, consumer);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to get previous issues", e);
+    }
+  }
+
+  private static void parseIssues(InputStream is, Function<ServerIssue, Void> consumer) {
+    try {
       ServerIssue previousIssue = ServerIssue.parseDelimitedFrom(is);
       while (previousIssue != null) {
         consumer.apply(previousIssue);
@@ -22,8 +22,15 @@ package org.sonar.batch.repository;
 import com.google.common.base.Function;
 import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
 
+import java.util.Collection;
+
 public interface ServerIssuesLoader {
 
   void load(String componentKey, Function<ServerIssue, Void> consumer, boolean incremental);
 
+  /**
+   * Load the issues of several files with as few requests as possible
+   */
+  void load(Collection<String> fileKeys, Function<ServerIssue, Void> consumer);
+
 }
@@ -0,0 +1,163 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.mediumtest.sensors;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.SonarPlugin;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.batch.mediumtest.BatchMediumTester;
+import org.sonar.batch.phases.SensorsExecutor;
+import org.sonar.xoo.XooPlugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelSensorsMediumTest {
+
+  private static final long WAIT_FOR_OTHER_SENSOR_MS = 1000L;
+
+  private static final AtomicInteger runningSensors = new AtomicInteger();
+  private static final AtomicInteger concurrentExecutions = new AtomicInteger();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  public BatchMediumTester tester = BatchMediumTester.builder()
+    .registerPlugin("xoo", new XooPlugin())
+    .registerPlugin("slow", new SlowSensorsPlugin())
+    .addDefaultQProfile("xoo", "Sonar Way")
+    .build();
+
+  private File baseDir;
+
+  @Before
+  public void prepare() throws IOException {
+    tester.start();
+
+    baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+    FileUtils.write(new File(srcDir, "sample.xoo"), "Sample xoo\ncontent");
+  }
+
+  @After
+  public void stop() {
+    tester.stop();
+  }
+
+  @Test
+  public void execute_independent_sensors_concurrently() {
+    // warm-up, so that durations of the two next analyses are comparable
+    analyse(4);
+
+    long sequentialDuration = analyse(1);
+    assertThat(concurrentExecutions.get()).isEqualTo(0);
+
+    long concurrentDuration = analyse(4);
+    assertThat(concurrentExecutions.get()).isEqualTo(2);
+
+    // each sensor waits for the other one, which can only be running when sensors are executed concurrently.
+    // Sequential execution waits twice for nothing, concurrent execution does not wait.
+    assertThat(sequentialDuration).isGreaterThanOrEqualTo(2 * WAIT_FOR_OTHER_SENSOR_MS);
+    assertThat(sequentialDuration - concurrentDuration).isGreaterThanOrEqualTo(WAIT_FOR_OTHER_SENSOR_MS);
+  }
+
+  private long analyse(int threads) {
+    runningSensors.set(0);
+    concurrentExecutions.set(0);
+    long start = System.currentTimeMillis();
+    tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put(SensorsExecutor.THREADS_PROP_KEY, String.valueOf(threads))
+        .build())
+      .start();
+    return System.currentTimeMillis() - start;
+  }
+
+  public static class SlowSensorsPlugin extends SonarPlugin {
+    @Override
+    public List getExtensions() {
+      return Arrays.asList(SlowSensor1.class, SlowSensor2.class);
+    }
+  }
+
+  public abstract static class SlowSensor implements Sensor {
+    @Override
+    public void execute(SensorContext context) {
+      runningSensors.incrementAndGet();
+      long deadline = System.currentTimeMillis() + WAIT_FOR_OTHER_SENSOR_MS;
+      try {
+        while (runningSensors.get() < 2 && System.currentTimeMillis() < deadline) {
+          Thread.sleep(10L);
+        }
+        if (runningSensors.get() == 2) {
+          concurrentExecutions.incrementAndGet();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // let the other sensor see that this one ran concurrently
+        sleepQuietly(50L);
+        runningSensors.decrementAndGet();
+      }
+    }
+  }
+
+  private static void sleepQuietly(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static class SlowSensor1 extends SlowSensor {
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("Slow sensor 1");
+    }
+  }
+
+  public static class SlowSensor2 extends SlowSensor {
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("Slow sensor 2");
+    }
+  }
+}
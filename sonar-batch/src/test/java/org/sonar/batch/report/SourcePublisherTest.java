@@ -51,10 +51,12 @@ public class SourcePublisherTest {
 
   private org.sonar.api.resources.File sampleFile;
 
+  private BatchComponentCache resourceCache;
+
   @Before
   public void prepare() throws IOException {
     Project p = new Project("foo").setAnalysisDate(new Date(1234567L));
-    BatchComponentCache resourceCache = new BatchComponentCache();
+    resourceCache = new BatchComponentCache();
     sampleFile = org.sonar.api.resources.File.create("src/Foo.php");
     sampleFile.setEffectiveKey("foo:src/Foo.php");
     resourceCache.add(p, null).setSnapshot(new Snapshot().setId(2));
@@ -117,4 +119,32 @@ public class SourcePublisherTest {
     File out = writer.getSourceFile(2);
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
   }
+
+  @Test
+  public void copyUtf8SourceWithoutBom() throws Exception {
+    FileUtils.write(sourceFile, "\uFEFF\u00e9t\u00e9\r\n2\r3\n\u20ac\r\n5", StandardCharsets.UTF_8);
+    ((DefaultInputFile) resourceCache.get(sampleFile).inputPath()).setCharset(StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(2);
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\u00e9t\u00e9\n2\n3\n\u20ac\n5");
+  }
+
+  @Test
+  public void cleanLineEndsOverLargeFile() throws Exception {
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      content.append("line ").append(i).append("\r\n");
+      expected.append("line ").append(i).append("\n");
+    }
+    FileUtils.write(sourceFile, content.toString(), StandardCharsets.ISO_8859_1);
+    ((DefaultInputFile) resourceCache.get(sampleFile).inputPath()).setLines(20001);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(2);
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+  }
 }
@@ -23,6 +23,9 @@ import com.google.common.base.Function;
 import com.google.common.io.InputSupplier;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.batch.bootstrap.ServerClient;
 import org.sonar.batch.protocol.input.BatchInput;
 import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
@@ -31,10 +34,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultServerIssuesLoaderTest {
@@ -73,4 +82,61 @@ public class DefaultServerIssuesLoaderTest {
 
     assertThat(result).extracting("key").containsExactly("ab1", "ab2");
   }
+
+  @Test
+  public void loadSeveralFilesFromWs() throws Exception {
+    InputSupplier<InputStream> is = mock(InputSupplier.class);
+    when(serverClient.doRequest("/batch/issues?keys=struts%3AFoo.java%2Cstruts%3ABar.java", "GET", null)).thenReturn(is);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ServerIssue.newBuilder().setKey("ab1").build()
+      .writeDelimitedTo(bos);
+    ServerIssue.newBuilder().setKey("ab2").build()
+      .writeDelimitedTo(bos);
+    when(is.getInput()).thenReturn(new ByteArrayInputStream(bos.toByteArray()));
+
+    final List<ServerIssue> result = new ArrayList<>();
+    loader.load(Arrays.asList("struts:Foo.java", "struts:Bar.java"), new Function<BatchInput.ServerIssue, Void>() {
+
+      @Override
+      public Void apply(ServerIssue input) {
+        result.add(input);
+        return null;
+      }
+    });
+
+    assertThat(result).extracting("key").containsExactly("ab1", "ab2");
+  }
+
+  @Test
+  public void split_requests_on_many_files() throws Exception {
+    List<String> fileKeys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      fileKeys.add("struts:src/main/java/org/apache/struts/Action" + i + ".java");
+    }
+    InputSupplier<InputStream> is = mock(InputSupplier.class);
+    when(serverClient.doRequest(anyString(), eq("GET"), (Integer) isNull())).thenReturn(is);
+    when(is.getInput()).thenAnswer(new Answer<InputStream>() {
+      @Override
+      public InputStream answer(InvocationOnMock invocation) throws Throwable {
+        return new ByteArrayInputStream(new byte[0]);
+      }
+    });
+
+    loader.load(fileKeys, new Function<BatchInput.ServerIssue, Void>() {
+      @Override
+      public Void apply(ServerIssue input) {
+        return null;
+      }
+    });
+
+    ArgumentCaptor<String> urls = ArgumentCaptor.forClass(String.class);
+    verify(serverClient, atLeast(2)).doRequest(urls.capture(), eq("GET"), (Integer) isNull());
+    int requestedKeys = 0;
+    for (String url : urls.getAllValues()) {
+      assertThat(url.length()).isLessThan(DefaultServerIssuesLoader.MAX_KEYS_LENGTH + 100);
+      requestedKeys += url.split("%2C").length;
+    }
+    assertThat(requestedKeys).isEqualTo(1000);
+  }
 }
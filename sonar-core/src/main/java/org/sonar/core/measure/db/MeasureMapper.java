@@ -23,6 +23,7 @@ package org.sonar.core.measure.db;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface MeasureMapper {
 
@@ -36,6 +37,10 @@ public interface MeasureMapper {
   List<PastMeasureDto> selectByComponentUuidAndProjectSnapshotIdAndStatusAndMetricIds(@Param("componentUuid") String componentuuid, @Param("rootSnapshotId") long rootSnapshotId,
     @Param("metricIds") List<Integer> metricIds, @Param("status") String status);
 
+  void selectByProjectSnapshotIdAndStatus(@Param("rootSnapshotId") long rootSnapshotId, @Param("status") String status, ResultHandler resultHandler);
+
+  void selectLastMeasuresByProjectUuid(@Param("projectUuid") String projectUuid, ResultHandler resultHandler);
+
   long countByComponentAndMetric(@Param("componentKey") String componentKey, @Param("metricKey") String metricKey);
 
   void insert(MeasureDto measureDto);
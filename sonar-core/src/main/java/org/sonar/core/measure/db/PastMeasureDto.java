@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 public class PastMeasureDto {
 
   private Long id;
+  private String componentUuid;
   private Double value;
   private Integer metricId;
   private Integer ruleId;
@@ -42,6 +43,19 @@ public class PastMeasureDto {
     return this;
   }
 
+  /**
+   * Only loaded when measures of several components are selected
+   */
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public PastMeasureDto setComponentUuid(@Nullable String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
   public double getValue() {
     Objects.requireNonNull(value);
     return value;
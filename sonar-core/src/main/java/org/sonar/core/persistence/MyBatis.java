@@ -95,6 +95,7 @@ import org.sonar.core.persistence.dialect.Dialect;
 import org.sonar.core.persistence.migration.v44.Migration44Mapper;
 import org.sonar.core.persistence.migration.v45.Migration45Mapper;
 import org.sonar.core.persistence.migration.v50.Migration50Mapper;
+import org.sonar.core.persistence.profiling.StatementStatisticsInterceptor;
 import org.sonar.core.properties.PropertiesMapper;
 import org.sonar.core.properties.PropertyDto;
 import org.sonar.core.purge.IdUuidPair;
@@ -184,6 +185,7 @@ public class MyBatis {
     conf.getVariables().setProperty("_true", dialect.getTrueSqlValue());
     conf.getVariables().setProperty("_false", dialect.getFalseSqlValue());
     conf.getVariables().setProperty("_scrollFetchSize", String.valueOf(dialect.getScrollDefaultFetchSize()));
+    conf.addInterceptor(new StatementStatisticsInterceptor());
 
     loadAlias(conf, "ActiveDashboard", ActiveDashboardDto.class);
     loadAlias(conf, "Author", AuthorDto.class);
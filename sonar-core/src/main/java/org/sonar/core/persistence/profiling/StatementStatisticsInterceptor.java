@@ -0,0 +1,70 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.persistence.profiling;
+
+import java.sql.Statement;
+import java.util.Properties;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.sonar.core.util.CallStatistics;
+
+/**
+ * Counts the number and duration of the SQL statements executed through MyBatis, for the threads
+ * that started a collection on {@link #STATISTICS}. Statement handlers of the other threads are
+ * not wrapped, so this interceptor costs nothing outside of a collection.
+ */
+@Intercepts({
+  @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+  @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+  @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class StatementStatisticsInterceptor implements Interceptor {
+
+  public static final CallStatistics STATISTICS = new CallStatistics();
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    long start = System.nanoTime();
+    try {
+      return invocation.proceed();
+    } finally {
+      STATISTICS.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    // statement handlers are created by the thread executing the statement
+    if (target instanceof StatementHandler && STATISTICS.currentCounter() != null) {
+      return Plugin.wrap(target, this);
+    }
+    return target;
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
@@ -44,6 +44,9 @@ public class FileSourceDto {
   private long updatedAt;
   private String lineHashes;
   private String srcHash;
+  private String reportHash;
+  private Integer lineCount;
+  private Integer previousLineCount;
   private byte[] binaryData;
   private String dataType;
   private String dataHash;
@@ -241,6 +244,46 @@ public class FileSourceDto {
     return this;
   }
 
+  @CheckForNull
+  public String getReportHash() {
+    return reportHash;
+  }
+
+  /**
+   * Hash of the files of analysis report which are used to compute binary data. Value is computed by Compute Engine.
+   */
+  public FileSourceDto setReportHash(@Nullable String reportHash) {
+    this.reportHash = reportHash;
+    return this;
+  }
+
+  @CheckForNull
+  public Integer getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Number of lines of the current source. Null on rows persisted before this column was introduced.
+   */
+  public FileSourceDto setLineCount(@Nullable Integer lineCount) {
+    this.lineCount = lineCount;
+    return this;
+  }
+
+  @CheckForNull
+  public Integer getPreviousLineCount() {
+    return previousLineCount;
+  }
+
+  /**
+   * Number of lines of the source before the last update of binary data. It is used by indexers to
+   * delete the lines that do not exist anymore without searching for them.
+   */
+  public FileSourceDto setPreviousLineCount(@Nullable Integer previousLineCount) {
+    this.previousLineCount = previousLineCount;
+    return this;
+  }
+
   public long getCreatedAt() {
     return createdAt;
   }
@@ -0,0 +1,84 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+
+/**
+ * Number and cumulated duration of the calls to a remote system (database, Elasticsearch, ...).
+ * Calls are recorded only for the threads that started a collection with {@link #startCollecting()}.
+ */
+public class CallStatistics {
+
+  private final ThreadLocal<Counter> counters = new ThreadLocal<>();
+
+  /**
+   * Starts recording the calls executed by the current thread, until {@link #stopCollecting()}
+   * is called.
+   */
+  public Counter startCollecting() {
+    Counter counter = new Counter();
+    counters.set(counter);
+    return counter;
+  }
+
+  public void stopCollecting() {
+    counters.remove();
+  }
+
+  /**
+   * Counter of current thread, if any. Asynchronous calls should keep it to record their duration
+   * when completed from another thread.
+   */
+  @CheckForNull
+  public Counter currentCounter() {
+    return counters.get();
+  }
+
+  /**
+   * Records a call of current thread. Does nothing if collection is not started.
+   */
+  public void record(long durationNanos) {
+    Counter counter = counters.get();
+    if (counter != null) {
+      counter.add(durationNanos);
+    }
+  }
+
+  public static class Counter {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong durationNanos = new AtomicLong();
+
+    public void add(long durationNanos) {
+      this.count.incrementAndGet();
+      this.durationNanos.addAndGet(durationNanos);
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public long getDurationMs() {
+      return TimeUnit.NANOSECONDS.toMillis(durationNanos.get());
+    }
+  }
+}
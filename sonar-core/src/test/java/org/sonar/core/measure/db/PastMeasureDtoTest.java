@@ -30,6 +30,7 @@ public class PastMeasureDtoTest {
   public void test_getter_and_setter() throws Exception {
     PastMeasureDto dto = new PastMeasureDto()
       .setId(10L)
+      .setComponentUuid("ABCD")
       .setValue(1d)
       .setMetricId(2)
       .setRuleId(3)
@@ -37,6 +38,7 @@ public class PastMeasureDtoTest {
       .setPersonId(5);
 
     assertThat(dto.getId()).isEqualTo(10L);
+    assertThat(dto.getComponentUuid()).isEqualTo("ABCD");
     assertThat(dto.hasValue()).isTrue();
     assertThat(dto.getValue()).isEqualTo(1d);
     assertThat(dto.getMetricId()).isEqualTo(2);
@@ -0,0 +1,71 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.persistence.profiling;
+
+import java.sql.Statement;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.sonar.core.util.CallStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class StatementStatisticsInterceptorTest {
+
+  StatementStatisticsInterceptor underTest = new StatementStatisticsInterceptor();
+
+  @After
+  public void tearDown() {
+    StatementStatisticsInterceptor.STATISTICS.stopCollecting();
+  }
+
+  @Test
+  public void do_not_wrap_statement_handlers_if_collection_is_not_started() {
+    StatementHandler handler = mock(StatementHandler.class);
+
+    assertThat(underTest.plugin(handler)).isSameAs(handler);
+  }
+
+  @Test
+  public void do_not_wrap_other_objects() {
+    StatementStatisticsInterceptor.STATISTICS.startCollecting();
+    Object target = new Object();
+
+    assertThat(underTest.plugin(target)).isSameAs(target);
+  }
+
+  @Test
+  public void count_statements_if_collection_is_started() throws Exception {
+    CallStatistics.Counter counter = StatementStatisticsInterceptor.STATISTICS.startCollecting();
+    StatementHandler handler = mock(StatementHandler.class);
+    Statement statement = mock(Statement.class);
+
+    StatementHandler wrapped = (StatementHandler) underTest.plugin(handler);
+    wrapped.query(statement, null);
+    wrapped.update(statement);
+    wrapped.prepare(null);
+
+    verify(handler).query(statement, null);
+    verify(handler).update(statement);
+    assertThat(counter.getCount()).isEqualTo(2L);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CallStatisticsTest {
+
+  CallStatistics underTest = new CallStatistics();
+
+  @Test
+  public void record_calls_of_current_thread() {
+    CallStatistics.Counter counter = underTest.startCollecting();
+    underTest.record(2_000_000L);
+    underTest.record(3_000_000L);
+
+    assertThat(underTest.currentCounter()).isSameAs(counter);
+    assertThat(counter.getCount()).isEqualTo(2L);
+    assertThat(counter.getDurationMs()).isEqualTo(5L);
+
+    underTest.stopCollecting();
+    underTest.record(1_000_000L);
+    assertThat(underTest.currentCounter()).isNull();
+    assertThat(counter.getCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void ignore_calls_of_other_threads() throws Exception {
+    CallStatistics.Counter counter = underTest.startCollecting();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        underTest.record(1_000_000L);
+      }
+    };
+    thread.start();
+    thread.join();
+
+    assertThat(counter.getCount()).isEqualTo(0L);
+    underTest.stopCollecting();
+  }
+
+  @Test
+  public void do_nothing_if_collection_is_not_started() {
+    underTest.record(1_000_000L);
+
+    assertThat(underTest.currentCounter()).isNull();
+  }
+}
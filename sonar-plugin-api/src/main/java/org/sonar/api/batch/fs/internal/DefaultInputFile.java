@@ -55,6 +55,7 @@ public class DefaultInputFile implements InputFile, org.sonar.api.resources.Inpu
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  private byte[] lineHashes;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -203,6 +204,21 @@ public class DefaultInputFile implements InputFile, org.sonar.api.resources.Inpu
     return this;
   }
 
+  /**
+   * MD5 hashes of lines, blank chars excluded, concatenated in a single array. Hashes of blank lines are
+   * filled with zeros. Null if not computed yet or if already consumed by issue tracking.
+   * @see FileMetadata#computeLineHashesForIssueTracking(DefaultInputFile, FileMetadata.LineHashConsumer)
+   */
+  @CheckForNull
+  public byte[] lineHashes() {
+    return lineHashes;
+  }
+
+  public DefaultInputFile setLineHashes(@Nullable byte[] lineHashes) {
+    this.lineHashes = lineHashes;
+    return this;
+  }
+
   @Override
   public TextPointer newPointer(int line, int lineOffset) {
     DefaultTextPointer textPointer = new DefaultTextPointer(line, lineOffset);
@@ -264,6 +280,7 @@ public class DefaultInputFile implements InputFile, org.sonar.api.resources.Inpu
     this.setNonBlankLines(metadata.nonBlankLines);
     this.setHash(metadata.hash);
     this.setOriginalLineOffsets(metadata.originalLineOffsets);
+    this.setLineHashes(metadata.lineHashes);
     return this;
   }
 
@@ -19,7 +19,6 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import com.google.common.primitives.Ints;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.ByteOrderMark;
@@ -29,7 +28,6 @@ import org.sonar.api.CoreProperties;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
-import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.BufferedReader;
@@ -38,11 +36,15 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Computes hash of files. Ends of Lines are ignored, so files with
@@ -56,6 +58,15 @@ public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
 
+  /**
+   * Length of MD5 hashes of lines
+   */
+  static final int LINE_HASH_LENGTH = 16;
+
+  private static final int BUFFER_SIZE = 16384;
+  private static final int INITIAL_LINE_CAPACITY = 256;
+  private static final int INITIAL_LINES_CAPACITY = 64;
+
   public abstract static class CharHandler {
 
     protected void handleAll(char c) {
@@ -71,87 +82,146 @@ public class FileMetadata {
     }
   }
 
-  private static class LineCounter extends CharHandler {
-    private int lines = 1;
-    private int nonBlankLines = 0;
-    private boolean blankLine = true;
-    boolean alreadyLoggedInvalidCharacter = false;
+  /**
+   * Computes in a single pass the line count, the non-blank line count, the file hash, the line offsets and
+   * the line hashes. Characters are read by blocks into a reusable buffer.
+   */
+  private static class MetadataScanner {
     private final File file;
     private final Charset encoding;
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
+    private final CharsetEncoder utf8Encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer encoded = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // characters of current line, except end of line
+    private char[] line = new char[INITIAL_LINE_CAPACITY];
+    private int lineLength = 0;
+    // characters of current line, except blank chars
+    private char[] lineNoBlanks = new char[INITIAL_LINE_CAPACITY];
+    private int lineNoBlanksLength = 0;
 
-    LineCounter(File file, Charset encoding) {
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private boolean alreadyLoggedInvalidCharacter = false;
+    private int currentOriginalOffset = 0;
+    private int[] originalLineOffsets = new int[INITIAL_LINES_CAPACITY];
+    private byte[] lineHashes = new byte[INITIAL_LINES_CAPACITY * LINE_HASH_LENGTH];
+
+    MetadataScanner(File file, Charset encoding) {
       this.file = file;
       this.encoding = encoding;
     }
 
-    @Override
-    protected void handleAll(char c) {
-      if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
-        LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
-          lines, encoding, CoreProperties.ENCODING_PROPERTY);
-        alreadyLoggedInvalidCharacter = true;
+    void scan(Reader reader) throws IOException {
+      char[] buffer = new char[BUFFER_SIZE];
+      boolean afterCR = false;
+      int read = reader.read(buffer, 0, buffer.length);
+      while (read != -1) {
+        for (int i = 0; i < read; i++) {
+          char c = buffer[i];
+          if (afterCR) {
+            if (c != CARRIAGE_RETURN && c != LINE_FEED) {
+              append(c);
+            }
+            handleAll(c);
+            newLine();
+            afterCR = c == CARRIAGE_RETURN;
+          } else if (c == LINE_FEED) {
+            handleAll(c);
+            newLine();
+          } else if (c == CARRIAGE_RETURN) {
+            afterCR = true;
+            handleAll(c);
+          } else {
+            append(c);
+            handleAll(c);
+          }
+        }
+        read = reader.read(buffer, 0, buffer.length);
       }
+      eof();
     }
 
-    @Override
-    protected void newLine() {
-      lines++;
-      if (!blankLine) {
-        nonBlankLines++;
+    private void append(char c) {
+      if (lineLength == line.length) {
+        line = Arrays.copyOf(line, lineLength * 2);
       }
-      blankLine = true;
-    }
-
-    @Override
-    protected void handleIgnoreEoL(char c) {
+      line[lineLength] = c;
+      lineLength++;
       if (!Character.isWhitespace(c)) {
-        blankLine = false;
+        if (lineNoBlanksLength == lineNoBlanks.length) {
+          lineNoBlanks = Arrays.copyOf(lineNoBlanks, lineNoBlanksLength * 2);
+        }
+        lineNoBlanks[lineNoBlanksLength] = c;
+        lineNoBlanksLength++;
       }
     }
 
-    @Override
-    protected void eof() {
-      if (!blankLine) {
-        nonBlankLines++;
+    private void handleAll(char c) {
+      currentOriginalOffset++;
+      if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
+        LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
+          lines, encoding, CoreProperties.ENCODING_PROPERTY);
+        alreadyLoggedInvalidCharacter = true;
       }
     }
 
-    public int lines() {
-      return lines;
-    }
+    private void newLine() {
+      endOfLine();
+      append(LINE_FEED);
+      update(globalMd5Digest, line, lineLength);
+      lineLength = 0;
 
-    public int nonBlankLines() {
-      return nonBlankLines;
+      if (lines == originalLineOffsets.length) {
+        originalLineOffsets = Arrays.copyOf(originalLineOffsets, lines * 2);
+        lineHashes = Arrays.copyOf(lineHashes, lines * 2 * LINE_HASH_LENGTH);
+      }
+      originalLineOffsets[lines] = currentOriginalOffset;
+      lines++;
     }
 
-  }
-
-  private static class FileHashComputer extends CharHandler {
-    private MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
-    private StringBuilder sb = new StringBuilder();
-
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      sb.append(c);
+    private void eof() {
+      endOfLine();
+      if (lineLength > 0) {
+        update(globalMd5Digest, line, lineLength);
+      }
     }
 
-    @Override
-    protected void newLine() {
-      sb.append(LINE_FEED);
-      globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
-      sb.setLength(0);
+    private void endOfLine() {
+      if (lineNoBlanksLength > 0) {
+        nonBlankLines++;
+        update(lineMd5Digest, lineNoBlanks, lineNoBlanksLength);
+        try {
+          lineMd5Digest.digest(lineHashes, (lines - 1) * LINE_HASH_LENGTH, LINE_HASH_LENGTH);
+        } catch (DigestException e) {
+          throw new IllegalStateException("Fail to compute hash of line " + lines, e);
+        }
+        lineNoBlanksLength = 0;
+      }
     }
 
-    @Override
-    protected void eof() {
-      if (sb.length() > 0) {
-        globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+    /**
+     * Same as {@code digest.update(new String(chars, 0, length).getBytes(UTF_8))} without intermediate objects
+     */
+    private void update(MessageDigest digest, char[] chars, int length) {
+      int maxLength = (int) (length * utf8Encoder.maxBytesPerChar());
+      if (encoded.capacity() < maxLength) {
+        encoded = ByteBuffer.allocate(maxLength);
       }
+      encoded.clear();
+      utf8Encoder.reset();
+      utf8Encoder.encode(CharBuffer.wrap(chars, 0, length), encoded, true);
+      utf8Encoder.flush(encoded);
+      digest.update(encoded.array(), 0, encoded.position());
     }
 
-    @CheckForNull
-    public String getHash() {
-      return Hex.encodeHexString(globalMd5Digest.digest());
+    Metadata toMetadata() {
+      String hash = Hex.encodeHexString(globalMd5Digest.digest());
+      return new Metadata(lines, nonBlankLines, hash, Arrays.copyOf(originalLineOffsets, lines), currentOriginalOffset,
+        Arrays.copyOf(lineHashes, lines * LINE_HASH_LENGTH));
     }
   }
 
@@ -188,73 +258,41 @@ public class FileMetadata {
 
   }
 
-  private static class LineOffsetCounter extends CharHandler {
-    private int currentOriginalOffset = 0;
-    private List<Integer> originalLineOffsets = new ArrayList<>();
-    private int lastValidOffset = 0;
-
-    public LineOffsetCounter() {
-      originalLineOffsets.add(0);
-    }
-
-    @Override
-    protected void handleAll(char c) {
-      currentOriginalOffset++;
-    }
-
-    @Override
-    protected void newLine() {
-      originalLineOffsets.add(currentOriginalOffset);
-    }
-
-    @Override
-    protected void eof() {
-      lastValidOffset = currentOriginalOffset;
-    }
-
-    public List<Integer> getOriginalLineOffsets() {
-      return originalLineOffsets;
-    }
-
-    public int getLastValidOffset() {
-      return lastValidOffset;
-    }
-
-  }
-
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
    */
   public Metadata readMetadata(File file, Charset encoding) {
-    LineCounter lineCounter = new LineCounter(file, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer();
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    readFile(file, encoding, lineCounter, fileHashComputer, lineOffsetCounter);
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    MetadataScanner scanner = new MetadataScanner(file, encoding);
+    try (Reader reader = newReader(file, encoding)) {
+      scanner.scan(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+    return scanner.toMetadata();
   }
 
   /**
    * For testing purpose
    */
   public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter(new File("fromString"), StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer();
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    MetadataScanner scanner = new MetadataScanner(new File("fromString"), StandardCharsets.UTF_16);
     try {
-      read(reader, lineCounter, fileHashComputer, lineOffsetCounter);
+      scanner.scan(reader);
     } catch (IOException e) {
       throw new IllegalStateException("Should never occurs", e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return scanner.toMetadata();
   }
 
-  public static void readFile(File file, Charset encoding, CharHandler... handlers) {
-    try (BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file),
+  private static Reader newReader(File file, Charset encoding) throws IOException {
+    BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file),
       ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
-      Reader reader = new BufferedReader(new InputStreamReader(bomIn, encoding))) {
+    return new InputStreamReader(bomIn, encoding);
+  }
+
+  public static void readFile(File file, Charset encoding, CharHandler... handlers) {
+    try (Reader reader = new BufferedReader(newReader(file, encoding))) {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
@@ -305,13 +343,15 @@ public class FileMetadata {
     final String hash;
     final int[] originalLineOffsets;
     final int lastValidOffset;
+    final byte[] lineHashes;
 
-    private Metadata(int lines, int nonBlankLines, String hash, List<Integer> originalLineOffsets, int lastValidOffset) {
+    private Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset, byte[] lineHashes) {
       this.lines = lines;
       this.nonBlankLines = nonBlankLines;
       this.hash = hash;
-      this.originalLineOffsets = Ints.toArray(originalLineOffsets);
+      this.originalLineOffsets = originalLineOffsets;
       this.lastValidOffset = lastValidOffset;
+      this.lineHashes = lineHashes;
     }
   }
 
@@ -322,9 +362,31 @@ public class FileMetadata {
   }
 
   /**
-   * Compute a MD5 hash of each line of the file after removing of all blank chars
+   * Compute a MD5 hash of each line of the file after removing of all blank chars.
+   * Hashes computed when reading metadata are consumed only once, then released from the input file.
+   * Next calls read the file again.
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
-    readFile(f.file(), f.charset(), new LineHashComputer(consumer));
+    byte[] lineHashes = f.lineHashes();
+    if (lineHashes == null) {
+      readFile(f.file(), f.charset(), new LineHashComputer(consumer));
+      return;
+    }
+    // hashes have been computed when reading metadata
+    for (int line = 1; line <= lineHashes.length / LINE_HASH_LENGTH; line++) {
+      int from = (line - 1) * LINE_HASH_LENGTH;
+      consumer.consume(line, isBlank(lineHashes, from) ? null : Arrays.copyOfRange(lineHashes, from, from + LINE_HASH_LENGTH));
+    }
+    // do not keep 16 bytes per line in memory until the end of analysis
+    f.setLineHashes(null);
+  }
+
+  private static boolean isBlank(byte[] lineHashes, int from) {
+    for (int i = from; i < from + LINE_HASH_LENGTH; i++) {
+      if (lineHashes[i] != 0) {
+        return false;
+      }
+    }
+    return true;
   }
 }
@@ -165,6 +165,21 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Compresses the content of a directory into a stream, for example to upload it without
+   * creating a temporary zip file. The stream is not closed.
+   *
+   * @param compressionLevel the compression level of {@link java.util.zip.Deflater}, from 0 (no compression)
+   *                         to 9 (best compression), or -1 for the default level
+   * @since 5.2
+   */
+  public static void zipDir(File dir, OutputStream out, int compressionLevel) throws IOException {
+    ZipOutputStream zout = new ZipOutputStream(out);
+    zout.setLevel(compressionLevel);
+    doZipDir(dir, zout);
+    zout.finish();
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
@@ -226,6 +226,47 @@ public class FileMetadataTest {
     });
   }
 
+  @Test
+  public void compute_line_hashes_when_reading_metadata() throws Exception {
+    File tempFile = temp.newFile();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      content.append(i % 3 == 0 ? " \t" : ("line " + i)).append(i % 2 == 0 ? "\n" : "\r\n");
+    }
+    FileUtils.write(tempFile, content.toString(), StandardCharsets.UTF_8, true);
+
+    DefaultInputFile f = new DefaultInputFile("foo", tempFile.getName());
+    f.setModuleBaseDir(tempFile.getParentFile().toPath());
+    f.setCharset(StandardCharsets.UTF_8);
+    f.initMetadata(new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8));
+    assertThat(f.lines()).isEqualTo(101);
+    assertThat(f.lineHashes()).hasSize(101 * 16);
+
+    final String[] hashes = new String[101];
+    FileMetadata.computeLineHashesForIssueTracking(f, new LineHashConsumer() {
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        hashes[lineIdx - 1] = hash == null ? null : Hex.encodeHexString(hash);
+      }
+    });
+    assertThat(hashes[0]).isNull();
+    assertThat(hashes[1]).isEqualTo(md5Hex("line1"));
+    assertThat(hashes[99]).isNull();
+    assertThat(hashes[98]).isEqualTo(md5Hex("line98"));
+    assertThat(hashes[100]).isNull();
+
+    // hashes are released once consumed, then read again from file
+    assertThat(f.lineHashes()).isNull();
+    final String[] hashesFromFile = new String[101];
+    FileMetadata.computeLineHashesForIssueTracking(f, new LineHashConsumer() {
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        hashesFromFile[lineIdx - 1] = hash == null ? null : Hex.encodeHexString(hash);
+      }
+    });
+    assertThat(hashesFromFile).isEqualTo(hashes);
+  }
+
   @Test
   public void dont_fail_on_empty_file() throws Exception {
     File tempFile = temp.newFile();